@@ -0,0 +1,89 @@
+/*
+ * Copyright [2015] [Tier1app LLC]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package io.allset.fastthread;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Allocations made while submitting single jobs. Meant to be run with the GC profiler, which reports
+ * the bytes allocated per job as gc.alloc.rate.norm:
+ *
+ *   ant benchmark -Djmh.lib=/path/to/jmh/jars -Djmh.args="AllocationBenchmark -prof gc"
+ *
+ * Single-job fast path allocates about 200 bytes per job on the caller thread (with compressed oops): the
+ * job, its TimerFutureTask, the JobResult, the wait node & the node of the work queue. Budget is enforced by
+ * AllocationBudgetTest. executeJobsOfOne goes through the list based path, for comparison.
+ *
+ * @author Ram Lakshmanan
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AllocationBenchmark {
+
+	private static final long TIMEOUT_PERIOD = 10000;
+
+	private FastThreadExecutor ftExecutor;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+
+		ftExecutor = new FastThreadExecutor("allocation", 4, 20000);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+
+		ftExecutor.shutdown();
+	}
+
+	@Benchmark
+	public Object executeJob() throws Exception {
+
+		return ftExecutor.executeJob(new NoOpJob(0), TIMEOUT_PERIOD).getResult();
+	}
+
+	@Benchmark
+	public Object dropJobAndGetResult() throws Exception {
+
+		TimerFutureTask futureTask = ftExecutor.dropJobToExecutor(new NoOpJob(0));
+		return ftExecutor.getResult(futureTask, TIMEOUT_PERIOD).getResult();
+	}
+
+	@Benchmark
+	public Object executeJobsOfOne() throws Exception {
+
+		return ftExecutor.executeJobs(Collections.singletonList(new NoOpJob(0)), TIMEOUT_PERIOD).get(0).getResult();
+	}
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright [2015] [Tier1app LLC]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package io.allset.fastthread;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.log4j.MDC;
+import org.apache.log4j.NDC;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Cost of propagating {@link FastThreadContext} and log4j MDC/NDC (through {@link Log4jJob}) from
+ * the caller thread to the worker thread. Jobs are executed on a single worker thread, so the
+ * difference between the benchmarks is the cost of capturing the context in the caller thread &
+ * installing it in the worker thread.
+ *
+ * @author Ram Lakshmanan
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ContextPropagationBenchmark {
+
+	private static final long TIMEOUT_PERIOD = 10000;
+
+	private static final int WORK_TOKENS = 10;
+
+	/**
+	 * Number of entries in the caller's FastThreadContext & MDC, and depth of its NDC.
+	 */
+	@Param({"0", "4", "16"})
+	public int contextSize;
+
+	@Param({"SHARED", "SNAPSHOT"})
+	public FastThreadContext.CaptureMode captureMode;
+
+	private FastThreadExecutor ftExecutor;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+
+		ftExecutor = new FastThreadExecutor("contextBenchmark", 1, 1);
+
+		FastThreadContext.setCaptureMode(captureMode);
+		FastThreadContext.init();
+		for (int counter = 0; counter < contextSize; ++counter) {
+
+			FastThreadContext.getMondeeContext().put("key" + counter, "value" + counter);
+			MDC.put("key" + counter, "value" + counter);
+			NDC.push("context" + counter);
+		}
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+
+		ftExecutor.shutdown();
+		FastThreadContext.clear();
+		FastThreadContext.setCaptureMode(FastThreadContext.CaptureMode.SHARED);
+		MDC.clear();
+		NDC.remove();
+	}
+
+	/**
+	 * Propagates only FastThreadContext, which every {@link Job} does.
+	 */
+	@Benchmark
+	public Object fastThreadContext() throws Exception {
+
+		return ftExecutor.executeJob(new NoOpJob(WORK_TOKENS), TIMEOUT_PERIOD).getResult();
+	}
+
+	/**
+	 * Propagates FastThreadContext, MDC & NDC.
+	 */
+	@Benchmark
+	public Object log4jContext() throws Exception {
+
+		return ftExecutor.executeJob(new NoOpLog4jJob(WORK_TOKENS), TIMEOUT_PERIOD).getResult();
+	}
+
+	/**
+	 * Cost of capturing FastThreadContext alone, without any thread hand-off.
+	 */
+	@Benchmark
+	public Object fastThreadContext_capture() {
+
+		return new NoOpJob(WORK_TOKENS);
+	}
+
+	/**
+	 * Cost of capturing the contexts alone, without any thread hand-off.
+	 */
+	@Benchmark
+	public Object log4jContext_capture() {
+
+		return new NoOpLog4jJob(WORK_TOKENS);
+	}
+}
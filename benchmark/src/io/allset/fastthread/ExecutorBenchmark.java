@@ -0,0 +1,166 @@
+/*
+ * Copyright [2015] [Tier1app LLC]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package io.allset.fastthread;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Throughput & latency of executing a batch of jobs through {@link FastThreadExecutor}, compared
+ * with {@link ExecutorService#invokeAll(java.util.Collection)} on an identically configured pool.
+ * Both pools use same number of threads & same queue capacity, so the difference is the
+ * overhead of the framework: job wrapping, timeout bookkeeping & result collection.
+ *
+ * @author Ram Lakshmanan
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ExecutorBenchmark {
+
+	private static final int THREAD_COUNT = 8;
+
+	private static final int QUEUE_CAPACITY = 20000;
+
+	/**
+	 * Generous timeout: benchmark measures the bookkeeping of timeouts, not timeouts themselves.
+	 */
+	private static final long TIMEOUT_PERIOD = 10000;
+
+	@Param({"1", "10", "100", "1000", "10000"})
+	public int batchSize;
+
+	/**
+	 * CPU consumed by each job. Refer {@link Blackhole#consumeCPU(long)}.
+	 */
+	@Param({"100"})
+	public int workTokens;
+
+	private FastThreadExecutor ftExecutor;
+
+	private ExecutorService baselineExecutor;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+
+		ftExecutor = new FastThreadExecutor("benchmark", THREAD_COUNT, QUEUE_CAPACITY);
+		baselineExecutor = new ThreadPoolExecutor(THREAD_COUNT, THREAD_COUNT, 60L, TimeUnit.SECONDS,
+				new LinkedBlockingQueue<Runnable>(QUEUE_CAPACITY));
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+
+		ftExecutor.shutdown();
+		baselineExecutor.shutdown();
+	}
+
+	@Benchmark
+	public void executeJobs(Blackhole blackhole) throws Exception {
+
+		List<JobResult> results = ftExecutor.executeJobs(createJobs());
+		consume(results, blackhole);
+	}
+
+	@Benchmark
+	public void executeJobsWithTimeout(Blackhole blackhole) throws Exception {
+
+		List<JobResult> results = ftExecutor.executeJobs(createJobs(), TIMEOUT_PERIOD);
+		consume(results, blackhole);
+	}
+
+	@Benchmark
+	public void streamJobs(Blackhole blackhole) throws Exception {
+
+		JobResultStream results = ftExecutor.streamJobs(createJobs(), TIMEOUT_PERIOD);
+		while (results.hasNext()) {
+			blackhole.consume(results.next().getResult());
+		}
+	}
+
+	/**
+	 * {@link FastThreadExecutor#executeJob(Job, long)} is invoked batchSize times in a row.
+	 */
+	@Benchmark
+	public void executeJob(Blackhole blackhole) throws Exception {
+
+		for (int counter = 0; counter < batchSize; ++counter) {
+			blackhole.consume(ftExecutor.executeJob(new NoOpJob(workTokens), TIMEOUT_PERIOD).getResult());
+		}
+	}
+
+	@Benchmark
+	public void invokeAllBaseline(Blackhole blackhole) throws Exception {
+
+		List<Callable<Object>> callables = new ArrayList<Callable<Object>>(batchSize);
+		for (int counter = 0; counter < batchSize; ++counter) {
+
+			final int tokens = workTokens;
+			callables.add(new Callable<Object>() {
+				public Object call() throws Exception {
+					Blackhole.consumeCPU(tokens);
+					return Boolean.TRUE;
+				}
+			});
+		}
+
+		for (Future<Object> future : baselineExecutor.invokeAll(callables, TIMEOUT_PERIOD, TimeUnit.MILLISECONDS)) {
+			blackhole.consume(future.get());
+		}
+	}
+
+	private List<Job> createJobs() {
+
+		List<Job> jobs = new ArrayList<Job>(batchSize);
+		for (int counter = 0; counter < batchSize; ++counter) {
+			jobs.add(new NoOpJob(workTokens));
+		}
+
+		return jobs;
+	}
+
+	private static void consume(List<JobResult> results, Blackhole blackhole) throws Exception {
+
+		for (JobResult result : results) {
+			blackhole.consume(result.getResult());
+		}
+	}
+}
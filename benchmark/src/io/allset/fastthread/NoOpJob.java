@@ -0,0 +1,41 @@
+/*
+ * Copyright [2015] [Tier1app LLC]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package io.allset.fastthread;
+
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Job which burns a fixed amount of CPU, so that benchmarks measure the overhead of the
+ * executor rather than the work done by the job.
+ *
+ * @author Ram Lakshmanan
+ */
+public class NoOpJob extends Job {
+
+	private final int tokens;
+
+	public NoOpJob(int tokens) {
+		this.tokens = tokens;
+	}
+
+	@Override
+	public Object doWork() throws Exception {
+
+		Blackhole.consumeCPU(tokens);
+		return Boolean.TRUE;
+	}
+}
@@ -0,0 +1,40 @@
+/*
+ * Copyright [2015] [Tier1app LLC]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package io.allset.fastthread;
+
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * {@link NoOpJob} which propagates log4j MDC & NDC to the worker thread.
+ *
+ * @author Ram Lakshmanan
+ */
+public class NoOpLog4jJob extends Log4jJob {
+
+	private final int tokens;
+
+	public NoOpLog4jJob(int tokens) {
+		this.tokens = tokens;
+	}
+
+	@Override
+	public Object doWork() throws Exception {
+
+		Blackhole.consumeCPU(tokens);
+		return Boolean.TRUE;
+	}
+}
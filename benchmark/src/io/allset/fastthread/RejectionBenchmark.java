@@ -0,0 +1,136 @@
+/*
+ * Copyright [2015] [Tier1app LLC]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package io.allset.fastthread;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Cost of turning away a job from a saturated pool: when the queue is full and when the concurrency
+ * limit is reached. Baseline is a plain {@link ThreadPoolExecutor} with abort policy. Rejections are
+ * logged by the executor, so configure the logging as it's done in production while running this.
+ *
+ * @author Ram Lakshmanan
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RejectionBenchmark {
+
+	/**
+	 * Holds the worker threads till the end of the trial.
+	 */
+	private final CountDownLatch release = new CountDownLatch(1);
+
+	private FastThreadExecutor queueFullExecutor;
+
+	private FastThreadExecutor limitReachedExecutor;
+
+	private ExecutorService baselineExecutor;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+
+		// Worker thread is blocked and the queue is full.
+		queueFullExecutor = new FastThreadExecutor("queueFullBenchmark", 1, 1);
+		queueFullExecutor.dropJobToExecutor(new BlockedJob());
+		queueFullExecutor.dropJobToExecutor(new BlockedJob());
+
+		// Only permit is held by the blocked job.
+		limitReachedExecutor = new FastThreadExecutor("limitReachedBenchmark", 1, 1);
+		limitReachedExecutor.setConcurrencyLimiter(new AdaptiveConcurrencyLimiter(1, 1, 1, 1000));
+		limitReachedExecutor.dropJobToExecutor(new BlockedJob());
+
+		baselineExecutor = new ThreadPoolExecutor(1, 1, 60L, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(1));
+		baselineExecutor.execute(new BlockedRunnable());
+		baselineExecutor.execute(new BlockedRunnable());
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+
+		release.countDown();
+		queueFullExecutor.shutdown();
+		limitReachedExecutor.shutdown();
+		baselineExecutor.shutdown();
+	}
+
+	@Benchmark
+	public Object queueFull() {
+
+		return queueFullExecutor.dropJobToExecutor(new NoOpJob(0));
+	}
+
+	@Benchmark
+	public Object concurrencyLimitReached() {
+
+		return limitReachedExecutor.dropJobToExecutor(new NoOpJob(0));
+	}
+
+	@Benchmark
+	public Object abortPolicyBaseline() {
+
+		try {
+			baselineExecutor.execute(new BlockedRunnable());
+			return null;
+		} catch (RejectedExecutionException e) {
+			return e;
+		}
+	}
+
+	private class BlockedJob extends Job {
+
+		@Override
+		public Object doWork() throws Exception {
+
+			release.await();
+			return Boolean.TRUE;
+		}
+	}
+
+	private class BlockedRunnable implements Runnable {
+
+		public void run() {
+
+			try {
+				release.await();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright [2015] [Tier1app LLC]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package io.allset.fastthread;
+
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Overhead of {@link TimerFutureTask#timedGet(long)} over a plain {@link FutureTask#get(long, TimeUnit)}.
+ * Tasks are run in the benchmark thread, so no thread hand-off is measured: only the cost of creating
+ * the task, running it & retrieving its result. Shared task benchmarks expose
+ * contention between callers waiting on the same task.
+ *
+ * @author Ram Lakshmanan
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TimedGetBenchmark {
+
+	private static final long TIMEOUT_PERIOD = 10000;
+
+	private static final int WORK_TOKENS = 10;
+
+	@Benchmark
+	public Object timedGet() throws Exception {
+
+		TimerFutureTask futureTask = new TimerFutureTask(new NoOpJob(WORK_TOKENS));
+		futureTask.run();
+		return futureTask.timedGet(TIMEOUT_PERIOD);
+	}
+
+	/**
+	 * Multiple callers retrieving the result of the same, already completed task.
+	 */
+	@Benchmark
+	@Threads(4)
+	public Object timedGet_sharedTask(SharedTask sharedTask) throws Exception {
+
+		return sharedTask.timerFutureTask.timedGet(TIMEOUT_PERIOD);
+	}
+
+	@Benchmark
+	@Threads(4)
+	public Object futureTaskGetBaseline_sharedTask(SharedTask sharedTask) throws Exception {
+
+		return sharedTask.futureTask.get(TIMEOUT_PERIOD, TimeUnit.MILLISECONDS);
+	}
+
+	@Benchmark
+	public Object futureTaskGetBaseline() throws Exception {
+
+		FutureTask<Object> futureTask = new FutureTask<Object>(new NoOpJob(WORK_TOKENS));
+		futureTask.run();
+		return futureTask.get(TIMEOUT_PERIOD, TimeUnit.MILLISECONDS);
+	}
+
+	@State(Scope.Benchmark)
+	public static class SharedTask {
+
+		TimerFutureTask timerFutureTask;
+
+		FutureTask<Object> futureTask;
+
+		@Setup(Level.Trial)
+		public void setUp() {
+
+			timerFutureTask = new TimerFutureTask(new NoOpJob(WORK_TOKENS));
+			timerFutureTask.run();
+
+			futureTask = new FutureTask<Object>(new NoOpJob(WORK_TOKENS));
+			futureTask.run();
+		}
+	}
+}
@@ -0,0 +1,448 @@
+/*
+ * Copyright [2015] [Tier1app LLC]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package io.allset.fastthread;
+
+import java.util.AbstractQueue;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Bounded FIFO queue, in which a task that is abandoned while it waits (refer
+ * {@link TimerFutureTask#abandon(long)}) gives its slot back right away. Only the tasks which
+ * aren't abandoned are counted against the capacity, so the queue accepts new tasks as soon as
+ * the callers of the queued ones time out.
+ *
+ * Abandoned task isn't searched for: abandoning thread (caller or an expiry thread of the timer) only updates
+ * the counts, without taking the lock. Task is left in place & dropped when it reaches the head of
+ * the queue. Once the abandoned tasks outnumber the capacity, they are swept in one pass by the
+ * thread adding the next task. Thus each abandoned task costs O(1), amortized.
+ *
+ * @author Ram Lakshmanan
+ */
+public class AbandonAwareQueue extends AbstractQueue<Runnable> implements BlockingQueue<Runnable> {
+
+	private final int capacity;
+
+	/**
+	 * Guarded by lock. Includes the abandoned tasks, which aren't dropped yet.
+	 */
+	private final ArrayDeque<Runnable> tasks;
+
+	private final ReentrantLock lock = new ReentrantLock();
+
+	private final Condition notEmpty = lock.newCondition();
+
+	private final Condition notFull = lock.newCondition();
+
+	/**
+	 * Number of tasks in the queue, which aren't abandoned. Incremented only with the lock held.
+	 */
+	private final AtomicInteger liveCount = new AtomicInteger();
+
+	/**
+	 * Number of abandoned tasks, which are still in the queue.
+	 */
+	private final AtomicInteger abandonedCount = new AtomicInteger();
+
+	/**
+	 * Number of threads waiting in put() or offer(task, timeout, unit) for a free slot.
+	 */
+	private final AtomicInteger waitingCount = new AtomicInteger();
+
+	public AbandonAwareQueue(int capacity) {
+
+		if (capacity < 1) {
+			throw new IllegalArgumentException("Invalid Arguments");
+		}
+
+		this.capacity = capacity;
+		this.tasks = new ArrayDeque<Runnable>(Math.min(capacity, 1024));
+	}
+
+	/**
+	 * Task, which was waiting in this queue, is abandoned. Slot is freed right away, task is dropped
+	 * later. Invoked at most once per task, without the lock.
+	 */
+	void releaseAbandonedSlot() {
+
+		abandonedCount.incrementAndGet();
+		liveCount.decrementAndGet();
+
+		// Executor only offers tasks, so the lock is taken only if someone put() a task.
+		if (waitingCount.get() > 0) {
+
+			lock.lock();
+			try {
+				notFull.signal();
+			} finally {
+				lock.unlock();
+			}
+		}
+	}
+
+	public boolean offer(Runnable task) {
+
+		if (task == null) {
+			throw new NullPointerException();
+		}
+
+		lock.lock();
+		try {
+
+			if (liveCount.get() >= capacity) {
+				return false;
+			}
+
+			enqueue(task);
+			return true;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	public boolean offer(Runnable task, long timeout, TimeUnit unit) throws InterruptedException {
+
+		if (task == null) {
+			throw new NullPointerException();
+		}
+
+		long remainingTime = unit.toNanos(timeout);
+
+		lock.lockInterruptibly();
+		waitingCount.incrementAndGet();
+		try {
+
+			while (liveCount.get() >= capacity) {
+
+				if (remainingTime <= 0) {
+					return false;
+				}
+				remainingTime = notFull.awaitNanos(remainingTime);
+			}
+
+			enqueue(task);
+			return true;
+		} finally {
+			waitingCount.decrementAndGet();
+			lock.unlock();
+		}
+	}
+
+	public void put(Runnable task) throws InterruptedException {
+
+		if (task == null) {
+			throw new NullPointerException();
+		}
+
+		lock.lockInterruptibly();
+		waitingCount.incrementAndGet();
+		try {
+
+			while (liveCount.get() >= capacity) {
+				notFull.await();
+			}
+
+			enqueue(task);
+		} finally {
+			waitingCount.decrementAndGet();
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Must be invoked holding the lock.
+	 */
+	private void enqueue(Runnable task) {
+
+		if (abandonedCount.get() > capacity) {
+			sweep();
+		}
+
+		liveCount.incrementAndGet();
+		tasks.add(task);
+
+		if (task instanceof TimerFutureTask) {
+
+			TimerFutureTask futureTask = (TimerFutureTask)task;
+			futureTask.holdQueueSlot(this);
+
+			// Task might have been abandoned before it got in to the queue.
+			if (futureTask.isDone() && futureTask.releaseQueueSlot() != null) {
+				releaseAbandonedSlot();
+			}
+		}
+
+		notEmpty.signal();
+	}
+
+	/**
+	 * Must be invoked holding the lock.
+	 *
+	 * @return	oldest task which isn't abandoned. Abandoned tasks ahead of it are dropped.
+	 */
+	private Runnable dequeue() {
+
+		Runnable task;
+		while ((task = tasks.poll()) != null) {
+
+			if (claim(task)) {
+
+				liveCount.decrementAndGet();
+				notFull.signal();
+				return task;
+			}
+
+			abandonedCount.decrementAndGet();
+		}
+
+		return null;
+	}
+
+	/**
+	 * @return	true if the task's slot is taken over by the caller. false if the task is abandoned.
+	 */
+	private boolean claim(Runnable task) {
+
+		return !(task instanceof TimerFutureTask) || ((TimerFutureTask)task).releaseQueueSlot() != null;
+	}
+
+	private boolean isAbandoned(Runnable task) {
+
+		return task instanceof TimerFutureTask && ((TimerFutureTask)task).getQueueSlot() != this;
+	}
+
+	/**
+	 * Drops the abandoned tasks in one pass. Must be invoked holding the lock.
+	 */
+	private void sweep() {
+
+		for (int count = tasks.size(); count > 0; --count) {
+
+			Runnable task = tasks.poll();
+			if (isAbandoned(task)) {
+				abandonedCount.decrementAndGet();
+			} else {
+				tasks.add(task);
+			}
+		}
+	}
+
+	public Runnable poll() {
+
+		lock.lock();
+		try {
+			return dequeue();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	public Runnable poll(long timeout, TimeUnit unit) throws InterruptedException {
+
+		long remainingTime = unit.toNanos(timeout);
+
+		lock.lockInterruptibly();
+		try {
+
+			Runnable task;
+			while ((task = dequeue()) == null) {
+
+				if (remainingTime <= 0) {
+					return null;
+				}
+				remainingTime = notEmpty.awaitNanos(remainingTime);
+			}
+
+			return task;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	public Runnable take() throws InterruptedException {
+
+		lock.lockInterruptibly();
+		try {
+
+			Runnable task;
+			while ((task = dequeue()) == null) {
+				notEmpty.await();
+			}
+
+			return task;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	public Runnable peek() {
+
+		lock.lock();
+		try {
+
+			for (Runnable task : tasks) {
+
+				if (!isAbandoned(task)) {
+					return task;
+				}
+			}
+
+			return null;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * @return	number of tasks waiting in the queue, which aren't abandoned.
+	 */
+	public int size() {
+		return liveCount.get();
+	}
+
+	public int remainingCapacity() {
+		return capacity - liveCount.get();
+	}
+
+	@Override
+	public boolean remove(Object task) {
+
+		lock.lock();
+		try {
+
+			Iterator<Runnable> iterator = tasks.iterator();
+			while (iterator.hasNext()) {
+
+				Runnable queuedTask = iterator.next();
+				if (queuedTask.equals(task) && claim(queuedTask)) {
+
+					iterator.remove();
+					liveCount.decrementAndGet();
+					notFull.signal();
+					return true;
+				}
+			}
+
+			return false;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public void clear() {
+
+		lock.lock();
+		try {
+
+			while (dequeue() != null) {
+				// Dropping all the tasks.
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	public int drainTo(Collection<? super Runnable> collection) {
+
+		return drainTo(collection, Integer.MAX_VALUE);
+	}
+
+	public int drainTo(Collection<? super Runnable> collection, int maxElements) {
+
+		if (collection == this) {
+			throw new IllegalArgumentException();
+		}
+
+		lock.lock();
+		try {
+
+			int count = 0;
+			Runnable task;
+			while (count < maxElements && (task = dequeue()) != null) {
+
+				collection.add(task);
+				++count;
+			}
+
+			return count;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * @return	iterator over a snapshot of the tasks which aren't abandoned, in FIFO order.
+	 */
+	@Override
+	public Iterator<Runnable> iterator() {
+
+		final List<Runnable> snapshot;
+
+		lock.lock();
+		try {
+
+			snapshot = new ArrayList<Runnable>(tasks.size());
+			for (Runnable task : tasks) {
+
+				if (!isAbandoned(task)) {
+					snapshot.add(task);
+				}
+			}
+		} finally {
+			lock.unlock();
+		}
+
+		return new Iterator<Runnable>() {
+
+			private int index;
+
+			private Runnable lastReturned;
+
+			public boolean hasNext() {
+				return index < snapshot.size();
+			}
+
+			public Runnable next() {
+
+				if (!hasNext()) {
+					throw new NoSuchElementException();
+				}
+				lastReturned = snapshot.get(index++);
+				return lastReturned;
+			}
+
+			public void remove() {
+
+				if (lastReturned == null) {
+					throw new IllegalStateException();
+				}
+				AbandonAwareQueue.this.remove(lastReturned);
+				lastReturned = null;
+			}
+		};
+	}
+}
@@ -0,0 +1,153 @@
+/*
+ * Copyright [2015] [Tier1app LLC]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package io.allset.fastthread;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Limits the number of jobs that are in-flight (queued or executing) in a {@link FastThreadExecutor}
+ * and adapts the limit to the health of the downstream system, using AIMD (Additive Increase,
+ * Multiplicative Decrease):
+ *
+ * <ul>
+ *  <li>When a job times out, is rejected or takes longer than the latency threshold, limit is
+ *      reduced by the backoff ratio.</li>
+ *  <li>When a job completes within the latency threshold while the limit is being utilized, limit
+ *      is increased by one.</li>
+ * </ul>
+ *
+ * When a dependency slows down, limit shrinks quickly and new jobs are rejected upfront, instead
+ * of queueing up behind the slow ones. Once the dependency recovers, limit grows back gradually.
+ *
+ * @author Ram Lakshmanan
+ */
+public class AdaptiveConcurrencyLimiter {
+
+	public static final double DEFAULT_BACKOFF_RATIO = 0.9;
+
+	private final int minLimit;
+
+	private final int maxLimit;
+
+	/**
+	 * Jobs taking more than this period (in milli seconds) are considered as a sign of
+	 * an overloaded dependency.
+	 */
+	private final long latencyThreshold;
+
+	private final double backoffRatio;
+
+	private final AtomicInteger limit;
+
+	private final AtomicInteger inFlight = new AtomicInteger();
+
+	/**
+	 * @param initialLimit
+	 * @param minLimit
+	 * @param maxLimit
+	 * @param latencyThreshold		Period in milliseconds
+	 */
+	public AdaptiveConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit, long latencyThreshold) {
+
+		this(initialLimit, minLimit, maxLimit, latencyThreshold, DEFAULT_BACKOFF_RATIO);
+	}
+
+	public AdaptiveConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit, long latencyThreshold, double backoffRatio) {
+
+		if (minLimit < 1 ||
+			minLimit > maxLimit ||
+			initialLimit < minLimit ||
+			initialLimit > maxLimit ||
+			latencyThreshold < 1 ||
+			backoffRatio <= 0 ||
+			backoffRatio >= 1) {
+
+			throw new IllegalArgumentException("Invalid Arguments");
+		}
+
+		this.minLimit = minLimit;
+		this.maxLimit = maxLimit;
+		this.latencyThreshold = latencyThreshold;
+		this.backoffRatio = backoffRatio;
+		this.limit = new AtomicInteger(initialLimit);
+	}
+
+	/**
+	 * @return	true if a permit is acquired. false if the limit has been reached.
+	 */
+	public boolean tryAcquire() {
+
+		while (true) {
+
+			int current = inFlight.get();
+			if (current >= limit.get()) {
+				return false;
+			}
+
+			if (inFlight.compareAndSet(current, current + 1)) {
+				return true;
+			}
+		}
+	}
+
+	/**
+	 * Returns the permit and adjusts the limit based on the outcome of the job.
+	 *
+	 * @param latency	Time (in milli seconds) from submission till completion of the job.
+	 * @param dropped	true if the job timed out or failed to get executed.
+	 */
+	public void release(long latency, boolean dropped) {
+
+		int currentInFlight = inFlight.getAndDecrement();
+
+		while (true) {
+
+			int currentLimit = limit.get();
+			int newLimit;
+
+			if (dropped || latency > latencyThreshold) {
+
+				newLimit = Math.max(minLimit, (int)(currentLimit * backoffRatio));
+			} else if (currentInFlight * 2 >= currentLimit) {
+
+				// Increase only when the limit is being utilized. Otherwise limit would
+				// grow unbounded during periods of low traffic.
+				newLimit = Math.min(maxLimit, currentLimit + 1);
+			} else {
+
+				return;
+			}
+
+			if (newLimit == currentLimit || limit.compareAndSet(currentLimit, newLimit)) {
+				return;
+			}
+		}
+	}
+
+	public int getLimit() {
+		return limit.get();
+	}
+
+	public int getInFlight() {
+		return inFlight.get();
+	}
+
+	@Override
+	public String toString() {
+		return "Limit-" + limit.get() + ", InFlight-" + inFlight.get();
+	}
+}
@@ -0,0 +1,55 @@
+/*
+ * Copyright [2015] [Tier1app LLC]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package io.allset.fastthread;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Job which the downstream can serve more cheaply together with other compatible jobs, typically a
+ * single-key lookup against a backend which supports multi-get. Such jobs are grouped in to one batch
+ * by {@link MicroBatcher}, and the batch is executed as one downstream call.
+ *
+ * When a batchable job is executed on its own (e.g. through {@link FastThreadExecutor}), it's executed
+ * as a batch of one.
+ *
+ * @author Ram Lakshmanan
+ */
+public abstract class BatchableJob extends Job {
+
+	/**
+	 * @return	key of the batch, which this job can be a part of. Jobs with equal keys (typically the ones
+	 * 			calling the same backend) are batched together. Key must implement equals() & hashCode().
+	 */
+	public abstract Object getBatchKey();
+
+	/**
+	 * Executes the batch as one downstream call. It's invoked on the first job of the batch. Jobs, whose
+	 * callers have timed out before the batch got executed, are left out of the batch.
+	 *
+	 * @param jobs	jobs of the batch. All of them have the same batch key.
+	 * @return	results of the jobs, in the same order as the jobs.
+	 * @throws Exception	fails all the jobs of the batch.
+	 */
+	public abstract List<?> doBatchWork(List<BatchableJob> jobs) throws Exception;
+
+	@Override
+	public Object doWork() throws Exception {
+
+		return doBatchWork(Collections.<BatchableJob>singletonList(this)).get(0);
+	}
+}
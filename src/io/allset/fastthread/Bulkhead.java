@@ -0,0 +1,269 @@
+/*
+ * Copyright [2015] [Tier1app LLC]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package io.allset.fastthread;
+
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import io.allset.util.ExceptionUtil;
+
+/**
+ * Partition of a {@link FastThreadExecutor}'s worker threads, reserved for jobs of one kind, typically
+ * the jobs calling one downstream dependency (refer {@link Job#setPartition(String)}). Partition caps the
+ * number of its jobs that execute concurrently. Jobs beyond the cap wait in the partition's own queue,
+ * instead of the executor's queue. Once the partition's queue quota is also used up, jobs are rejected
+ * with {@link JobAbortedException}.
+ *
+ * Thus a slow dependency can occupy at most its partition's share of the worker threads & queue,
+ * while jobs of the other partitions keep going. Isolation is achieved without creating a separate
+ * pool of threads for each dependency.
+ *
+ * @author Ram Lakshmanan
+ */
+public class Bulkhead {
+
+	private static final Logger s_logger = LogManager.getLogger(Bulkhead.class);
+
+	private final String name;
+
+	private final int maxConcurrent;
+
+	private final int queueQuota;
+
+	private final FastThreadExecutor executor;
+
+	/**
+	 * Number of jobs which are handed over to the executor & haven't finished yet.
+	 */
+	private final AtomicInteger activeCount = new AtomicInteger();
+
+	private final Queue<TimerFutureTask> queuedTasks = new ConcurrentLinkedQueue<TimerFutureTask>();
+
+	/**
+	 * Queued tasks which are neither dispatched nor completed yet. Task is claimed by whoever removes
+	 * it first: dispatch() or the task's completion. Abandoned tasks are thus left in queuedTasks &
+	 * skipped, instead of being searched for.
+	 */
+	private final Set<TimerFutureTask> pendingTasks = ConcurrentHashMap.newKeySet();
+
+	private final AtomicInteger queuedCount = new AtomicInteger();
+
+	/**
+	 * Number of abandoned tasks left behind in queuedTasks, since they were last swept.
+	 */
+	private final AtomicInteger abandonedCount = new AtomicInteger();
+
+	Bulkhead(String name, int maxConcurrent, int queueQuota, FastThreadExecutor executor) {
+
+		if (maxConcurrent < 1 || queueQuota < 0) {
+			throw new IllegalArgumentException("Invalid Arguments");
+		}
+
+		this.name = name;
+		this.maxConcurrent = maxConcurrent;
+		this.queueQuota = queueQuota;
+		this.executor = executor;
+	}
+
+	/**
+	 * Hands over the task to the executor if the partition is within its cap. Otherwise task is
+	 * queued within the partition.
+	 *
+	 * @throws JobAbortedException	if the partition's queue quota is used up.
+	 */
+	void submit(final TimerFutureTask futureTask) {
+
+		if (tryAcquire()) {
+
+			execute(futureTask);
+			return;
+		}
+
+		if (!reserveQueueSlot()) {
+			throw new JobAbortedException("PoolName-" + executor.getPoolName() + ", Partition quota reached. " + this);
+		}
+
+		pendingTasks.add(futureTask);
+		queuedTasks.add(futureTask);
+
+		// Queued task might be abandoned by the caller, before it's dispatched.
+		futureTask.addCompletionListener(new Runnable() {
+			public void run() {
+				if (pendingTasks.remove(futureTask)) {
+
+					queuedCount.decrementAndGet();
+					if (abandonedCount.incrementAndGet() > queueQuota) {
+						sweep();
+					}
+				}
+			}
+		});
+
+		// Running jobs might have finished, while this task was being queued.
+		dispatch();
+	}
+
+	/**
+	 * Job of this partition has finished executing.
+	 */
+	void release() {
+
+		activeCount.decrementAndGet();
+		dispatch();
+	}
+
+	/**
+	 * Hands over the queued tasks to the executor, as long as the partition is within its cap.
+	 */
+	private void dispatch() {
+
+		while (!queuedTasks.isEmpty() && tryAcquire()) {
+
+			TimerFutureTask futureTask = queuedTasks.poll();
+			if (futureTask == null) {
+
+				activeCount.decrementAndGet();
+				continue;
+			}
+
+			if (!pendingTasks.remove(futureTask)) {
+
+				// Abandoned while it was queued, already accounted for.
+				activeCount.decrementAndGet();
+				continue;
+			}
+
+			queuedCount.decrementAndGet();
+			if (futureTask.isDone()) {
+
+				activeCount.decrementAndGet();
+				continue;
+			}
+
+			try {
+				execute(futureTask);
+			} catch (Throwable t) {
+
+				s_logger.error("Job failed to execute: " + ExceptionUtil.getDetails(t));
+				executor.recordRejected();
+				futureTask.setException(t);
+			}
+		}
+	}
+
+	/**
+	 * Drops the abandoned tasks from the partition's queue. Invoked once they outnumber the queue
+	 * quota, so that the queue doesn't grow while the running jobs of the partition are stuck.
+	 */
+	private void sweep() {
+
+		abandonedCount.set(0);
+		for (Iterator<TimerFutureTask> iterator = queuedTasks.iterator(); iterator.hasNext();) {
+
+			if (!pendingTasks.contains(iterator.next())) {
+				iterator.remove();
+			}
+		}
+	}
+
+	/**
+	 * Must be invoked after acquiring a slot for the task.
+	 */
+	private void execute(TimerFutureTask futureTask) {
+
+		// Slot is returned by the task, once it finishes executing.
+		futureTask.holdSlot(this);
+		try {
+			executor.getExecutorService().execute(futureTask);
+		} catch (RuntimeException e) {
+
+			if (futureTask.releaseSlot() == this) {
+				activeCount.decrementAndGet();
+			}
+			throw e;
+		}
+	}
+
+	private boolean tryAcquire() {
+
+		while (true) {
+
+			int current = activeCount.get();
+			if (current >= maxConcurrent) {
+				return false;
+			}
+
+			if (activeCount.compareAndSet(current, current + 1)) {
+				return true;
+			}
+		}
+	}
+
+	private boolean reserveQueueSlot() {
+
+		while (true) {
+
+			int current = queuedCount.get();
+			if (current >= queueQuota) {
+				return false;
+			}
+
+			if (queuedCount.compareAndSet(current, current + 1)) {
+				return true;
+			}
+		}
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public int getMaxConcurrent() {
+		return maxConcurrent;
+	}
+
+	public int getQueueQuota() {
+		return queueQuota;
+	}
+
+	/**
+	 * @return	number of jobs of this partition, which are handed over to the executor.
+	 */
+	public int getActiveCount() {
+		return activeCount.get();
+	}
+
+	/**
+	 * @return	number of jobs waiting in the partition's queue.
+	 */
+	public int getQueuedCount() {
+		return queuedCount.get();
+	}
+
+	@Override
+	public String toString() {
+		return "Partition-" + name + ", MaxConcurrent-" + maxConcurrent + ", Active-" + activeCount.get()
+				+ ", QueueQuota-" + queueQuota + ", Queued-" + queuedCount.get();
+	}
+}
@@ -0,0 +1,244 @@
+/*
+ * Copyright [2015] [Tier1app LLC]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package io.allset.fastthread;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Stops sending jobs to a downstream dependency that is failing, so that callers don't wait for the
+ * full timeout period & worker threads aren't tied up, only to learn that the dependency is down.
+ * Refer {@link FastThreadExecutor#addCircuitBreaker(String, int, double, long)}.
+ *
+ * <ul>
+ *  <li>CLOSED - jobs are executed. Outcome of every windowSize jobs is evaluated: if the share of
+ *      jobs which timed out or failed with an exception reaches the failure rate threshold, circuit opens.</li>
+ *  <li>OPEN - jobs are rejected right away with {@link CircuitBreakerOpenException}. After the open
+ *      period, circuit half-opens.</li>
+ *  <li>HALF_OPEN - one job at a time is let through as a probe. If it succeeds, circuit closes.
+ *      If it fails, circuit opens again.</li>
+ * </ul>
+ *
+ * Job is counted as failed as soon as the caller times out on it, without waiting for it to return.
+ *
+ * @author Ram Lakshmanan
+ */
+public class CircuitBreaker {
+
+	public enum State {
+		CLOSED, OPEN, HALF_OPEN
+	}
+
+	static final int REJECTED = 0;
+
+	static final int PERMITTED = 1;
+
+	static final int PROBE = 2;
+
+	private final String name;
+
+	private final int windowSize;
+
+	private final double failureRateThreshold;
+
+	private final long openPeriod;
+
+	private final AtomicReference<State> state = new AtomicReference<State>(State.CLOSED);
+
+	private volatile long openedAt;
+
+	/**
+	 * Outcomes of the jobs in the current window. Replaced (instead of being reset) once the window
+	 * is full, so that no outcome recorded concurrently is lost.
+	 */
+	private final AtomicReference<Window> window = new AtomicReference<Window>(new Window());
+
+	private final AtomicBoolean probeInFlight = new AtomicBoolean();
+
+	/**
+	 * @param name
+	 * @param windowSize			Number of jobs whose outcome is evaluated together.
+	 * @param failureRateThreshold	Share (between 0 & 1) of failed jobs at which circuit opens.
+	 * @param openPeriod			Period in milliseconds, for which circuit stays open before probing.
+	 */
+	public CircuitBreaker(String name, int windowSize, double failureRateThreshold, long openPeriod) {
+
+		if (windowSize < 1 ||
+			failureRateThreshold <= 0 ||
+			failureRateThreshold > 1 ||
+			openPeriod < 0) {
+
+			throw new IllegalArgumentException("Invalid Arguments");
+		}
+
+		this.name = name;
+		this.windowSize = windowSize;
+		this.failureRateThreshold = failureRateThreshold;
+		this.openPeriod = TimeUnit.MILLISECONDS.toNanos(openPeriod);
+	}
+
+	/**
+	 * @return	REJECTED if the job shouldn't be executed. PROBE if the job is the probe of
+	 * 			a half-open circuit. PERMITTED otherwise.
+	 */
+	int acquire() {
+
+		while (true) {
+
+			State currentState = state.get();
+			if (currentState == State.CLOSED) {
+				return PERMITTED;
+			}
+
+			if (currentState == State.OPEN) {
+
+				if (System.nanoTime() - openedAt < openPeriod) {
+					return REJECTED;
+				}
+
+				state.compareAndSet(State.OPEN, State.HALF_OPEN);
+				continue;
+			}
+
+			return probeInFlight.compareAndSet(false, true) ? PROBE : REJECTED;
+		}
+	}
+
+	/**
+	 * Records the outcome of a job, which was let through by {@link #acquire()}.
+	 */
+	void release(int permit, boolean success) {
+
+		if (permit == PROBE) {
+
+			if (success) {
+
+				window.set(new Window());
+				state.compareAndSet(State.HALF_OPEN, State.CLOSED);
+				probeInFlight.set(false);
+			} else {
+
+				trip(State.HALF_OPEN);
+			}
+			return;
+		}
+
+		// Outcomes of jobs, which were let through before the circuit opened, are ignored.
+		if (state.get() != State.CLOSED) {
+			return;
+		}
+
+		while (true) {
+
+			Window currentWindow = window.get();
+			long counts = currentWindow.record(success);
+			int calls = Window.getCalls(counts);
+			if (calls < windowSize) {
+				return;
+			}
+
+			// Window is full: outcome recorded after that is moved in to the next window.
+			window.compareAndSet(currentWindow, new Window());
+			if (calls > windowSize) {
+				continue;
+			}
+
+			// Whoever completes the window evaluates it.
+			if (Window.getFailures(counts) >= failureRateThreshold * calls) {
+				trip(State.CLOSED);
+			}
+			return;
+		}
+	}
+
+	/**
+	 * Job, which was let through, has been abandoned for reasons that say nothing about the health
+	 * of the dependency (e.g. job was rejected by the executor or cancelled by the caller).
+	 */
+	void ignore(int permit) {
+
+		if (permit == PROBE) {
+			probeInFlight.set(false);
+		}
+	}
+
+	private void trip(State fromState) {
+
+		openedAt = System.nanoTime();
+		if (state.compareAndSet(fromState, State.OPEN)) {
+			probeInFlight.set(false);
+		}
+	}
+
+	/**
+	 * Closes the circuit & forgets the outcomes recorded so far.
+	 */
+	public void reset() {
+
+		window.set(new Window());
+		state.set(State.CLOSED);
+		probeInFlight.set(false);
+	}
+
+	public State getState() {
+		return state.get();
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	@Override
+	public String toString() {
+
+		long counts = window.get().getCounts();
+		return "CircuitBreaker-" + name + ", State-" + state.get() + ", Calls-" + Window.getCalls(counts)
+				+ ", Failures-" + Window.getFailures(counts);
+	}
+
+	/**
+	 * Outcomes of a window of jobs. Calls & failures are packed in to one long, so that both are
+	 * counted by one atomic update & the evaluator sees them consistent with each other.
+	 */
+	private static final class Window {
+
+		private static final long CALL = 1L << 32;
+
+		private final AtomicLong counts = new AtomicLong();
+
+		/**
+		 * @return	counts, after recording the outcome.
+		 */
+		long record(boolean success) {
+			return counts.addAndGet(success ? CALL : CALL + 1);
+		}
+
+		long getCounts() {
+			return counts.get();
+		}
+
+		static int getCalls(long counts) {
+			return (int)(counts >>> 32);
+		}
+
+		static int getFailures(long counts) {
+			return (int)counts;
+		}
+	}
+}
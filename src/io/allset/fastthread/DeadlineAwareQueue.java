@@ -0,0 +1,473 @@
+/*
+ * Copyright [2015] [Tier1app LLC]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package io.allset.fastthread;
+
+import java.util.AbstractQueue;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Bounded queue, which hands out the tasks in the order of their scheduling key, rather than
+ * in FIFO order. Scheduling key of a task is its deadline, pushed back by an offset for each level
+ * of priority below {@link JobPriority#INTERACTIVE}:
+ *
+ * <pre>
+ *   scheduling key = creation time + timeout + (priority level * priority offset)
+ * </pre>
+ *
+ * Thus:
+ * <ul>
+ *  <li>Among the jobs of same priority, one with the earliest deadline is executed first.</li>
+ *  <li>Interactive jobs are executed ahead of the background jobs, which arrived less than
+ *      2 * priority offset earlier.</li>
+ *  <li>No job starves: key of a task doesn't change while it waits, whereas keys of the newly arriving
+ *      tasks keep increasing with time. So a background job waits at most its timeout plus
+ *      2 * priority offset, even when interactive jobs keep arriving.</li>
+ * </ul>
+ *
+ * Tasks whose caller hasn't specified a timeout are scheduled as if their timeout is the default
+ * timeout period.
+ *
+ * @author Ram Lakshmanan
+ */
+public class DeadlineAwareQueue extends AbstractQueue<Runnable> implements BlockingQueue<Runnable> {
+
+	public static final long DEFAULT_PRIORITY_OFFSET = 1000;
+
+	public static final long DEFAULT_TIMEOUT_PERIOD = 10000;
+
+	private static final Comparator<Entry> SCHEDULING_ORDER = new Comparator<Entry>() {
+		public int compare(Entry entry1, Entry entry2) {
+
+			// nanoTime based keys can overflow, so they are compared through their difference.
+			long difference = entry1.schedulingKey - entry2.schedulingKey;
+			if (difference != 0) {
+				return difference < 0 ? -1 : 1;
+			}
+
+			// Tasks with same key are handed out in FIFO order.
+			return entry1.sequence < entry2.sequence ? -1 : 1;
+		}
+	};
+
+	private final int capacity;
+
+	private final PriorityQueue<Entry> entries;
+
+	private final ReentrantLock lock = new ReentrantLock();
+
+	private final Condition notEmpty = lock.newCondition();
+
+	private final Condition notFull = lock.newCondition();
+
+	/**
+	 * Guarded by lock.
+	 */
+	private long sequence;
+
+	private volatile long priorityOffset = TimeUnit.MILLISECONDS.toNanos(DEFAULT_PRIORITY_OFFSET);
+
+	private volatile long defaultTimeOutPeriod = TimeUnit.MILLISECONDS.toNanos(DEFAULT_TIMEOUT_PERIOD);
+
+	public DeadlineAwareQueue(int capacity) {
+
+		if (capacity < 1) {
+			throw new IllegalArgumentException("Invalid Arguments");
+		}
+
+		this.capacity = capacity;
+		this.entries = new PriorityQueue<Entry>(Math.min(capacity, 1024), SCHEDULING_ORDER);
+	}
+
+	/**
+	 * @param priorityOffset	Period in milliseconds by which deadline of a job is pushed back, for
+	 * 							each level of priority below {@link JobPriority#INTERACTIVE}.
+	 */
+	public void setPriorityOffset(long priorityOffset) {
+		this.priorityOffset = TimeUnit.MILLISECONDS.toNanos(priorityOffset);
+	}
+
+	public long getPriorityOffset() {
+		return TimeUnit.NANOSECONDS.toMillis(priorityOffset);
+	}
+
+	/**
+	 * @param defaultTimeOutPeriod	Period in milliseconds, used as the timeout of jobs whose caller
+	 * 								hasn't specified one.
+	 */
+	public void setDefaultTimeOutPeriod(long defaultTimeOutPeriod) {
+		this.defaultTimeOutPeriod = TimeUnit.MILLISECONDS.toNanos(defaultTimeOutPeriod);
+	}
+
+	public long getDefaultTimeOutPeriod() {
+		return TimeUnit.NANOSECONDS.toMillis(defaultTimeOutPeriod);
+	}
+
+	long getSchedulingKey(Runnable task) {
+
+		long deadline;
+		JobPriority priority = null;
+
+		if (task instanceof TimerFutureTask) {
+
+			TimerFutureTask futureTask = (TimerFutureTask)task;
+			deadline = futureTask.hasDeadline() ? futureTask.getDeadline() : futureTask.getStartNanoTime() + defaultTimeOutPeriod;
+			priority = futureTask.getJob().getPriority();
+		} else {
+
+			deadline = System.nanoTime() + defaultTimeOutPeriod;
+		}
+
+		if (priority == null) {
+			priority = JobPriority.NORMAL;
+		}
+
+		return deadline + priority.ordinal() * priorityOffset;
+	}
+
+	public boolean offer(Runnable task) {
+
+		if (task == null) {
+			throw new NullPointerException();
+		}
+
+		long schedulingKey = getSchedulingKey(task);
+
+		lock.lock();
+		try {
+
+			if (entries.size() >= capacity) {
+				return false;
+			}
+
+			enqueue(task, schedulingKey);
+			return true;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	public boolean offer(Runnable task, long timeout, TimeUnit unit) throws InterruptedException {
+
+		if (task == null) {
+			throw new NullPointerException();
+		}
+
+		long schedulingKey = getSchedulingKey(task);
+		long remainingTime = unit.toNanos(timeout);
+
+		lock.lockInterruptibly();
+		try {
+
+			while (entries.size() >= capacity) {
+
+				if (remainingTime <= 0) {
+					return false;
+				}
+				remainingTime = notFull.awaitNanos(remainingTime);
+			}
+
+			enqueue(task, schedulingKey);
+			return true;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	public void put(Runnable task) throws InterruptedException {
+
+		if (task == null) {
+			throw new NullPointerException();
+		}
+
+		long schedulingKey = getSchedulingKey(task);
+
+		lock.lockInterruptibly();
+		try {
+
+			while (entries.size() >= capacity) {
+				notFull.await();
+			}
+
+			enqueue(task, schedulingKey);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	private void enqueue(Runnable task, long schedulingKey) {
+
+		entries.add(new Entry(task, schedulingKey, sequence++));
+		notEmpty.signal();
+	}
+
+	/**
+	 * Must be invoked holding the lock.
+	 */
+	private Runnable dequeue() {
+
+		Entry entry = entries.poll();
+		if (entry == null) {
+			return null;
+		}
+
+		notFull.signal();
+		return entry.task;
+	}
+
+	public Runnable poll() {
+
+		lock.lock();
+		try {
+			return dequeue();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	public Runnable poll(long timeout, TimeUnit unit) throws InterruptedException {
+
+		long remainingTime = unit.toNanos(timeout);
+
+		lock.lockInterruptibly();
+		try {
+
+			while (entries.isEmpty()) {
+
+				if (remainingTime <= 0) {
+					return null;
+				}
+				remainingTime = notEmpty.awaitNanos(remainingTime);
+			}
+
+			return dequeue();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	public Runnable take() throws InterruptedException {
+
+		lock.lockInterruptibly();
+		try {
+
+			while (entries.isEmpty()) {
+				notEmpty.await();
+			}
+
+			return dequeue();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	public Runnable peek() {
+
+		lock.lock();
+		try {
+			Entry entry = entries.peek();
+			return entry == null ? null : entry.task;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	public int size() {
+
+		lock.lock();
+		try {
+			return entries.size();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	public int remainingCapacity() {
+
+		lock.lock();
+		try {
+			return capacity - entries.size();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public boolean remove(Object task) {
+
+		lock.lock();
+		try {
+
+			Iterator<Entry> iterator = entries.iterator();
+			while (iterator.hasNext()) {
+
+				if (iterator.next().task.equals(task)) {
+
+					iterator.remove();
+					notFull.signal();
+					return true;
+				}
+			}
+
+			return false;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Removes all the tasks in one pass over the queue.
+	 */
+	@Override
+	public boolean removeAll(Collection<?> tasks) {
+
+		lock.lock();
+		try {
+
+			boolean removed = false;
+			Iterator<Entry> iterator = entries.iterator();
+			while (iterator.hasNext()) {
+
+				if (tasks.contains(iterator.next().task)) {
+
+					iterator.remove();
+					removed = true;
+				}
+			}
+
+			if (removed) {
+				notFull.signalAll();
+			}
+			return removed;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public void clear() {
+
+		lock.lock();
+		try {
+			entries.clear();
+			notFull.signalAll();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	public int drainTo(Collection<? super Runnable> collection) {
+
+		return drainTo(collection, Integer.MAX_VALUE);
+	}
+
+	public int drainTo(Collection<? super Runnable> collection, int maxElements) {
+
+		if (collection == this) {
+			throw new IllegalArgumentException();
+		}
+
+		lock.lock();
+		try {
+
+			int count = 0;
+			while (count < maxElements && !entries.isEmpty()) {
+
+				collection.add(dequeue());
+				++count;
+			}
+
+			return count;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * @return	iterator over a snapshot of the queue, in no particular order.
+	 */
+	@Override
+	public Iterator<Runnable> iterator() {
+
+		final List<Runnable> snapshot;
+
+		lock.lock();
+		try {
+
+			snapshot = new ArrayList<Runnable>(entries.size());
+			for (Entry entry : entries) {
+				snapshot.add(entry.task);
+			}
+		} finally {
+			lock.unlock();
+		}
+
+		return new Iterator<Runnable>() {
+
+			private int index;
+
+			private Runnable lastReturned;
+
+			public boolean hasNext() {
+				return index < snapshot.size();
+			}
+
+			public Runnable next() {
+
+				if (!hasNext()) {
+					throw new NoSuchElementException();
+				}
+				lastReturned = snapshot.get(index++);
+				return lastReturned;
+			}
+
+			public void remove() {
+
+				if (lastReturned == null) {
+					throw new IllegalStateException();
+				}
+				DeadlineAwareQueue.this.remove(lastReturned);
+				lastReturned = null;
+			}
+		};
+	}
+
+	private static final class Entry {
+
+		private final Runnable task;
+
+		private final long schedulingKey;
+
+		private final long sequence;
+
+		Entry(Runnable task, long schedulingKey, long sequence) {
+
+			this.task = task;
+			this.schedulingKey = schedulingKey;
+			this.sequence = sequence;
+		}
+	}
+}
@@ -0,0 +1,277 @@
+/*
+ * Copyright [2015] [Tier1app LLC]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package io.allset.fastthread;
+
+import java.lang.management.ManagementFactory;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.ObjectName;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import io.allset.util.ExceptionUtil;
+
+/**
+ * Metrics of a {@link FastThreadExecutor} pool. Executors with same pool name share one instance.
+ * Metrics can be pulled through {@link #getMetrics(String)} or {@link FastThreadExecutor#getMetrics()},
+ * and are also exposed as an MBean named "io.allset.fastthread:type=FastThreadExecutor,name=&lt;poolName&gt;".
+ *
+ * Time a job spends waiting in the queue and time it spends executing are recorded in separate
+ * histograms, so that a saturated pool can be told apart from a slow dependency. Each job ends up
+ * in exactly one of the outcome counters:
+ *
+ * <ul>
+ *  <li>completed - executed before the caller timed out.</li>
+ *  <li>timed out - caller timed out (or deadline expired) while the job was executing.</li>
+ *  <li>aborted before run - caller timed out while the job was waiting in the queue, so it was never executed.</li>
+ *  <li>rejected - job was turned away, because the queue was full or concurrency limit was reached.</li>
+ * </ul>
+ *
+ * All the recording is lock-free & allocation-free.
+ *
+ * @author Ram Lakshmanan
+ */
+public class ExecutorMetrics implements ExecutorMetricsMBean {
+
+	private static final Logger s_logger = LogManager.getLogger(ExecutorMetrics.class);
+
+	private static final ConcurrentMap<String, ExecutorMetrics> s_registry = new ConcurrentHashMap<String, ExecutorMetrics>();
+
+	private final String poolName;
+
+	private final LongAdder completedCount = new LongAdder();
+
+	private final LongAdder timedOutCount = new LongAdder();
+
+	private final LongAdder abortedBeforeRunCount = new LongAdder();
+
+	private final LongAdder rejectedCount = new LongAdder();
+
+	private final LongAdder activeCount = new LongAdder();
+
+	private final LongAdder queueDepth = new LongAdder();
+
+	/**
+	 * Time (in micro seconds) from submission of the job till a worker thread picked it up.
+	 */
+	private final LatencyHistogram queueWaitTime = new LatencyHistogram();
+
+	/**
+	 * Time (in micro seconds) taken by worker thread to execute the job.
+	 */
+	private final LatencyHistogram runTime = new LatencyHistogram();
+
+	ExecutorMetrics(String poolName) {
+		this.poolName = poolName;
+	}
+
+	/**
+	 * @return	metrics of the pool. null if there is no executor with this pool name.
+	 */
+	public static ExecutorMetrics getMetrics(String poolName) {
+
+		return s_registry.get(poolName);
+	}
+
+	/**
+	 * @return	names of all the pools for which metrics are recorded.
+	 */
+	public static Set<String> getPoolNames() {
+
+		return Collections.unmodifiableSet(s_registry.keySet());
+	}
+
+	/**
+	 * Returns metrics of the pool, creating & registering it with the platform MBean server
+	 * if it doesn't exist.
+	 */
+	static ExecutorMetrics register(String poolName) {
+
+		ExecutorMetrics metrics = s_registry.get(poolName);
+		if (metrics != null) {
+			return metrics;
+		}
+
+		ExecutorMetrics newMetrics = new ExecutorMetrics(poolName);
+		metrics = s_registry.putIfAbsent(poolName, newMetrics);
+		if (metrics != null) {
+			return metrics;
+		}
+
+		try {
+
+			ManagementFactory.getPlatformMBeanServer().registerMBean(newMetrics, newMetrics.getObjectName());
+		} catch (Exception e) {
+
+			// Metrics are still available through the pull API.
+			s_logger.error("Failed to register MBean for pool " + poolName + ": " + ExceptionUtil.getDetails(e));
+		}
+
+		return newMetrics;
+	}
+
+	public ObjectName getObjectName() throws Exception {
+
+		return new ObjectName("io.allset.fastthread:type=FastThreadExecutor,name=" + ObjectName.quote(poolName));
+	}
+
+	void recordSubmitted() {
+		queueDepth.increment();
+	}
+
+	/**
+	 * Job couldn't be handed over to the underlying Executor.
+	 *
+	 * @param queued	true if job has already been counted as queued.
+	 */
+	void recordRejected(boolean queued) {
+
+		if (queued) {
+			queueDepth.decrement();
+		}
+		rejectedCount.increment();
+	}
+
+	void recordAbortedBeforeRun() {
+
+		queueDepth.decrement();
+		abortedBeforeRunCount.increment();
+	}
+
+	/**
+	 * @param queueWaitNanos	time spent by the job in the queue.
+	 */
+	void recordStarted(long queueWaitNanos) {
+
+		queueDepth.decrement();
+		activeCount.increment();
+		queueWaitTime.record(TimeUnit.NANOSECONDS.toMicros(queueWaitNanos));
+	}
+
+	/**
+	 * @param runNanos	time spent by worker thread executing the job.
+	 * @param timedOut	true if the caller timed out while the job was executing.
+	 */
+	void recordFinished(long runNanos, boolean timedOut) {
+
+		activeCount.decrement();
+		runTime.record(TimeUnit.NANOSECONDS.toMicros(runNanos));
+
+		if (timedOut) {
+			timedOutCount.increment();
+		} else {
+			completedCount.increment();
+		}
+	}
+
+	public String getPoolName() {
+		return poolName;
+	}
+
+	public long getCompletedCount() {
+		return completedCount.sum();
+	}
+
+	public long getTimedOutCount() {
+		return timedOutCount.sum();
+	}
+
+	public long getAbortedBeforeRunCount() {
+		return abortedBeforeRunCount.sum();
+	}
+
+	public long getRejectedCount() {
+		return rejectedCount.sum();
+	}
+
+	/**
+	 * @return	number of jobs which are being executed by worker threads right now.
+	 */
+	public long getActiveCount() {
+		return Math.max(0, activeCount.sum());
+	}
+
+	/**
+	 * @return	number of jobs which are waiting in the queue right now.
+	 */
+	public long getQueueDepth() {
+		// Counter can be momentarily off, as it's updated from multiple threads without locking.
+		return Math.max(0, queueDepth.sum());
+	}
+
+	public LatencyHistogram getQueueWaitTime() {
+		return queueWaitTime;
+	}
+
+	public LatencyHistogram getRunTime() {
+		return runTime;
+	}
+
+	public double getQueueWaitMean() {
+		return queueWaitTime.getMean();
+	}
+
+	public long getQueueWait50thPercentile() {
+		return queueWaitTime.getValueAtPercentile(50);
+	}
+
+	public long getQueueWait99thPercentile() {
+		return queueWaitTime.getValueAtPercentile(99);
+	}
+
+	public long getQueueWaitMax() {
+		return queueWaitTime.getMax();
+	}
+
+	public double getRunTimeMean() {
+		return runTime.getMean();
+	}
+
+	public long getRunTime50thPercentile() {
+		return runTime.getValueAtPercentile(50);
+	}
+
+	public long getRunTime99thPercentile() {
+		return runTime.getValueAtPercentile(99);
+	}
+
+	public long getRunTimeMax() {
+		return runTime.getMax();
+	}
+
+	@Override
+	public String toString() {
+
+		return new StringBuilder()
+				.append("PoolName-").append(poolName)
+				.append(", Completed-").append(getCompletedCount())
+				.append(", TimedOut-").append(getTimedOutCount())
+				.append(", AbortedBeforeRun-").append(getAbortedBeforeRunCount())
+				.append(", Rejected-").append(getRejectedCount())
+				.append(", Active-").append(getActiveCount())
+				.append(", QueueDepth-").append(getQueueDepth())
+				.append(", QueueWait[").append(queueWaitTime).append("]")
+				.append(", RunTime[").append(runTime).append("]")
+				.toString();
+	}
+}
@@ -0,0 +1,55 @@
+/*
+ * Copyright [2015] [Tier1app LLC]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package io.allset.fastthread;
+
+/**
+ * JMX view of {@link ExecutorMetrics}. Latencies are in micro seconds.
+ *
+ * @author Ram Lakshmanan
+ */
+public interface ExecutorMetricsMBean {
+
+	String getPoolName();
+
+	long getCompletedCount();
+
+	long getTimedOutCount();
+
+	long getAbortedBeforeRunCount();
+
+	long getRejectedCount();
+
+	long getActiveCount();
+
+	long getQueueDepth();
+
+	double getQueueWaitMean();
+
+	long getQueueWait50thPercentile();
+
+	long getQueueWait99thPercentile();
+
+	long getQueueWaitMax();
+
+	double getRunTimeMean();
+
+	long getRunTime50thPercentile();
+
+	long getRunTime99thPercentile();
+
+	long getRunTimeMax();
+}
@@ -18,18 +18,56 @@ package io.allset.fastthread;
 
 
 import java.util.Collections;
-import java.util.LinkedHashMap;
+import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
 
 /**
  * Thread Local Implementation
  *
+ * Values are held in an immutable map, which is replaced on every update (copy-on-write). Contexts are
+ * typically written by the request thread before the jobs are fired, and read many times by the worker
+ * threads. So reads are lock-free: sibling worker threads reading the same context don't contend with
+ * each other. Writes are serialized through compare-and-set.
+ *
+ * Jobs capture the context of the thread that creates them, based on the {@link CaptureMode}. Threads
+ * without a context don't get one created just for capturing it.
+ *
  * @author Ram Lakshmanan
  */
 public class FastThreadContext {
 
+	/**
+	 * How jobs capture the context of the thread that creates them.
+	 */
+	public enum CaptureMode {
+
+		/**
+		 * Job shares the context with the thread that created it: values put by the worker thread are
+		 * visible to the creating thread and vice versa.
+		 */
+		SHARED,
+
+		/**
+		 * Job gets a snapshot of the context, as of its creation. Capture is O(1), as the snapshot shares
+		 * the immutable map. Values put later, by either side, aren't visible to the other.
+		 */
+		SNAPSHOT,
+
+		/**
+		 * Context isn't propagated to the jobs.
+		 */
+		NONE
+	}
+
 	private static final ThreadLocal<FastThreadContext> threadLocalFastThreadContext = new ThreadLocal<FastThreadContext>();
 
+	@SuppressWarnings("rawtypes")
+	private static final AtomicReferenceFieldUpdater<FastThreadContext, Map> VALUES =
+			AtomicReferenceFieldUpdater.newUpdater(FastThreadContext.class, Map.class, "values");
+
+	private static volatile CaptureMode captureMode = CaptureMode.SHARED;
+
 	public static FastThreadContext getMondeeContext() {
 
 		FastThreadContext MondeeContext = threadLocalFastThreadContext.get();
@@ -41,6 +79,35 @@ public class FastThreadContext {
 		return MondeeContext;
 	}
 
+	/**
+	 * @return	context of the current thread. null if the thread doesn't have one. Unlike
+	 * 			{@link #getMondeeContext()}, context isn't created.
+	 */
+	public static FastThreadContext current() {
+		return threadLocalFastThreadContext.get();
+	}
+
+	/**
+	 * @return	context of the current thread, to be propagated to a job created by it. null if there
+	 * 			is nothing to propagate. Refer {@link #setCaptureMode(CaptureMode)}.
+	 */
+	static FastThreadContext capture() {
+
+		FastThreadContext context = threadLocalFastThreadContext.get();
+		if (context == null) {
+			return null;
+		}
+
+		switch (captureMode) {
+		case SNAPSHOT:
+			return context.snapshot();
+		case NONE:
+			return null;
+		default:
+			return context;
+		}
+	}
+
 	public static void clear() {
 		threadLocalFastThreadContext.set(null);
 	}
@@ -54,18 +121,89 @@ public class FastThreadContext {
 		threadLocalFastThreadContext.set(pMondeeContext);
 	}
 
+	/**
+	 * Sets how jobs, created from now on, capture the context of the thread that creates them.
+	 * Default is {@link CaptureMode#SHARED}.
+	 *
+	 * @param mode
+	 */
+	public static void setCaptureMode(CaptureMode mode) {
+
+		if (mode == null) {
+			throw new IllegalArgumentException("Invalid Arguments");
+		}
+		captureMode = mode;
+	}
+
+	public static CaptureMode getCaptureMode() {
+		return captureMode;
+	}
+
+
+	/**
+	 * Immutable. Replaced as a whole on every update.
+	 */
+	private volatile Map<String, Object> values;
 
-    private final Map<String, Object> map = Collections.synchronizedMap(new LinkedHashMap<String, Object>());
+	public FastThreadContext() {
+		this(Collections.<String, Object>emptyMap());
+	}
+
+	private FastThreadContext(Map<String, Object> values) {
+		this.values = values;
+	}
 
 	public static boolean isMondeeContextPresent() {
 		return threadLocalFastThreadContext.get() != null;
 	}
 
 	public void put(String key, Object value) {
-		map.put(key, value);
+
+		while (true) {
+
+			Map<String, Object> current = values;
+			Map<String, Object> updated = new HashMap<String, Object>(current);
+			updated.put(key, value);
+
+			if (VALUES.compareAndSet(this, current, Collections.unmodifiableMap(updated))) {
+				return;
+			}
+		}
+	}
+
+	public void remove(String key) {
+
+		while (true) {
+
+			Map<String, Object> current = values;
+			if (!current.containsKey(key)) {
+				return;
+			}
+
+			Map<String, Object> updated = new HashMap<String, Object>(current);
+			updated.remove(key);
+
+			if (VALUES.compareAndSet(this, current, Collections.unmodifiableMap(updated))) {
+				return;
+			}
+		}
 	}
 
 	public Object get(String key) {
-		return map.get(key);
+		return values.get(key);
+	}
+
+	/**
+	 * @return	copy of this context, as of now. Copy shares the immutable values, hence it's O(1).
+	 */
+	public FastThreadContext snapshot() {
+		return new FastThreadContext(values);
+	}
+
+	/**
+	 * @return	read-only view of the values, as of now.
+	 */
+	public Map<String, Object> getValues() {
+		return values;
 	}
 }
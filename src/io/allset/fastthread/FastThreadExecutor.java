@@ -21,18 +21,23 @@ import java.util.Collections;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
-import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
-import java.util.concurrent.FutureTask;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
 import java.util.concurrent.RejectedExecutionHandler;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -63,7 +68,9 @@ import io.allset.util.StringUtil;
  * jobs, most of the times even though parent thread has timed out still jobs would get executed. Basically
  * these orphaned jobs would get executed for no purpose (as caller has timed out). In such circumstance
  * compute resources (CPU, memory, network) is wasted in executing these orphaned jobs. Fast Thread Framework has
- * intelligence not to execute these orphaned jobs. Thus saving compute resources.
+ * intelligence not to execute these orphaned jobs. Thus saving compute resources. Orphaned jobs which are still
+ * waiting in the queue are completed as soon as the parent thread times out. They give their slot in the
+ * queue back right away, and are never executed (refer {@link AbandonAwareQueue}).
  *
  * <br/><br/><b>Instant recovery from backlog</b><p/>
  *
@@ -84,6 +91,27 @@ import io.allset.util.StringUtil;
  * might want workers threads to get Parent threads {@link ThreadLocal}. {@link FastThreadContext} is a
  * propagating ThreadLocal between parent threads and worker threads.
  *
+ * <br/><br/><b>Bulkheads</b><p/>
+ *
+ * Worker threads can be partitioned between downstream dependencies (refer {@link #addPartition(String, int, int)}),
+ * so that one slow dependency can't starve the others, without creating a separate pool for each of them.
+ *
+ * <br/><br/><b>Request Coalescing</b><p/>
+ *
+ * Identical jobs (refer {@link Job#getCoalescingKey()}) which are submitted while one of them is in-flight
+ * share its execution. Each caller still gets its own result & timeout. Thus a hot spot, such as the same
+ * lookup from many request threads, results in one downstream call, instead of one per request thread.
+ *
+ * <br/><br/><b>Circuit Breakers</b><p/>
+ *
+ * When a downstream dependency is down, jobs calling it are failed right away (refer
+ * {@link #addCircuitBreaker(String, int, double, long)}), instead of every caller waiting for the full timeout.
+ *
+ * <br/><br/><b>Metrics</b><p/>
+ *
+ * Queue wait time, run time, outcome of jobs, active threads and queue depth are recorded for each
+ * pool. They are available through {@link #getMetrics()} and JMX (refer {@link ExecutorMetrics}).
+ *
  * <br/><br/><b>Graceful Exception Handling</b><p/>
  *
  * @author Ram Lakshmanan
@@ -100,9 +128,49 @@ public class FastThreadExecutor {
 	 */
 	private final ExecutorService executorService;
 
+	/**
+	 * Name of the pool. Worker threads are named after it.
+	 */
+	private final String poolName;
+
+	/**
+	 * Whether worker threads executing timed out jobs should be interrupted.
+	 */
+	private volatile boolean interruptOnTimeout;
+
+	/**
+	 * Limits the number of in-flight jobs. null if jobs aren't limited.
+	 */
+	private volatile AdaptiveConcurrencyLimiter concurrencyLimiter;
+
+	/**
+	 * Metrics of the pool. null if the executor isn't named.
+	 */
+	private final ExecutorMetrics metrics;
+
+	/**
+	 * Bulkhead partitions of the worker threads, keyed by partition name.
+	 */
+	private final ConcurrentMap<String, Bulkhead> partitions = new ConcurrentHashMap<String, Bulkhead>();
+
+	/**
+	 * Circuit breakers, keyed by partition name or by class name of the job.
+	 */
+	private final ConcurrentMap<String, CircuitBreaker> circuitBreakers = new ConcurrentHashMap<String, CircuitBreaker>();
+
+	/**
+	 * Policy for hedging slow jobs. null if jobs aren't hedged.
+	 */
+	private volatile HedgePolicy hedgePolicy;
+
+	/**
+	 * In-flight executions, which identical jobs can join, keyed by coalescing key.
+	 */
+	private final ConcurrentMap<Object, SingleFlight> flights = new ConcurrentHashMap<Object, SingleFlight>();
+
 	public FastThreadExecutor(String poolName) {
 
-		this.executorService = Executors.newCachedThreadPool(new NamedThreadFactory(poolName));
+		this(poolName, Executors.newCachedThreadPool(new NamedThreadFactory(poolName)));
 	}
 
 	/**
@@ -135,9 +203,11 @@ public class FastThreadExecutor {
 			throw new IllegalArgumentException("Invalid Arguments");
 		}
 
+		this.poolName = poolName;
+		this.metrics = ExecutorMetrics.register(poolName);
 		this.executorService = new ThreadPoolExecutor(minThreads, maxThreads,
 					   60L, TimeUnit.SECONDS,
-					   new ArrayBlockingQueue<Runnable>(queueCapacity),
+					   createWorkQueue(queueCapacity),
 					   tf,
 					   getRejectionHandler(poolName, queueCapacity));
 
@@ -152,9 +222,92 @@ public class FastThreadExecutor {
 		if(executor==null) {
 			throw new IllegalArgumentException("pExecutor is null");
 		}
+		this.poolName = null;
+		this.metrics = null;
 		this.executorService = executor;
 	}
 
+	/**
+	 * Uses an externally configured Executor, whose metrics are recorded under the pool name.
+	 *
+	 * @param poolName
+	 * @param executor
+	 */
+	protected FastThreadExecutor(String poolName, ExecutorService executor) {
+		if(executor==null) {
+			throw new IllegalArgumentException("pExecutor is null");
+		}
+		this.poolName = poolName;
+		this.metrics = poolName != null ? ExecutorMetrics.register(poolName) : null;
+		this.executorService = executor;
+	}
+
+	/**
+	 * Creates an Executor which runs each job in a new virtual thread named after the pool.
+	 * Virtual threads are cheap to create and to park. So they suit jobs which spend most of
+	 * their time blocked on webservice API (or database) calls. Timeout, abort & thread local
+	 * propagation semantics are same as the platform thread based executors.
+	 *
+	 * Virtual thread support is detected at run-time. On JVMs which don't support virtual
+	 * threads, an Executor backed by cached pool of platform threads is created.
+	 *
+	 * @param poolName
+	 * @return
+	 */
+	public static FastThreadExecutor newVirtualThreadExecutor(String poolName) {
+
+		if (!StringUtil.isValid(poolName)) {
+			throw new IllegalArgumentException("Invalid Arguments");
+		}
+
+		ExecutorService executor = VirtualThreadSupport.newExecutor(poolName);
+		if (executor == null) {
+
+			s_logger.info("Virtual threads aren't supported by this JVM. Pool " + poolName + " will use platform threads.");
+			return new FastThreadExecutor(poolName);
+		}
+
+		return new FastThreadExecutor(poolName, executor);
+	}
+
+	/**
+	 * Creates an Executor backed by a work-stealing {@link ForkJoinPool}. Each worker thread has its own
+	 * queue, so jobs which fan out in to child jobs (refer {@link SplittableJob}) don't contend on a single
+	 * queue, and a parent waiting for its children executes them instead of blocking a worker thread.
+	 * Timeout, abort & thread local propagation semantics are same as the other executors.
+	 *
+	 * @param poolName
+	 * @param parallelism	Number of worker threads.
+	 * @return
+	 */
+	public static FastThreadExecutor newForkJoinExecutor(final String poolName, int parallelism) {
+
+		if (parallelism < 1 || !StringUtil.isValid(poolName)) {
+			throw new IllegalArgumentException("Invalid Arguments");
+		}
+
+		final AtomicInteger threadNumber = new AtomicInteger(1);
+		ForkJoinPool.ForkJoinWorkerThreadFactory threadFactory = new ForkJoinPool.ForkJoinWorkerThreadFactory() {
+			public ForkJoinWorkerThread newThread(ForkJoinPool pool) {
+
+				ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+				thread.setName(poolName + "-" + threadNumber.getAndIncrement());
+				return thread;
+			}
+		};
+
+		// LIFO processing of local queues, so that recursive fan-outs are processed depth first.
+		return new FastThreadExecutor(poolName, new ForkJoinPool(parallelism, threadFactory, null, false));
+	}
+
+	/**
+	 * @return	true if the JVM supports virtual threads.
+	 */
+	public static boolean isVirtualThreadSupported() {
+
+		return VirtualThreadSupport.isAvailable();
+	}
+
 	/**
 	 * Executes a list of Jobs.
 	 *
@@ -182,6 +335,19 @@ public class FastThreadExecutor {
         dropJobsToExecutor(callables);
     }
 
+    /**
+     * Executes a list of Jobs without waiting for their results. Jobs that fail to complete
+     * within timeOutPeriod are cancelled, even though no one is waiting for their results.
+     *
+     * @param callables
+     * @param timeOutPeriod		Period in milliseconds
+     */
+    public void executeJobsNoWait(List<Job> callables, long timeOutPeriod) {
+
+        // Drop all the Jobs in to the Executor.
+        dropJobsToExecutor(callables, timeOutPeriod);
+    }
+
 	/**
 	 * Executes a single job.
 	 *
@@ -194,12 +360,16 @@ public class FastThreadExecutor {
 			throw new IllegalArgumentException("Callable Job is empty!");
 		}
 
-		List<Job> requests = new ArrayList<Job>();
-		requests.add(job);
-
-		// Invoke the Polymorphic API and return the result.
-		List<JobResult> results = executeJobs(requests);
-		return results.get(0);
+		// Single job doesn't need the list wrapping of executeJobs().
+		TimerFutureTask futureTask = submit(job, -1);
+		try {
+			return new JobResult(futureTask.get());
+		} catch(ExecutionException lException) {
+			// Reports abandonment of the job as TimeoutException.
+			return getResult(futureTask);
+		} catch(Exception lException) {
+			return new JobResult(lException);
+		}
 	}
 
 	/**
@@ -224,11 +394,122 @@ public class FastThreadExecutor {
 	public List<JobResult> executeJobs(List<? extends Job> jobs, long timeOutPeriod) {
 
 		// Drop all the Jobs in to the Executor.
-		List<TimerFutureTask> futureResults = dropJobsToExecutor(jobs);
+		List<TimerFutureTask> futureResults = submitJobs(jobs, timeOutPeriod);
+
+		HedgePolicy policy = this.hedgePolicy;
+		if (policy != null) {
+			return getHedgedResults(jobs, futureResults, timeOutPeriod, policy);
+		}
 
 		return getResults(futureResults, timeOutPeriod);
 	}
 
+	/**
+	 * Executes a list of Jobs within a specified period of time and hands out the results as
+	 * and when jobs complete.
+	 *
+	 * Unlike {@link #executeJobs(List, long)}, results are not returned in the order in which
+	 * jobs are submitted. Result of each job is made available through the returned stream as soon
+	 * as the job completes, so one slow job doesn't hold back results of other jobs. Position of
+	 * the job in the submitted list is available through {@link JobResult#getJobIndex()}.
+	 * TimeoutException is returned for jobs that fail to complete within the specified time.
+	 *
+	 * @param jobs            		List of jobs that needs to be executed.
+	 * @param timeOutPeriod        	Period in milliseconds, upto which results are waited for.
+	 * @return                      stream of results in the order of completion of jobs.
+	 */
+	public JobResultStream streamJobs(List<? extends Job> jobs, long timeOutPeriod) {
+
+		// Drop all the Jobs in to the Executor.
+		List<TimerFutureTask> futureResults = submitJobs(jobs, timeOutPeriod);
+
+		return streamResults(futureResults, timeOutPeriod);
+	}
+
+	/**
+	 * Executes a list of Jobs and hands out the results as and when jobs complete. Stream
+	 * waits for the results of the jobs indefinitely.
+	 *
+	 * @param jobs
+	 * @return	stream of results in the order of completion of jobs.
+	 */
+	public JobResultStream streamJobs(List<? extends Job> jobs) {
+
+		// Drop all the Jobs in to the Executor.
+		List<TimerFutureTask> futureResults = dropJobsToExecutor(jobs);
+
+		return new JobResultStream(this, futureResults, -1);
+	}
+
+	/**
+	 * Hands out results of the already dropped jobs as and when they complete.
+	 *
+	 * @param futureResults
+	 * @param timeOutPeriod		Period in milliseconds
+	 * @return	stream of results in the order of completion of jobs.
+	 */
+	public JobResultStream streamResults(List<TimerFutureTask> futureResults, long timeOutPeriod) {
+
+		if (futureResults == null || futureResults.size() == 0) {
+			throw new IllegalArgumentException("Future Results is empty!");
+		}
+
+		return new JobResultStream(this, futureResults, timeOutPeriod);
+	}
+
+	/**
+	 * Executes a job within a specified period of time, without blocking the caller. Job is cancelled
+	 * once timeOutPeriod elapses, irrespective of whether any stage is waiting for its result.
+	 *
+	 * @param job
+	 * @param timeOutPeriod		Period in milliseconds
+	 * @return	future which completes with the result of the job. Refer {@link JobFuture}.
+	 */
+	public JobFuture<JobResult> executeJobAsync(Job job, long timeOutPeriod) {
+
+		TimerFutureTask futureTask = dropJobToExecutor(job, timeOutPeriod);
+		return JobFuture.forTask(this, futureTask, timeOutPeriod);
+	}
+
+	/**
+	 * Executes a job without blocking the caller. There is no timeout on the job.
+	 *
+	 * @param job
+	 * @return	future which completes with the result of the job. Refer {@link JobFuture}.
+	 */
+	public JobFuture<JobResult> executeJobAsync(Job job) {
+
+		TimerFutureTask futureTask = dropJobToExecutor(job);
+		return JobFuture.forTask(this, futureTask, -1);
+	}
+
+	/**
+	 * Executes a list of Jobs within a specified period of time, without blocking the caller.
+	 *
+	 * @param jobs
+	 * @param timeOutPeriod		Period in milliseconds
+	 * @return	future which completes once all the jobs complete (or time out), with the results in the
+	 * 			same order as the jobs. Refer {@link JobFuture}.
+	 */
+	public JobFuture<List<JobResult>> executeJobsAsync(List<? extends Job> jobs, long timeOutPeriod) {
+
+		List<TimerFutureTask> futureResults = dropJobsToExecutor(jobs, timeOutPeriod);
+		return JobFuture.forTasks(this, futureResults, timeOutPeriod);
+	}
+
+	/**
+	 * Executes a list of Jobs without blocking the caller. There is no timeout on the jobs.
+	 *
+	 * @param jobs
+	 * @return	future which completes once all the jobs complete, with the results in the
+	 * 			same order as the jobs. Refer {@link JobFuture}.
+	 */
+	public JobFuture<List<JobResult>> executeJobsAsync(List<? extends Job> jobs) {
+
+		List<TimerFutureTask> futureResults = dropJobsToExecutor(jobs);
+		return JobFuture.forTasks(this, futureResults, -1);
+	}
+
 	/**
 	 * Executes a job within a specified period of time.
 	 *
@@ -241,12 +522,12 @@ public class FastThreadExecutor {
 			throw new IllegalArgumentException("Callable Job is empty!");
 		}
 
-		List<Job> requests = new ArrayList<Job>();
-		requests.add(job);
+		if (hedgePolicy != null) {
+			return executeJobs(Collections.singletonList(job), timeoutPeriod).get(0);
+		}
 
-		// Invoke the Polymorphic API and return the result.
-		List<JobResult> results = executeJobs(requests, timeoutPeriod);
-		return results.get(0);
+		// Single job doesn't need the list wrapping & the latch of executeJobs().
+		return awaitResult(submit(job, timeoutPeriod), timeoutPeriod);
 	}
 
 	public TimerFutureTask dropJobToExecutor(Job job) {
@@ -255,13 +536,48 @@ public class FastThreadExecutor {
 			throw new IllegalArgumentException("Callable Job is empty!");
 		}
 
-		List<Job> requests = new ArrayList<Job>();
-		requests.add(job);
+		return submit(job, -1);
+	}
+
+
+	/**
+	 * Drops the Job in to the Executor. Job is cancelled once timeOutPeriod elapses,
+	 * irrespective of whether any caller is waiting for its result.
+	 *
+	 * @param job
+	 * @param timeOutPeriod		Period in milliseconds
+	 * @return	future result on which client thread can wait.
+	 */
+	public TimerFutureTask dropJobToExecutor(Job job, long timeOutPeriod) {
 
-		// Invoke the Polymorphic API and return the result.
-		return dropJobsToExecutor(requests).get(0);
+		if (job == null) {
+			throw new IllegalArgumentException("Callable Job is empty!");
+		}
+
+		TimerFutureTask futureTask = submit(job, timeOutPeriod);
+		futureTask.scheduleExpiry(timeOutPeriod);
+		return futureTask;
 	}
 
+	/**
+	 * Drops all the Jobs in to the Executor. Jobs are cancelled once timeOutPeriod elapses,
+	 * irrespective of whether any caller is waiting for their results. Deadlines are
+	 * enforced by a shared timer, so fire-and-forget jobs don't pile up when downstream
+	 * systems slow down.
+	 *
+	 * @param jobs
+	 * @param timeOutPeriod		Period in milliseconds
+	 * @return list of future result sets on which client thread can wait.
+	 */
+	public List<TimerFutureTask> dropJobsToExecutor(List<? extends Job> jobs, long timeOutPeriod) {
+
+		List<TimerFutureTask> futureResults = submitJobs(jobs, timeOutPeriod);
+		for (TimerFutureTask futureTask : futureResults) {
+			futureTask.scheduleExpiry(timeOutPeriod);
+		}
+
+		return futureResults;
+	}
 
 	/**
 	 * Utility method that drops all the Jobs in to the Executor.
@@ -271,6 +587,19 @@ public class FastThreadExecutor {
 	 */
 	public List<TimerFutureTask> dropJobsToExecutor(List<? extends Job> jobs) {
 
+		return submitJobs(jobs, -1);
+	}
+
+	/**
+	 * Drops all the Jobs in to the Executor. Each task is told the timeout, so that the queue can
+	 * order it by its deadline.
+	 *
+	 * @param jobs
+	 * @param timeOutPeriod		Period in milliseconds. '-1' if there is no timeout.
+	 * @return list of future result sets on which client thread will wait.
+	 */
+	private List<TimerFutureTask> submitJobs(List<? extends Job> jobs, long timeOutPeriod) {
+
 		if (jobs == null || jobs.size() == 0) {
 
 			throw new IllegalArgumentException("Callable Jobs list is empty!");
@@ -280,24 +609,96 @@ public class FastThreadExecutor {
 		List<TimerFutureTask> futureResults = new ArrayList<TimerFutureTask>(jobs.size());
 
 		for (Job job : jobs) {
+			futureResults.add(submit(job, timeOutPeriod));
+		}
 
-			// Put the CancellableSessionAwareJob in to a FutureTask.
-			TimerFutureTask futureTask = new TimerFutureTask(createWrapper(job));
+		return futureResults;
+	}
 
-	        try {
+	/**
+	 * @param job
+	 * @param timeOutPeriod		Period in milliseconds. '-1' if there is no timeout.
+	 * @return future result on which client thread will wait.
+	 */
+	private TimerFutureTask submit(Job job, long timeOutPeriod) {
 
-	        	dropJobToExecutor(futureTask);
-	        	//this.executor.execute(futureTask);
-	        } catch(Throwable t) {
+		Object coalescingKey = job.getCoalescingKey();
+		if (coalescingKey != null) {
+			return joinFlight(job, coalescingKey, timeOutPeriod);
+		}
 
-	        	s_logger.error("Job failed to execute: " + ExceptionUtil.getDetails(t));
-	        	futureTask.setException(t);
-	        }
+		return submitJob(job, timeOutPeriod);
+	}
 
-	        futureResults.add(futureTask);
-		}
+	private TimerFutureTask submitJob(Job job, long timeOutPeriod) {
 
-		return futureResults;
+		// Put the CancellableSessionAwareJob in to a FutureTask.
+		TimerFutureTask futureTask = new TimerFutureTask(createWrapper(job), this, timeOutPeriod);
+		submitTask(futureTask);
+
+		return futureTask;
+	}
+
+	/**
+	 * Drops the task in to the Executor. If the task is rejected, task is completed with the exception.
+	 */
+	private void submitTask(TimerFutureTask futureTask) {
+
+        try {
+
+        	dropJobToExecutor(futureTask);
+        	//this.executor.execute(futureTask);
+        } catch(CircuitBreakerOpenException e) {
+
+        	// Failing fast is the expected behaviour while circuit is open.
+        	futureTask.setException(e);
+        } catch(Throwable t) {
+
+        	s_logger.error("Job failed to execute: " + ExceptionUtil.getDetails(t));
+        	futureTask.setException(t);
+        }
+	}
+
+	/**
+	 * Job shares the execution of an identical job, which is already in-flight. If there is none,
+	 * job is executed & other identical jobs can join its execution, till it completes.
+	 *
+	 * @return	task of the caller, which completes with the result of the shared execution.
+	 */
+	private TimerFutureTask joinFlight(Job job, Object coalescingKey, long timeOutPeriod) {
+
+		while (true) {
+
+			SingleFlight flight = flights.get(coalescingKey);
+			if (flight != null) {
+
+				if (flight.join()) {
+					return flight.newCallerTask(timeOutPeriod);
+				}
+
+				// Every caller has left or the execution has completed.
+				flights.remove(coalescingKey, flight);
+				continue;
+			}
+
+			TimerFutureTask sharedTask = new TimerFutureTask(createWrapper(job), this, timeOutPeriod);
+			final SingleFlight newFlight = new SingleFlight(sharedTask, timeOutPeriod);
+			if (flights.putIfAbsent(coalescingKey, newFlight) != null) {
+				continue;
+			}
+
+			final Object key = coalescingKey;
+			sharedTask.addCompletionListener(new Runnable() {
+				public void run() {
+					flights.remove(key, newFlight);
+				}
+			});
+
+			TimerFutureTask callerTask = newFlight.newCallerTask(timeOutPeriod);
+			submitTask(sharedTask);
+
+			return callerTask;
+		}
 	}
 
 	/**
@@ -318,8 +719,87 @@ public class FastThreadExecutor {
 	 * @param lFutureTask
 	 */
 	protected void dropJobToExecutor(TimerFutureTask lFutureTask) {
-		// no pre-condition check is required here.
-		this.executorService.execute(lFutureTask);
+
+		String partition = lFutureTask.getJob().getPartition();
+		CircuitBreaker circuitBreaker = getCircuitBreaker(lFutureTask.getJob());
+		if (circuitBreaker == null) {
+
+			dropJobToExecutor(lFutureTask, partition);
+			return;
+		}
+
+		int permit = circuitBreaker.acquire();
+		if (permit == CircuitBreaker.REJECTED) {
+
+			if (metrics != null) {
+				metrics.recordRejected(false);
+			}
+			throw new CircuitBreakerOpenException("PoolName-" + poolName + ", Circuit is open. " + circuitBreaker);
+		}
+
+		// Outcome is reported when the task completes or when the caller times out on it.
+		lFutureTask.holdBreakerPermit(circuitBreaker, permit);
+		try {
+			dropJobToExecutor(lFutureTask, partition);
+		} catch (RuntimeException e) {
+			// Rejection by this executor says nothing about the health of the downstream.
+			lFutureTask.ignoreOutcome();
+			throw e;
+		}
+	}
+
+	private void dropJobToExecutor(TimerFutureTask lFutureTask, String partition) {
+
+		AdaptiveConcurrencyLimiter limiter = this.concurrencyLimiter;
+		if (limiter != null) {
+
+			if (!limiter.tryAcquire()) {
+
+				if (metrics != null) {
+					metrics.recordRejected(false);
+				}
+				throw new JobAbortedException("PoolName-" + poolName + ", Concurrency limit reached. " + limiter);
+			}
+
+			// Permit is returned when the task leaves the executor.
+			lFutureTask.holdPermit(limiter);
+		}
+
+		Bulkhead bulkhead = partition != null ? partitions.get(partition) : null;
+
+		if (metrics == null) {
+
+			execute(lFutureTask, bulkhead);
+			return;
+		}
+
+		// Task is counted as queued before it's handed over, as a worker thread might pick it up right away.
+		metrics.recordSubmitted();
+		try {
+			execute(lFutureTask, bulkhead);
+		} catch (RuntimeException e) {
+			metrics.recordRejected(true);
+			throw e;
+		}
+	}
+
+	private void execute(TimerFutureTask lFutureTask, Bulkhead bulkhead) {
+
+		if (bulkhead != null) {
+			bulkhead.submit(lFutureTask);
+		} else {
+			this.executorService.execute(lFutureTask);
+		}
+	}
+
+	/**
+	 * Task, which has been counted as queued, couldn't be handed over to the underlying Executor.
+	 */
+	void recordRejected() {
+
+		if (metrics != null) {
+			metrics.recordRejected(true);
+		}
 	}
 
 
@@ -329,39 +809,96 @@ public class FastThreadExecutor {
 			throw new IllegalArgumentException("Future Result is empty!");
 		}
 
-		List<TimerFutureTask> futureResults = new ArrayList<TimerFutureTask>(1);
-		futureResults.add(futureResult);
+		return awaitResult(futureResult, timeOutPeriod);
+	}
+
+	/**
+	 * Same as {@link #getResults(List, long)} for a single future, but without allocating the
+	 * lists & the latch.
+	 */
+	private JobResult awaitResult(TimerFutureTask futureTask, long timeOutPeriod) {
+
+		if (!futureTask.isDone()) {
+
+			long remainingTime = futureTask.getStartNanoTime() + TimeUnit.MILLISECONDS.toNanos(timeOutPeriod) - System.nanoTime();
+			try {
+
+				if (remainingTime > 0) {
+					futureTask.get(remainingTime, TimeUnit.NANOSECONDS);
+				}
+			} catch (InterruptedException lException) {
+
+				Thread.currentThread().interrupt();
+				if (!futureTask.isDone()) {
+					return new JobResult(lException);
+				}
+			} catch (Exception lException) {
+				// Outcome is examined below.
+			}
+		}
+
+		if (futureTask.isDone()) {
+			return getResult(futureTask);
+		}
 
+		// Caller has timed out, so don't execute the Job.
+		futureTask.abandon(timeOutPeriod);
 
-		// Invoke the Polymorphic API and return the result.
-		return getResults(futureResults, timeOutPeriod).get(0);
+		TimeoutException lException = TimerFutureTask.newTimeoutException(timeOutPeriod);
+		handleTimeOutException(lException);
+		return new JobResult(lException);
 	}
 
 
+	/**
+	 * Retrieves the results of the jobs, waiting at most timeOutPeriod for them to complete.
+	 *
+	 * All the futures are treated as one batch: they share a single deadline, which is the
+	 * creation time of the earliest job plus timeOutPeriod, and are waited on together. Once
+	 * the deadline passes, every job which hasn't completed is cancelled in one pass. Thus
+	 * caller is blocked for at most timeOutPeriod, irrespective of the size of the batch.
+	 *
+	 * @param futureResults
+	 * @param timeOutPeriod		Period in milliseconds
+	 * @return	results in the same order as futureResults. TimeoutException is returned for jobs
+	 * 			that failed to complete before the deadline.
+	 */
 	public List<JobResult> getResults(List<TimerFutureTask> futureResults, long timeOutPeriod) {
 
 		if (futureResults == null || futureResults.size() == 0) {
 			throw new IllegalArgumentException("Future Results is empty!");
 		}
 
+		InterruptedException interruption = null;
+		try {
+
+			awaitCompletion(futureResults, getBatchDeadline(futureResults, timeOutPeriod));
+		} catch (InterruptedException lException) {
+
+			Thread.currentThread().interrupt();
+			interruption = lException;
+		}
+
 		// Retrieve the results from FutureTask
 		List<JobResult> results = new ArrayList<JobResult>(futureResults.size());
 
-		Iterator<TimerFutureTask> lIterator = futureResults.iterator();
-		while(lIterator.hasNext()) {
+		for (TimerFutureTask futureTask : futureResults) {
 
-			TimerFutureTask futureTask = (TimerFutureTask)lIterator.next();
-		    try {
-		    	Object lValue = futureTask.timedGet(timeOutPeriod);
-		    	results.add(new JobResult(lValue));
-			}  catch(TimeoutException lException) {
+			if (futureTask.isDone()) {
+
+				results.add(getResult(futureTask));
+			} else if (interruption != null) {
+
+				results.add(new JobResult(interruption));
+			} else {
 
+				// Caller has timed out, so don't execute the Job.
+				futureTask.abandon(timeOutPeriod);
+
+				TimeoutException lException = TimerFutureTask.newTimeoutException(timeOutPeriod);
 				handleTimeOutException(lException);
 				// If any exception arises during the execution then exception is added to the Result set.
 				results.add(new JobResult(lException));
-			} catch(Exception lException) {
-				// If any exception arises during the execution then exception is added to the Result set.
-				results.add(new JobResult(lException));
 			}
 		}
 
@@ -369,6 +906,230 @@ public class FastThreadExecutor {
 		return results;
 	}
 
+	/**
+	 * @return	{@link System#nanoTime()} by which all the futures of the batch should complete.
+	 */
+	protected long getBatchDeadline(List<TimerFutureTask> futureResults, long timeOutPeriod) {
+
+		long earliestStartTime = futureResults.get(0).getStartNanoTime();
+		for (TimerFutureTask futureTask : futureResults) {
+
+			// nanoTime values can overflow, so they are compared through their difference.
+			if (futureTask.getStartNanoTime() - earliestStartTime < 0) {
+				earliestStartTime = futureTask.getStartNanoTime();
+			}
+		}
+
+		return earliestStartTime + TimeUnit.MILLISECONDS.toNanos(timeOutPeriod);
+	}
+
+	/**
+	 * Blocks till all the futures complete or till the deadline passes, whichever happens first.
+	 */
+	private void awaitCompletion(List<TimerFutureTask> futureResults, long deadline) throws InterruptedException {
+
+		final CountDownLatch latch = new CountDownLatch(futureResults.size());
+		Runnable countDown = new Runnable() {
+			public void run() {
+				latch.countDown();
+			}
+		};
+
+		for (TimerFutureTask futureTask : futureResults) {
+			futureTask.addCompletionListener(countDown);
+		}
+
+		try {
+
+			long remainingTime = deadline - System.nanoTime();
+			if (remainingTime > 0) {
+				latch.await(remainingTime, TimeUnit.NANOSECONDS);
+			}
+		} finally {
+
+			// Futures which are yet to complete shouldn't hold on to the latch.
+			for (TimerFutureTask futureTask : futureResults) {
+				futureTask.removeCompletionListener(countDown);
+			}
+		}
+	}
+
+	/**
+	 * Waits for the results like {@link #getResults(List, long)}, except that jobs which haven't completed
+	 * by the hedge delay are duplicated. Whichever of the job & its duplicate completes first wins.
+	 */
+	private List<JobResult> getHedgedResults(List<? extends Job> jobs, List<TimerFutureTask> futureResults,
+			long timeOutPeriod, HedgePolicy policy) {
+
+		long hedgeDelay = policy.getHedgeDelay();
+		for (TimerFutureTask futureTask : futureResults) {
+			policy.watch(futureTask);
+		}
+
+		if (hedgeDelay < 0 || hedgeDelay >= timeOutPeriod) {
+			return getResults(futureResults, timeOutPeriod);
+		}
+
+		long deadline = getBatchDeadline(futureResults, timeOutPeriod);
+		try {
+
+			awaitCompletion(futureResults, deadline - TimeUnit.MILLISECONDS.toNanos(timeOutPeriod - hedgeDelay));
+		} catch (InterruptedException lException) {
+
+			Thread.currentThread().interrupt();
+			return getResults(futureResults, timeOutPeriod);
+		}
+
+		List<TimerFutureTask> hedges = new ArrayList<TimerFutureTask>(futureResults.size());
+		boolean hedged = false;
+		for (int index = 0; index < futureResults.size(); ++index) {
+
+			TimerFutureTask hedge = null;
+			if (!futureResults.get(index).isDone()) {
+				hedge = hedge(jobs.get(index), deadline, policy);
+			}
+
+			hedged |= hedge != null;
+			hedges.add(hedge);
+		}
+
+		if (!hedged) {
+			return getResults(futureResults, timeOutPeriod);
+		}
+
+		return getFirstResults(futureResults, hedges, deadline, timeOutPeriod);
+	}
+
+	/**
+	 * @return	task executing the duplicate of the job. null if job can't be hedged.
+	 */
+	private TimerFutureTask hedge(Job job, long deadline, HedgePolicy policy) {
+
+		Job duplicate = job.duplicate();
+		if (duplicate == null || !policy.tryAcquireHedge()) {
+			return null;
+		}
+
+		// Duplicate has to complete by the deadline of the original job.
+		long remainingTime = Math.max(0, TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime()));
+		// Duplicate is always executed on its own, even if it's coalescable.
+		TimerFutureTask hedge = submitJob(duplicate, remainingTime);
+
+		// Rejected duplicate shouldn't win over the original job, which is still executing.
+		return HedgePolicy.isRejected(hedge) ? null : hedge;
+	}
+
+	/**
+	 * Blocks till either the job or its duplicate completes, for each of the jobs, or till the deadline
+	 * passes. Job which loses the race is cancelled.
+	 */
+	private List<JobResult> getFirstResults(List<TimerFutureTask> futureResults, List<TimerFutureTask> hedges,
+			long deadline, long timeOutPeriod) {
+
+		int size = futureResults.size();
+		AtomicReferenceArray<TimerFutureTask> winners = new AtomicReferenceArray<TimerFutureTask>(size);
+		CountDownLatch latch = new CountDownLatch(size);
+
+		List<TimerFutureTask> watchedTasks = new ArrayList<TimerFutureTask>(size * 2);
+		List<Runnable> listeners = new ArrayList<Runnable>(size * 2);
+		for (int index = 0; index < size; ++index) {
+
+			watchedTasks.add(futureResults.get(index));
+			listeners.add(newWinnerListener(winners, index, futureResults.get(index), latch));
+
+			if (hedges.get(index) != null) {
+
+				watchedTasks.add(hedges.get(index));
+				listeners.add(newWinnerListener(winners, index, hedges.get(index), latch));
+			}
+		}
+
+		for (int index = 0; index < watchedTasks.size(); ++index) {
+			watchedTasks.get(index).addCompletionListener(listeners.get(index));
+		}
+
+		InterruptedException interruption = null;
+		try {
+
+			long remainingTime = deadline - System.nanoTime();
+			if (remainingTime > 0) {
+				latch.await(remainingTime, TimeUnit.NANOSECONDS);
+			}
+		} catch (InterruptedException lException) {
+
+			Thread.currentThread().interrupt();
+			interruption = lException;
+		} finally {
+
+			for (int index = 0; index < watchedTasks.size(); ++index) {
+				watchedTasks.get(index).removeCompletionListener(listeners.get(index));
+			}
+		}
+
+		List<JobResult> results = new ArrayList<JobResult>(size);
+		List<TimerFutureTask> losers = new ArrayList<TimerFutureTask>();
+
+		for (int index = 0; index < size; ++index) {
+
+			TimerFutureTask futureTask = futureResults.get(index);
+			TimerFutureTask hedge = hedges.get(index);
+			TimerFutureTask winner = winners.get(index);
+
+			if (winner != null) {
+
+				results.add(getResult(winner));
+				if (hedge != null) {
+					losers.add(winner == hedge ? futureTask : hedge);
+				}
+			} else if (interruption != null) {
+
+				results.add(new JobResult(interruption));
+			} else {
+
+				// Caller has timed out, so neither the Job nor its duplicate needs to be executed.
+				futureTask.abandon(timeOutPeriod);
+				if (hedge != null) {
+					hedge.abandon(timeOutPeriod);
+				}
+
+				TimeoutException lException = TimerFutureTask.newTimeoutException(timeOutPeriod);
+				handleTimeOutException(lException);
+				results.add(new JobResult(lException));
+			}
+		}
+
+		// Losers are cancelled through Job.cancel(). Losing a race isn't a failure of the downstream.
+		abandonTasks(losers, timeOutPeriod);
+
+		return results;
+	}
+
+	private static Runnable newWinnerListener(final AtomicReferenceArray<TimerFutureTask> winners, final int index,
+			final TimerFutureTask futureTask, final CountDownLatch latch) {
+
+		return new Runnable() {
+			public void run() {
+
+				if (winners.compareAndSet(index, null, futureTask)) {
+					latch.countDown();
+				}
+			}
+		};
+	}
+
+	/**
+	 * @return	result of the future, which has already completed.
+	 */
+	static JobResult getResult(TimerFutureTask futureTask) {
+
+		try {
+			return new JobResult(futureTask.getCompletedResult());
+		} catch(Exception lException) {
+			// If any exception arises during the execution then exception is added to the Result set.
+			return new JobResult(lException);
+		}
+	}
+
 	public List<JobResult> getResults(List<TimerFutureTask> futureResults) {
 
 		if (futureResults == null || futureResults.size() == 0) {
@@ -380,10 +1141,13 @@ public class FastThreadExecutor {
 		Iterator<TimerFutureTask> lIterator = futureResults.iterator();
 		while(lIterator.hasNext()) {
 
-			FutureTask<?> futureTask = (FutureTask<?>)lIterator.next();
+			TimerFutureTask futureTask = lIterator.next();
 		    try {
 		    	Object lValue = futureTask.get();
 		    	results.add(new JobResult(lValue));
+			} catch(ExecutionException lException) {
+				// Reports abandonment of the job as TimeoutException.
+				results.add(getResult(futureTask));
 			} catch(Exception lException) {
 				// If any exception arises during the execution then exception is added to the Result set.
 				results.add(new JobResult(lException));
@@ -394,6 +1158,37 @@ public class FastThreadExecutor {
 		return results;
 	}
 
+	/**
+	 * No one is waiting for the results of the tasks anymore. Tasks which haven't completed are
+	 * abandoned: the ones still waiting in the queue free their slots right away & are never executed.
+	 *
+	 * @param futureTasks
+	 * @param timeOutPeriod		Period in milliseconds
+	 */
+	void abandonTasks(List<TimerFutureTask> futureTasks, long timeOutPeriod) {
+
+		for (TimerFutureTask futureTask : futureTasks) {
+
+			// Caller gave up on its own, before the timeout.
+			futureTask.ignoreOutcome();
+			if (!futureTask.isDone()) {
+				futureTask.abandon(timeOutPeriod);
+			}
+		}
+	}
+
+	/**
+	 * Creates the queue in which jobs wait for a worker thread. Jobs abandoned by their callers
+	 * aren't counted against the capacity.
+	 *
+	 * @param queueCapacity
+	 * @return
+	 */
+	protected BlockingQueue<Runnable> createWorkQueue(int queueCapacity) {
+
+		return new AbandonAwareQueue(queueCapacity);
+	}
+
 	protected RejectedExecutionHandler getRejectionHandler(String poolName, int queueCapacity) {
 
 		return new AbortTaskExecution(poolName, queueCapacity);
@@ -408,6 +1203,146 @@ public class FastThreadExecutor {
 		return executorService;
 	}
 
+	/**
+	 * By default a job which times out in the middle of its execution continues to run
+	 * till doWork() returns; only {@link Job#isAbort()} is set. When this policy is turned on,
+	 * {@link Job#onInterrupt()} is invoked and the worker thread is interrupted as soon as the
+	 * caller times out. So worker threads blocked on slow downstream calls return to the pool
+	 * right after the deadline, instead of whenever the remote side gives up.
+	 *
+	 * @param interruptOnTimeout
+	 */
+	public void setInterruptOnTimeout(boolean interruptOnTimeout) {
+		this.interruptOnTimeout = interruptOnTimeout;
+	}
+
+	public boolean isInterruptOnTimeout() {
+		return interruptOnTimeout;
+	}
+
+	/**
+	 * Turns on adaptive limiting of in-flight jobs. Limit is adjusted based on the latencies
+	 * and timeouts of the jobs. Once the limit is reached, new jobs are rejected right away
+	 * with {@link JobAbortedException}, instead of queueing up behind the slow ones.
+	 *
+	 * @param concurrencyLimiter	null to turn off the limiting.
+	 */
+	public void setConcurrencyLimiter(AdaptiveConcurrencyLimiter concurrencyLimiter) {
+		this.concurrencyLimiter = concurrencyLimiter;
+	}
+
+	public AdaptiveConcurrencyLimiter getConcurrencyLimiter() {
+		return concurrencyLimiter;
+	}
+
+	public String getPoolName() {
+		return poolName;
+	}
+
+	/**
+	 * Reserves a share of the worker threads for the jobs of a partition (refer {@link Job#setPartition(String)}).
+	 * At most maxConcurrent jobs of the partition are executed concurrently, and at most queueQuota jobs wait
+	 * for their turn. Jobs beyond that are rejected with {@link JobAbortedException}, while the jobs of other
+	 * partitions keep going. Jobs of partitions which aren't added are executed without any cap.
+	 *
+	 * @param partition
+	 * @param maxConcurrent
+	 * @param queueQuota
+	 * @return
+	 */
+	public Bulkhead addPartition(String partition, int maxConcurrent, int queueQuota) {
+
+		if (!StringUtil.isValid(partition)) {
+			throw new IllegalArgumentException("Invalid Arguments");
+		}
+
+		Bulkhead bulkhead = new Bulkhead(partition, maxConcurrent, queueQuota, this);
+		if (partitions.putIfAbsent(partition, bulkhead) != null) {
+			throw new IllegalArgumentException("Partition " + partition + " already exists");
+		}
+
+		return bulkhead;
+	}
+
+	/**
+	 * @return	partition with the given name. null if the partition isn't added.
+	 */
+	public Bulkhead getPartition(String partition) {
+		return partitions.get(partition);
+	}
+
+	/**
+	 * Guards the downstream of the jobs with a circuit breaker. key is either the name of a partition
+	 * (refer {@link Job#setPartition(String)}) or the class name of the jobs. Once the share of jobs timing out
+	 * or failing reaches failureRateThreshold, jobs are failed right away with {@link CircuitBreakerOpenException}
+	 * for openPeriod, instead of tying up worker threads & callers till the timeout. Then one job at a time is
+	 * let through to probe whether the downstream has recovered.
+	 *
+	 * @param key					Partition name or job class name.
+	 * @param windowSize			Number of jobs whose outcome is evaluated together.
+	 * @param failureRateThreshold	Share (between 0 & 1) of failed jobs at which circuit opens.
+	 * @param openPeriod			Period in milliseconds
+	 * @return
+	 */
+	public CircuitBreaker addCircuitBreaker(String key, int windowSize, double failureRateThreshold, long openPeriod) {
+
+		if (!StringUtil.isValid(key)) {
+			throw new IllegalArgumentException("Invalid Arguments");
+		}
+
+		CircuitBreaker circuitBreaker = new CircuitBreaker(key, windowSize, failureRateThreshold, openPeriod);
+		if (circuitBreakers.putIfAbsent(key, circuitBreaker) != null) {
+			throw new IllegalArgumentException("Circuit breaker " + key + " already exists");
+		}
+
+		return circuitBreaker;
+	}
+
+	/**
+	 * @return	circuit breaker added for the given key. null if there is none.
+	 */
+	public CircuitBreaker getCircuitBreaker(String key) {
+		return circuitBreakers.get(key);
+	}
+
+	/**
+	 * Breaker of the job's partition takes precedence over the breaker of the job's class.
+	 */
+	private CircuitBreaker getCircuitBreaker(Job job) {
+
+		if (circuitBreakers.isEmpty()) {
+			return null;
+		}
+
+		String partition = job.getPartition();
+		CircuitBreaker circuitBreaker = partition != null ? circuitBreakers.get(partition) : null;
+		return circuitBreaker != null ? circuitBreaker : circuitBreakers.get(job.getClass().getName());
+	}
+
+	/**
+	 * Turns on hedging of the jobs executed through {@link #executeJobs(List, long)} & {@link #executeJob(Job, long)}.
+	 * Job which hasn't completed by the hedge delay (a percentile of the latencies of earlier jobs) is duplicated
+	 * (refer {@link Job#duplicate()}), within the budget of the policy. Result of whichever completes first is
+	 * returned and the other one is cancelled. Cuts the tail latency caused by an occasional slow replica.
+	 *
+	 * @param hedgePolicy	null to turn off the hedging.
+	 */
+	public void setHedgePolicy(HedgePolicy hedgePolicy) {
+		this.hedgePolicy = hedgePolicy;
+	}
+
+	public HedgePolicy getHedgePolicy() {
+		return hedgePolicy;
+	}
+
+	/**
+	 * @return	metrics of the pool. null if the executor is created with an externally configured
+	 * 			Executor and isn't named.
+	 */
+	public ExecutorMetrics getMetrics() {
+		return metrics;
+	}
+
 	/**
 	 * Shuts down the executor gracefully, after executing the current
 	 * jobs. No new jobs will be processed. All the worker threads will
@@ -0,0 +1,331 @@
+/*
+ * Copyright [2015] [Tier1app LLC]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package io.allset.fastthread;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import io.allset.util.ExceptionUtil;
+
+/**
+ * Enforces deadlines of {@link TimerFutureTask}s, even when no caller thread is waiting for
+ * their results. Timeouts are kept in a hashed wheel: a circular array of buckets, where each
+ * bucket represents one tick of time. Registering a timeout and cancelling it are O(1).
+ * A single daemon thread advances the wheel tick by tick and hands the tasks whose deadline
+ * has passed over to the expiry threads.
+ *
+ * Expiring a task runs code of the application: {@link Job#onTimeout()}, {@link Job#onInterrupt()}
+ * and the completion listeners of the task. Hence it's done in a pool of expiry threads, which grows
+ * as needed, so that a callback which blocks doesn't delay the deadlines of other tasks.
+ *
+ * Deadlines are enforced with the precision of one tick. It's good enough for job timeouts,
+ * which are typically in the order of hundreds of milli seconds.
+ *
+ * @author Ram Lakshmanan
+ */
+final class HashedWheelTimer implements Runnable {
+
+	private static final Logger s_logger = LogManager.getLogger(HashedWheelTimer.class);
+
+	public static final long DEFAULT_TICK_MILLIS = 10;
+
+	public static final int DEFAULT_WHEEL_SIZE = 512;
+
+	/**
+	 * Maximum number of newly registered timeouts that are moved to the wheel in one tick.
+	 * Prevents the timer thread from starving when registrations arrive faster than they
+	 * can be moved.
+	 */
+	private static final int MAX_TRANSFERS_PER_TICK = 100000;
+
+	private static volatile HashedWheelTimer sharedTimer;
+
+	private final long tickNanos;
+
+	private final Timeout[] wheel;
+
+	private final int mask;
+
+	/**
+	 * Timeouts which are registered, but not yet placed in the wheel. Only timer thread
+	 * touches the wheel, so registrations are handed over through this queue.
+	 */
+	private final Queue<Timeout> pendingTimeouts = new ConcurrentLinkedQueue<Timeout>();
+
+	private final long startTime;
+
+	private long tick;
+
+	private final ExecutorService expiryExecutor;
+
+	HashedWheelTimer(String name, long tickDuration, TimeUnit unit, int wheelSize) {
+
+		if (tickDuration <= 0 || wheelSize <= 0) {
+			throw new IllegalArgumentException("Invalid Arguments");
+		}
+
+		// Round wheel size up to power of two, so that bucket can be found by masking.
+		int normalizedWheelSize = Integer.highestOneBit(wheelSize);
+		if (normalizedWheelSize < wheelSize) {
+			normalizedWheelSize <<= 1;
+		}
+
+		this.tickNanos = unit.toNanos(tickDuration);
+		this.wheel = new Timeout[normalizedWheelSize];
+		this.mask = normalizedWheelSize - 1;
+		this.startTime = System.nanoTime();
+		this.expiryExecutor = newExpiryExecutor(name + "-Expiry-");
+
+		Thread workerThread = new Thread(this, name);
+		workerThread.setDaemon(true);
+		workerThread.start();
+	}
+
+	/**
+	 * @return	pool of daemon threads, which are created on demand & retired once idle for a minute.
+	 */
+	private static ExecutorService newExpiryExecutor(final String namePrefix) {
+
+		return new ThreadPoolExecutor(0, Integer.MAX_VALUE, 60L, TimeUnit.SECONDS,
+				new SynchronousQueue<Runnable>(),
+				new ThreadFactory() {
+
+					private final AtomicInteger threadNumber = new AtomicInteger(1);
+
+					public Thread newThread(Runnable runnable) {
+
+						Thread thread = new Thread(runnable, namePrefix + threadNumber.getAndIncrement());
+						thread.setDaemon(true);
+						return thread;
+					}
+				});
+	}
+
+	/**
+	 * @return	timer shared by all the executors.
+	 */
+	static HashedWheelTimer getSharedTimer() {
+
+		HashedWheelTimer timer = sharedTimer;
+		if (timer == null) {
+
+			synchronized (HashedWheelTimer.class) {
+
+				timer = sharedTimer;
+				if (timer == null) {
+
+					timer = new HashedWheelTimer("FastThread-Timer", DEFAULT_TICK_MILLIS, TimeUnit.MILLISECONDS, DEFAULT_WHEEL_SIZE);
+					sharedTimer = timer;
+				}
+			}
+		}
+
+		return timer;
+	}
+
+	/**
+	 * Registers the task to be expired once timeOutPeriod elapses from the creation of the task.
+	 *
+	 * @param task
+	 * @param timeOutPeriod		Period in milliseconds
+	 * @return	handle, through which the registration can be cancelled.
+	 */
+	Timeout schedule(TimerFutureTask task, long timeOutPeriod) {
+
+		long deadline = task.getStartNanoTime() - startTime + TimeUnit.MILLISECONDS.toNanos(timeOutPeriod);
+		Timeout timeout = new Timeout(task, deadline, timeOutPeriod);
+		pendingTimeouts.add(timeout);
+
+		return timeout;
+	}
+
+	public void run() {
+
+		while (true) {
+
+			long tickDeadline = tickNanos * (tick + 1);
+			if (!waitForNextTick(tickDeadline)) {
+				continue;
+			}
+
+			transferPendingTimeouts();
+			expireTimeouts((int)(tick & mask), tickDeadline);
+			++tick;
+		}
+	}
+
+	/**
+	 * @return	false if the thread got interrupted before the next tick.
+	 */
+	private boolean waitForNextTick(long tickDeadline) {
+
+		long sleepTime = tickDeadline - (System.nanoTime() - startTime);
+		if (sleepTime <= 0) {
+			return true;
+		}
+
+		try {
+			TimeUnit.NANOSECONDS.sleep(sleepTime);
+		} catch (InterruptedException e) {
+			return false;
+		}
+
+		return System.nanoTime() - startTime >= tickDeadline;
+	}
+
+	private void transferPendingTimeouts() {
+
+		for (int counter = 0; counter < MAX_TRANSFERS_PER_TICK; ++counter) {
+
+			Timeout timeout = pendingTimeouts.poll();
+			if (timeout == null) {
+				return;
+			}
+
+			if (timeout.isCancelled()) {
+				continue;
+			}
+
+			long expiryTick = timeout.deadline / tickNanos;
+			timeout.remainingRounds = (expiryTick - tick) / wheel.length;
+
+			// Deadlines which have already passed are expired in the current tick.
+			int bucket = (int)(Math.max(expiryTick, tick) & mask);
+			timeout.next = wheel[bucket];
+			wheel[bucket] = timeout;
+		}
+	}
+
+	private void expireTimeouts(int bucket, long tickDeadline) {
+
+		Timeout previous = null;
+		Timeout timeout = wheel[bucket];
+
+		while (timeout != null) {
+
+			Timeout next = timeout.next;
+			boolean remove = true;
+
+			if (timeout.isCancelled()) {
+				// Task has completed. Just drop the timeout.
+			} else if (timeout.remainingRounds <= 0 && timeout.deadline <= tickDeadline) {
+
+				expire(timeout);
+			} else {
+
+				--timeout.remainingRounds;
+				remove = false;
+			}
+
+			if (remove) {
+
+				if (previous == null) {
+					wheel[bucket] = next;
+				} else {
+					previous.next = next;
+				}
+			} else {
+
+				previous = timeout;
+			}
+
+			timeout = next;
+		}
+	}
+
+	private void expire(final Timeout timeout) {
+
+		try {
+			expiryExecutor.execute(new Runnable() {
+				public void run() {
+					timeout.expire();
+				}
+			});
+		} catch (RejectedExecutionException e) {
+
+			// Expiry thread couldn't be created. Deadline is still enforced, by the timer thread itself.
+			s_logger.error("Failed to hand over the expiry of task: " + ExceptionUtil.getDetails(e));
+			timeout.expire();
+		}
+	}
+
+	/**
+	 * Registration of a task with the timer.
+	 */
+	static final class Timeout {
+
+		/**
+		 * null once the task has completed.
+		 */
+		private volatile TimerFutureTask task;
+
+		private final long deadline;
+
+		private final long timeOutPeriod;
+
+		/**
+		 * Number of full rotations of the wheel left before the deadline. Only accessed
+		 * by the timer thread.
+		 */
+		private long remainingRounds;
+
+		private Timeout next;
+
+		Timeout(TimerFutureTask task, long deadline, long timeOutPeriod) {
+
+			this.task = task;
+			this.deadline = deadline;
+			this.timeOutPeriod = timeOutPeriod;
+		}
+
+		/**
+		 * Task has completed, no need to expire it. Also releases the reference to the task,
+		 * so that it's not retained till the deadline.
+		 */
+		void cancel() {
+			task = null;
+		}
+
+		boolean isCancelled() {
+			return task == null;
+		}
+
+		private void expire() {
+
+			TimerFutureTask expiringTask = task;
+			if (expiringTask == null) {
+				return;
+			}
+
+			try {
+				expiringTask.expire(timeOutPeriod);
+			} catch (Throwable t) {
+				s_logger.error("Failed to expire task: " + ExceptionUtil.getDetails(t));
+			}
+		}
+	}
+}
@@ -0,0 +1,272 @@
+/*
+ * Copyright [2015] [Tier1app LLC]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package io.allset.fastthread;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Decides when a slow job should be hedged, i.e. when a duplicate of the job should be executed
+ * in parallel, so that an occasional slow replica of the downstream doesn't dominate the tail
+ * latency. Refer {@link FastThreadExecutor#setHedgePolicy(HedgePolicy)}.
+ *
+ * <ul>
+ *  <li>Hedge delay is the given percentile of the latencies of the recent jobs. Latencies are
+ *      recorded in windows of max(minSamples, {@value #REFRESH_INTERVAL}) jobs & only the current and
+ *      the previous windows are looked at. Thus the delay follows the latencies as they drift, and
+ *      only the slowest (100 - percentile)% of the recent jobs are hedged.</li>
+ *  <li>Extra load is capped by the budget ratio: every job earns budgetRatio of a hedge & every
+ *      hedge spends one. At most {@value #MAX_BURST} hedges can be saved up during quiet periods.
+ *      Thus when the downstream slows down as a whole, hedges stop, instead of doubling its load.</li>
+ * </ul>
+ *
+ * @author Ram Lakshmanan
+ */
+public class HedgePolicy {
+
+	public static final int DEFAULT_MIN_SAMPLES = 100;
+
+	static final int MAX_BURST = 10;
+
+	/**
+	 * Hedge delay is recomputed once every these many recorded latencies. Computing it walks the
+	 * whole histogram, which is too costly to be done for every job.
+	 */
+	static final int REFRESH_INTERVAL = 64;
+
+	/**
+	 * Budget is tracked in thousandths of a hedge, so that fractional ratios can be added up atomically.
+	 */
+	private static final long UNIT = 1000;
+
+	private final double percentile;
+
+	private final long budgetPerJob;
+
+	private final int minSamples;
+
+	/**
+	 * Number of latencies recorded in a window, before the window is rotated.
+	 */
+	private final int windowSize;
+
+	/**
+	 * Window, in which the latencies are being recorded.
+	 */
+	private volatile Window currentWindow = new Window();
+
+	/**
+	 * Last full window. Its latencies are still looked at, so that the hedge delay doesn't have to
+	 * be computed from a nearly empty window, right after the rotation.
+	 */
+	private volatile Window previousWindow;
+
+	private final AtomicLong budget = new AtomicLong();
+
+	private final LongAdder hedgeCount = new LongAdder();
+
+	private final AtomicLong sampleCount = new AtomicLong();
+
+	private volatile long hedgeDelay = -1;
+
+	/**
+	 * @param percentile		Percentile (between 0 & 100) of job latencies, after which a job is hedged.
+	 * @param budgetRatio		Maximum number of hedges per job (between 0 & 1).
+	 */
+	public HedgePolicy(double percentile, double budgetRatio) {
+
+		this(percentile, budgetRatio, DEFAULT_MIN_SAMPLES);
+	}
+
+	/**
+	 * @param percentile		Percentile (between 0 & 100) of job latencies, after which a job is hedged.
+	 * @param budgetRatio		Maximum number of hedges per job (between 0 & 1).
+	 * @param minSamples		Number of job latencies to be recorded, before jobs are hedged.
+	 */
+	public HedgePolicy(double percentile, double budgetRatio, int minSamples) {
+
+		if (percentile <= 0 ||
+			percentile >= 100 ||
+			budgetRatio <= 0 ||
+			budgetRatio > 1 ||
+			minSamples < 1) {
+
+			throw new IllegalArgumentException("Invalid Arguments");
+		}
+
+		this.percentile = percentile;
+		this.budgetPerJob = (long)(budgetRatio * UNIT);
+		this.minSamples = minSamples;
+		this.windowSize = Math.max(minSamples, REFRESH_INTERVAL);
+	}
+
+	/**
+	 * Records the latency of the task, once it completes, and earns budget for hedges.
+	 */
+	void watch(final TimerFutureTask futureTask) {
+
+		earnBudget();
+		futureTask.addCompletionListener(new Runnable() {
+			public void run() {
+
+				// Rejected tasks say nothing about the latency of the downstream.
+				if (!isRejected(futureTask)) {
+					recordLatency(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - futureTask.getStartNanoTime()));
+				}
+			}
+		});
+	}
+
+	/**
+	 * Records the latency & refreshes the hedge delay, once minSamples are recorded and once every
+	 * {@value #REFRESH_INTERVAL} latencies after that.
+	 *
+	 * @param micros	Latency in micro seconds.
+	 */
+	void recordLatency(long micros) {
+
+		Window window = currentWindow;
+		window.latencies.record(micros);
+
+		// Only the thread which fills the window rotates it. Latencies recorded by threads which
+		// are late to see the rotation land in the previous window, so none of them are lost.
+		if (window.count.incrementAndGet() == windowSize) {
+
+			previousWindow = window;
+			currentWindow = new Window();
+		}
+
+		long count = sampleCount.incrementAndGet();
+		if (count == minSamples ||
+			(count > minSamples && (count - minSamples) % REFRESH_INTERVAL == 0)) {
+
+			// Rounded up, so that jobs completing right at the percentile aren't hedged.
+			hedgeDelay = Math.max(1, (getValueAtPercentile() + 999) / 1000);
+		}
+	}
+
+	/**
+	 * @return	value (in micro seconds) at the percentile, of the latencies in the current & the
+	 * 			previous windows.
+	 */
+	private long getValueAtPercentile() {
+
+		Window previous = previousWindow;
+		Window current = currentWindow;
+		if (previous == null || previous == current) {
+			return current.latencies.getValueAtPercentile(percentile);
+		}
+
+		return LatencyHistogram.getCombinedValueAtPercentile(percentile, previous.latencies, current.latencies);
+	}
+
+	/**
+	 * @return	period in milliseconds, after which a job should be hedged. '-1' if not enough
+	 * 			latencies have been recorded yet. Value is cached, refer {@link #recordLatency(long)}.
+	 */
+	public long getHedgeDelay() {
+		return hedgeDelay;
+	}
+
+	/**
+	 * @return	true if there is budget for one more hedge. Budget is spent.
+	 */
+	boolean tryAcquireHedge() {
+
+		while (true) {
+
+			long current = budget.get();
+			if (current < UNIT) {
+				return false;
+			}
+
+			if (budget.compareAndSet(current, current - UNIT)) {
+				hedgeCount.increment();
+				return true;
+			}
+		}
+	}
+
+	private void earnBudget() {
+
+		while (true) {
+
+			long current = budget.get();
+			long updated = Math.min(MAX_BURST * UNIT, current + budgetPerJob);
+			if (updated == current || budget.compareAndSet(current, updated)) {
+				return;
+			}
+		}
+	}
+
+	/**
+	 * @return	true if the task was rejected by the executor (or by its circuit breaker).
+	 */
+	static boolean isRejected(TimerFutureTask futureTask) {
+
+		if (!futureTask.isDone() || futureTask.isCancelled()) {
+			return false;
+		}
+
+		try {
+			futureTask.get();
+			return false;
+		} catch (ExecutionException e) {
+			return e.getCause() instanceof JobAbortedException;
+		} catch (Exception e) {
+			return false;
+		}
+	}
+
+	/**
+	 * @return	latencies (in micro seconds) of the recent jobs, from submission till completion. It's
+	 * 			the last full window or the current window, if no window is full yet.
+	 */
+	public LatencyHistogram getLatencies() {
+
+		Window previous = previousWindow;
+		return previous != null ? previous.latencies : currentWindow.latencies;
+	}
+
+	/**
+	 * @return	number of hedges executed so far.
+	 */
+	public long getHedgeCount() {
+		return hedgeCount.sum();
+	}
+
+	@Override
+	public String toString() {
+		return "Percentile-" + percentile + ", HedgeDelay-" + getHedgeDelay() + ", Hedges-" + getHedgeCount();
+	}
+
+	/**
+	 * Latencies of a window of jobs.
+	 */
+	private static final class Window {
+
+		private final LatencyHistogram latencies = new LatencyHistogram();
+
+		/**
+		 * Number of latencies recorded in this window. Unlike latencies.getCount(), it's exact, so
+		 * exactly one thread sees the window getting full.
+		 */
+		private final AtomicLong count = new AtomicLong();
+	}
+}
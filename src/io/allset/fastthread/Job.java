@@ -32,16 +32,23 @@ public abstract class Job implements Callable {
 
 	/**
 	 * A Flag to indicate whether this.realJob  needs to be executed
-	 * OR aborted.
+	 * OR aborted. It's set by the client thread (or an expiry thread of the timer) and
+	 * read by the worker thread, hence volatile.
 	 */
-	protected boolean abort;
+	protected volatile boolean abort;
 
 	private FastThreadContext fastThreadContext;
 
+	private JobPriority priority = JobPriority.NORMAL;
+
+	private String partition;
+
 	public Job() {
 
 		jobCreationTime = System.currentTimeMillis();
-		fastThreadContext = FastThreadContext.getMondeeContext();
+
+		// Context isn't created for threads which don't use one.
+		fastThreadContext = FastThreadContext.capture();
 	}
 
 
@@ -91,11 +98,92 @@ public abstract class Job implements Callable {
 
 	public void logWorkTime(long executionTime) {
 
-		s_logger.debug("Job completed in " + executionTime);
+		if (s_logger.isDebugEnabled()) {
+			s_logger.debug("Job completed in " + executionTime);
+		}
 	}
 
+	/**
+	 * Invoked once the caller has timed out or the deadline of the job has passed. It's invoked
+	 * from the thread which detected the timeout: caller thread or an expiry thread of the timer.
+	 * Hence it shouldn't block. Default implementation logs the timeout.
+	 */
 	public void onTimeout() {
-		s_logger.info(this + " job timed out");
+		if (s_logger.isInfoEnabled()) {
+			s_logger.info(this + " job timed out");
+		}
+	}
+
+	/**
+	 * Invoked when the job has timed out in the middle of its execution and the executor
+	 * is configured to interrupt such jobs (refer {@link FastThreadExecutor#setInterruptOnTimeout(boolean)}).
+	 * It's invoked from the thread which detected the timeout (caller thread or an expiry thread
+	 * of the timer), just before the worker thread is interrupted.
+	 *
+	 * Socket and JDBC calls don't respond to thread interruption. Jobs which are blocked on
+	 * such calls can override this method to close the underlying socket or statement, so
+	 * that the worker thread is released right away. Default implementation does nothing.
+	 */
+	public void onInterrupt() {
+	}
+
+	/**
+	 * Jobs with the same coalescing key, which are submitted while one of them is in-flight, share its
+	 * execution (single-flight): only the first one is executed, and its result is handed to every caller.
+	 * Each caller still gets its own {@link JobResult} & times out on its own. Hence only jobs which would
+	 * produce the same result (typically reads of the same key) should share a coalescing key. Key must
+	 * implement equals() & hashCode(). Default implementation returns null, i.e. job isn't coalesced.
+	 *
+	 * @return	coalescing key of the job. null if job shouldn't be coalesced.
+	 */
+	public Object getCoalescingKey() {
+		return null;
+	}
+
+	/**
+	 * Creates a fresh instance of this job, which can be executed as a hedge when this job is slow to
+	 * complete (refer {@link FastThreadExecutor#setHedgePolicy(HedgePolicy)}). Whichever of them completes
+	 * first wins and the other one is cancelled. Hence only idempotent jobs (typically reads) should
+	 * override this method. Default implementation returns null, i.e. job isn't hedged.
+	 *
+	 * Partition & priority of this job should be carried over to the duplicate.
+	 *
+	 * @return	duplicate of this job. null if job shouldn't be hedged.
+	 */
+	public Job duplicate() {
+		return null;
+	}
+
+	/**
+	 * @return	{@link FastThreadContext} of the thread that created this job. It's installed in the
+	 * 			worker thread while the job is executed.
+	 */
+	public FastThreadContext getFastThreadContext() {
+		return fastThreadContext;
+	}
+
+	public JobPriority getPriority() {
+		return priority;
+	}
+
+	/**
+	 * @param priority	Priority class of the job. Refer {@link PriorityFastThreadExecutor}.
+	 */
+	public void setPriority(JobPriority priority) {
+		this.priority = priority;
+	}
+
+	public String getPartition() {
+		return partition;
+	}
+
+	/**
+	 * @param partition	Name of the partition (typically the downstream dependency that the job calls),
+	 * 					whose share of worker threads the job should be executed with. Refer
+	 * 					{@link FastThreadExecutor#addPartition(String, int, int)}.
+	 */
+	public void setPartition(String partition) {
+		this.partition = partition;
 	}
 
 	/**
@@ -0,0 +1,173 @@
+/*
+ * Copyright [2015] [Tier1app LLC]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package io.allset.fastthread;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Non-blocking handle to the result of a job (or of a batch of jobs), through which further
+ * processing can be chained without parking the caller thread. For example, profile can be fetched,
+ * then three services can be called concurrently & their responses merged:
+ *
+ * <pre>
+ * executor.executeJobAsync(new ProfileJob(userId), 200)
+ *         .thenCompose(profileResult -&gt; executor.executeJobsAsync(serviceJobs(profileResult), 300))
+ *         .thenApply(serviceResults -&gt; merge(serviceResults));
+ * </pre>
+ *
+ * Semantics are same as the blocking API:
+ *
+ * <ul>
+ *  <li>Future always completes normally with {@link JobResult}(s). Timeout & failure of the job are
+ *      reported through {@link JobResult#getException()}.</li>
+ *  <li>Deadline of each job is enforced by the executor, even though no thread is waiting for it.</li>
+ *  <li>Cancelling the future aborts its jobs: jobs waiting in the queue are never executed &
+ *      {@link Job#isAbort()} is set for the jobs which are being executed.</li>
+ *  <li>Future is completed on a worker thread of the executor, rather than in the thread which
+ *      completed the job. So dependent stages never run on the timer thread enforcing the deadlines,
+ *      nor hold up the worker thread of the job.</li>
+ *  <li>Dependent stages which complete along with this future see the {@link FastThreadContext} of
+ *      the thread that submitted the jobs. So jobs created in those stages inherit it as well.</li>
+ * </ul>
+ *
+ * @author Ram Lakshmanan
+ */
+public class JobFuture<T> extends CompletableFuture<T> {
+
+	private final FastThreadExecutor executor;
+
+	private final List<TimerFutureTask> futureTasks;
+
+	private final long timeOutPeriod;
+
+	private JobFuture(FastThreadExecutor executor, List<TimerFutureTask> futureTasks, long timeOutPeriod) {
+
+		this.executor = executor;
+		this.futureTasks = futureTasks;
+		this.timeOutPeriod = timeOutPeriod;
+	}
+
+	/**
+	 * @return	future which completes with the result of the task.
+	 */
+	static JobFuture<JobResult> forTask(FastThreadExecutor executor, final TimerFutureTask futureTask, long timeOutPeriod) {
+
+		List<TimerFutureTask> futureTasks = new ArrayList<TimerFutureTask>(1);
+		futureTasks.add(futureTask);
+
+		final JobFuture<JobResult> jobFuture = new JobFuture<JobResult>(executor, futureTasks, timeOutPeriod);
+		final FastThreadContext context = futureTask.getJob().getFastThreadContext();
+
+		futureTask.addCompletionListener(new Runnable() {
+			public void run() {
+				jobFuture.completeAsync(FastThreadExecutor.getResult(futureTask), context);
+			}
+		});
+
+		return jobFuture;
+	}
+
+	/**
+	 * @return	future which completes with the results of all the tasks, once all of them complete.
+	 * 			Results are in the same order as the tasks.
+	 */
+	static JobFuture<List<JobResult>> forTasks(FastThreadExecutor executor, final List<TimerFutureTask> futureTasks, long timeOutPeriod) {
+
+		final JobFuture<List<JobResult>> jobFuture = new JobFuture<List<JobResult>>(executor, futureTasks, timeOutPeriod);
+		final FastThreadContext context = futureTasks.get(0).getJob().getFastThreadContext();
+		final AtomicInteger pendingCount = new AtomicInteger(futureTasks.size());
+
+		Runnable countDown = new Runnable() {
+			public void run() {
+
+				if (pendingCount.decrementAndGet() != 0) {
+					return;
+				}
+
+				List<JobResult> results = new ArrayList<JobResult>(futureTasks.size());
+				for (TimerFutureTask futureTask : futureTasks) {
+					results.add(FastThreadExecutor.getResult(futureTask));
+				}
+				jobFuture.completeAsync(results, context);
+			}
+		};
+
+		for (TimerFutureTask futureTask : futureTasks) {
+			futureTask.addCompletionListener(countDown);
+		}
+
+		return jobFuture;
+	}
+
+	/**
+	 * Completes the future on the executor. If the executor rejects it (i.e. it's saturated or shut
+	 * down), future is completed in the calling thread instead, so that it's never left incomplete.
+	 */
+	private void completeAsync(final T value, final FastThreadContext context) {
+
+		Runnable completion = new Runnable() {
+			public void run() {
+				completeInContext(value, context);
+			}
+		};
+
+		try {
+			executor.getExecutorService().execute(completion);
+		} catch (RuntimeException e) {
+			completion.run();
+		}
+	}
+
+	/**
+	 * Completes the future with FastThreadContext of the submitting thread installed, as the
+	 * dependent stages are run by the completing thread.
+	 */
+	private void completeInContext(T value, FastThreadContext context) {
+
+		FastThreadContext previousContext = FastThreadContext.current();
+		FastThreadContext.setMondeeContext(context);
+		try {
+			complete(value);
+		} finally {
+			FastThreadContext.setMondeeContext(previousContext);
+		}
+	}
+
+	/**
+	 * Cancels the future and aborts the jobs which haven't completed yet.
+	 */
+	@Override
+	public boolean cancel(boolean mayInterruptIfRunning) {
+
+		boolean cancelled = super.cancel(mayInterruptIfRunning);
+		if (cancelled) {
+			executor.abandonTasks(futureTasks, timeOutPeriod);
+		}
+
+		return cancelled;
+	}
+
+	/**
+	 * @return	tasks whose results this future is tracking.
+	 */
+	public List<TimerFutureTask> getFutureTasks() {
+		return futureTasks;
+	}
+}
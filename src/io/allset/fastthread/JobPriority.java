@@ -0,0 +1,38 @@
+/*
+ * Copyright [2015] [Tier1app LLC]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package io.allset.fastthread;
+
+/**
+ * Priority class of a {@link Job}. Honored by executors which order the queued jobs,
+ * refer {@link PriorityFastThreadExecutor}. Other executors process jobs in FIFO order.
+ *
+ * @author Ram Lakshmanan
+ */
+public enum JobPriority {
+
+	/**
+	 * Jobs on which a user is waiting.
+	 */
+	INTERACTIVE,
+
+	NORMAL,
+
+	/**
+	 * Batch jobs, reports & such, which can wait as long as their deadline allows.
+	 */
+	BACKGROUND
+}
@@ -27,6 +27,12 @@ public class JobResult {
 
 	private Exception exception;
 
+	/**
+	 * Position of the job in the list of jobs that was submitted. '-1' if
+	 * it's not known.
+	 */
+	private int jobIndex = -1;
+
 
 	public JobResult() {
 	}
@@ -70,6 +76,12 @@ public class JobResult {
 	public void setValue(Object value) {
 		this.value = value;
 	}
+	public int getJobIndex() {
+		return jobIndex;
+	}
+	public void setJobIndex(int jobIndex) {
+		this.jobIndex = jobIndex;
+	}
     //++++++++++++++++++++++++++++++++++++++++++++++++
 	// End: Simple Getters/Setters
 	//++++++++++++++++++++++++++++++++++++++++++++++++
@@ -0,0 +1,184 @@
+/*
+ * Copyright [2015] [Tier1app LLC]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package io.allset.fastthread;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Hands out results of a batch of jobs in the order in which the jobs complete, rather than
+ * the order in which they are submitted. Thus results of fast jobs can be consumed while
+ * slow jobs are still executing. Position of the job in the submitted list is available
+ * through {@link JobResult#getJobIndex()}.
+ *
+ * All the jobs of the stream share one deadline. Once the deadline passes, jobs which haven't
+ * completed are cancelled and handed out with TimeoutException.
+ *
+ * @author Ram Lakshmanan
+ */
+public class JobResultStream implements Iterator<JobResult> {
+
+	private final FastThreadExecutor executor;
+
+	private final List<TimerFutureTask> futureResults;
+
+	private final long timeOutPeriod;
+
+	/**
+	 * {@link System#nanoTime()} by which all the jobs should complete. Ignored if
+	 * timeOutPeriod is negative, i.e. there is no timeout.
+	 */
+	private final long deadline;
+
+	/**
+	 * Result of each job is published only once, either by the completing job or
+	 * by the expiry of the deadline, whichever claims it first.
+	 */
+	private final AtomicIntegerArray claimed;
+
+	private final BlockingQueue<JobResult> completedResults = new LinkedBlockingQueue<JobResult>();
+
+	private int deliveredCount;
+
+	private boolean expired;
+
+	JobResultStream(FastThreadExecutor executor, List<TimerFutureTask> futureResults, long timeOutPeriod) {
+
+		this.executor = executor;
+		this.futureResults = futureResults;
+		this.timeOutPeriod = timeOutPeriod;
+		this.deadline = timeOutPeriod < 0 ? 0 : executor.getBatchDeadline(futureResults, timeOutPeriod);
+		this.claimed = new AtomicIntegerArray(futureResults.size());
+
+		for (int index = 0; index < futureResults.size(); ++index) {
+
+			final int jobIndex = index;
+			final TimerFutureTask futureTask = futureResults.get(index);
+			futureTask.addCompletionListener(new Runnable() {
+				public void run() {
+					publish(jobIndex, FastThreadExecutor.getResult(futureTask));
+				}
+			});
+		}
+	}
+
+	public boolean hasNext() {
+
+		return deliveredCount < futureResults.size();
+	}
+
+	/**
+	 * Blocks till the next job completes or till the deadline passes.
+	 */
+	public JobResult next() {
+
+		if (!hasNext()) {
+			throw new NoSuchElementException("All the results are already handed out");
+		}
+
+		JobResult result = completedResults.poll();
+		while (result == null) {
+
+			try {
+
+				if (expired || timeOutPeriod < 0) {
+
+					result = completedResults.take();
+				} else {
+
+					long remainingTime = deadline - System.nanoTime();
+					if (remainingTime > 0) {
+
+						result = completedResults.poll(remainingTime, TimeUnit.NANOSECONDS);
+					} else {
+
+						expire();
+						result = completedResults.poll();
+					}
+				}
+			} catch (InterruptedException e) {
+
+				Thread.currentThread().interrupt();
+				abort(e);
+				result = completedResults.poll();
+			}
+		}
+
+		++deliveredCount;
+		return result;
+	}
+
+	public void remove() {
+		throw new UnsupportedOperationException("remove");
+	}
+
+	/**
+	 * Publishes the result of job, if it's not already published.
+	 */
+	private void publish(int jobIndex, JobResult result) {
+
+		if (claimed.compareAndSet(jobIndex, 0, 1)) {
+
+			result.setJobIndex(jobIndex);
+			completedResults.add(result);
+		}
+	}
+
+	/**
+	 * Deadline has passed. Cancel all the jobs which haven't completed yet.
+	 */
+	private void expire() {
+
+		expired = true;
+		for (int index = 0; index < futureResults.size(); ++index) {
+
+			TimerFutureTask futureTask = futureResults.get(index);
+
+			// Completed jobs would be published by their completion listener.
+			if (futureTask.isDone() || claimed.get(index) != 0) {
+				continue;
+			}
+
+			futureTask.abandon(timeOutPeriod);
+
+			TimeoutException e = TimerFutureTask.newTimeoutException(timeOutPeriod);
+			executor.handleTimeOutException(e);
+			publish(index, new JobResult(e));
+		}
+	}
+
+	/**
+	 * Caller thread got interrupted. Jobs which haven't completed are handed out
+	 * with the interruption.
+	 */
+	private void abort(InterruptedException e) {
+
+		expired = true;
+		for (int index = 0; index < futureResults.size(); ++index) {
+
+			if (!futureResults.get(index).isDone()) {
+				publish(index, new JobResult(e));
+			}
+		}
+	}
+}
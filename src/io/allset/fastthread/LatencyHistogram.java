@@ -0,0 +1,173 @@
+/*
+ * Copyright [2015] [Tier1app LLC]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package io.allset.fastthread;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Histogram of latencies, with log-linear buckets: every power of two range is split in to
+ * {@value #SUB_BUCKET_COUNT} equal buckets. Thus any recorded value is reported with a
+ * relative error of at most 1/{@value #SUB_BUCKET_COUNT}, irrespective of its magnitude,
+ * same as HDR histograms.
+ *
+ * Recording is lock-free & allocation-free: each bucket is a {@link LongAdder}, which stripes
+ * the updates across cells when worker threads contend. Hence it's cheap enough to be left
+ * turned on in production. Reads walk all the buckets, so they are meant for periodic
+ * monitoring and not for the hot path.
+ *
+ * @author Ram Lakshmanan
+ */
+public class LatencyHistogram {
+
+	private static final int SUB_BUCKET_BITS = 4;
+
+	public static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+
+	private static final int BUCKET_COUNT = (64 - SUB_BUCKET_BITS) * SUB_BUCKET_COUNT;
+
+	private final LongAdder[] buckets = new LongAdder[BUCKET_COUNT];
+
+	private final LongAdder totalCount = new LongAdder();
+
+	private final LongAdder totalValue = new LongAdder();
+
+	private final AtomicLong maxValue = new AtomicLong();
+
+	public LatencyHistogram() {
+
+		for (int index = 0; index < BUCKET_COUNT; ++index) {
+			buckets[index] = new LongAdder();
+		}
+	}
+
+	/**
+	 * @param value		Latency in micro seconds. Negative values are recorded as zero.
+	 */
+	public void record(long value) {
+
+		if (value < 0) {
+			value = 0;
+		}
+
+		buckets[getBucketIndex(value)].increment();
+		totalCount.increment();
+		totalValue.add(value);
+
+		long currentMax = maxValue.get();
+		while (value > currentMax && !maxValue.compareAndSet(currentMax, value)) {
+			currentMax = maxValue.get();
+		}
+	}
+
+	public long getCount() {
+		return totalCount.sum();
+	}
+
+	/**
+	 * @return	average of the recorded values. '0' if no value is recorded.
+	 */
+	public double getMean() {
+
+		long count = totalCount.sum();
+		return count == 0 ? 0 : (double)totalValue.sum() / count;
+	}
+
+	public long getMax() {
+		return maxValue.get();
+	}
+
+	/**
+	 * @param percentile	between 0 and 100.
+	 * @return	highest value that is equivalent (with in the precision of the histogram) to the value
+	 * 			below which the given percentile of recorded values fall. '0' if no value is recorded.
+	 */
+	public long getValueAtPercentile(double percentile) {
+
+		return getCombinedValueAtPercentile(percentile, this);
+	}
+
+	/**
+	 * @param percentile	between 0 and 100.
+	 * @return	value at the given percentile, of the values recorded in all the given histograms
+	 * 			together. '0' if no value is recorded.
+	 */
+	static long getCombinedValueAtPercentile(double percentile, LatencyHistogram... histograms) {
+
+		if (percentile < 0 || percentile > 100) {
+			throw new IllegalArgumentException("Invalid percentile: " + percentile);
+		}
+
+		long[] counts = new long[BUCKET_COUNT];
+		long count = 0;
+		long max = 0;
+		for (LatencyHistogram histogram : histograms) {
+
+			for (int index = 0; index < BUCKET_COUNT; ++index) {
+
+				long bucketCount = histogram.buckets[index].sum();
+				counts[index] += bucketCount;
+				count += bucketCount;
+			}
+			max = Math.max(max, histogram.maxValue.get());
+		}
+
+		if (count == 0) {
+			return 0;
+		}
+
+		long targetCount = Math.max(1, (long)Math.ceil(count * percentile / 100));
+		long cumulativeCount = 0;
+		for (int index = 0; index < BUCKET_COUNT; ++index) {
+
+			cumulativeCount += counts[index];
+			if (cumulativeCount >= targetCount) {
+				return Math.min(getHighestValue(index), max);
+			}
+		}
+
+		return max;
+	}
+
+	static int getBucketIndex(long value) {
+
+		if (value < SUB_BUCKET_COUNT) {
+			return (int)value;
+		}
+
+		int shift = (63 - Long.numberOfLeadingZeros(value)) - SUB_BUCKET_BITS;
+		// Leading bit is implied, so (value >>> shift) falls in [SUB_BUCKET_COUNT, 2 * SUB_BUCKET_COUNT).
+		return (shift + 1) * SUB_BUCKET_COUNT + (int)((value >>> shift) - SUB_BUCKET_COUNT);
+	}
+
+	static long getHighestValue(int bucketIndex) {
+
+		if (bucketIndex < SUB_BUCKET_COUNT) {
+			return bucketIndex;
+		}
+
+		int shift = bucketIndex / SUB_BUCKET_COUNT - 1;
+		long lowestValue = (long)(SUB_BUCKET_COUNT + bucketIndex % SUB_BUCKET_COUNT) << shift;
+		return lowestValue + (1L << shift) - 1;
+	}
+
+	@Override
+	public String toString() {
+		return "Count-" + getCount() + ", Mean-" + (long)getMean() + ", P50-" + getValueAtPercentile(50)
+				+ ", P99-" + getValueAtPercentile(99) + ", Max-" + getMax();
+	}
+}
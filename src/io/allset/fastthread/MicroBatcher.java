@@ -0,0 +1,445 @@
+/*
+ * Copyright [2015] [Tier1app LLC]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package io.allset.fastthread;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Groups many small {@link BatchableJob}s in to one downstream call. Compatible jobs (i.e. jobs with the same
+ * batch key) are collected till the batch has maxBatchSize jobs or till maxDelay micro seconds elapse from the
+ * first job, whichever happens first. Then the batch is executed as one job by the {@link FastThreadExecutor},
+ * and its results are handed back to each caller.
+ *
+ * Each caller gets its own {@link TimerFutureTask}, with its own timeout. Jobs whose callers time out before
+ * the batch is executed are left out of the batch. Batch which no caller is waiting for anymore is cancelled.
+ *
+ * @author Ram Lakshmanan
+ */
+public class MicroBatcher {
+
+	private final FastThreadExecutor executor;
+
+	private final int maxBatchSize;
+
+	/**
+	 * Period in micro seconds.
+	 */
+	private final long maxDelay;
+
+	/**
+	 * Batches which are still collecting jobs, keyed by batch key.
+	 */
+	private final ConcurrentMap<Object, Batch> openBatches = new ConcurrentHashMap<Object, Batch>();
+
+	/**
+	 * Flushes the batches whose delay has elapsed. Hashed wheel isn't used, as its tick is too coarse
+	 * for micro second delays.
+	 */
+	private final ScheduledExecutorService flushTimer;
+
+	/**
+	 * @param executor		Executor which executes the batches.
+	 * @param maxBatchSize
+	 * @param maxDelay		Period in micro seconds, up to which the first job of a batch waits for other jobs.
+	 */
+	public MicroBatcher(FastThreadExecutor executor, int maxBatchSize, long maxDelay) {
+
+		if (executor == null || maxBatchSize < 1 || maxDelay < 0) {
+			throw new IllegalArgumentException("Invalid Arguments");
+		}
+
+		this.executor = executor;
+		this.maxBatchSize = maxBatchSize;
+		this.maxDelay = maxDelay;
+
+		final String threadName = executor.getPoolName() + "-Batcher";
+		this.flushTimer = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+			public Thread newThread(Runnable runnable) {
+
+				Thread thread = new Thread(runnable, threadName);
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+	}
+
+	/**
+	 * Adds the job to the open batch of its batch key.
+	 *
+	 * @param job
+	 * @param timeOutPeriod		Period in milliseconds. '-1' if there is no timeout.
+	 * @return	future result on which client thread can wait.
+	 */
+	public TimerFutureTask submit(BatchableJob job, long timeOutPeriod) {
+
+		if (job == null) {
+			throw new IllegalArgumentException("Callable Job is empty!");
+		}
+
+		Object batchKey = job.getBatchKey();
+		BatchedTask batchedTask = new BatchedTask(job, timeOutPeriod);
+
+		while (true) {
+
+			Batch batch = openBatches.get(batchKey);
+			if (batch == null) {
+
+				batch = new Batch(batchKey);
+				if (openBatches.putIfAbsent(batchKey, batch) != null) {
+					continue;
+				}
+				batch.scheduleFlush();
+			}
+
+			int batchSize = batch.add(batchedTask);
+			if (batchSize < 0) {
+
+				// Batch got flushed in the mean time.
+				openBatches.remove(batchKey, batch);
+				continue;
+			}
+
+			// Batch was closed by add(), so it's executed by this thread alone.
+			if (batchSize == maxBatchSize) {
+				batch.execute();
+			}
+
+			return batchedTask;
+		}
+	}
+
+	/**
+	 * Executes a job, as a part of a batch, within a specified period of time.
+	 *
+	 * @param job
+	 * @param timeOutPeriod		Period in milliseconds
+	 * @return
+	 */
+	public JobResult executeJob(BatchableJob job, long timeOutPeriod) {
+
+		return executor.getResult(submit(job, timeOutPeriod), timeOutPeriod);
+	}
+
+	/**
+	 * Executes a list of Jobs, as a part of batches, within a specified period of time. Results are
+	 * returned in the same order as the jobs.
+	 *
+	 * @param jobs
+	 * @param timeOutPeriod		Period in milliseconds
+	 * @return
+	 */
+	public List<JobResult> executeJobs(List<? extends BatchableJob> jobs, long timeOutPeriod) {
+
+		if (jobs == null || jobs.size() == 0) {
+			throw new IllegalArgumentException("Callable Jobs list is empty!");
+		}
+
+		List<TimerFutureTask> futureResults = new ArrayList<TimerFutureTask>(jobs.size());
+		for (BatchableJob job : jobs) {
+			futureResults.add(submit(job, timeOutPeriod));
+		}
+
+		return executor.getResults(futureResults, timeOutPeriod);
+	}
+
+	/**
+	 * Stops flushing the batches on their delay. Executor isn't shut down.
+	 */
+	public void shutdown() {
+
+		flushTimer.shutdownNow();
+	}
+
+	public int getMaxBatchSize() {
+		return maxBatchSize;
+	}
+
+	public long getMaxDelay() {
+		return maxDelay;
+	}
+
+	/**
+	 * Jobs of one batch key.
+	 */
+	private final class Batch implements Runnable {
+
+		private final Object batchKey;
+
+		private final List<BatchedTask> batchedTasks = new ArrayList<BatchedTask>(maxBatchSize);
+
+		/**
+		 * Number of tasks, whose callers are still waiting.
+		 */
+		private final AtomicInteger pendingCount = new AtomicInteger();
+
+		private boolean closed;
+
+		private ScheduledFuture<?> scheduledFlush;
+
+		private volatile TimerFutureTask batchTask;
+
+		Batch(Object batchKey) {
+			this.batchKey = batchKey;
+		}
+
+		synchronized void scheduleFlush() {
+
+			if (!closed) {
+				scheduledFlush = flushTimer.schedule(this, maxDelay, TimeUnit.MICROSECONDS);
+			}
+		}
+
+		/**
+		 * Batch is closed along with the task which fills it, so that no other task gets in before
+		 * the batch is executed. Caller must then execute the batch.
+		 *
+		 * @return	size of the batch, after adding the task. '-1' if the batch is already flushed.
+		 */
+		synchronized int add(BatchedTask batchedTask) {
+
+			if (closed) {
+				return -1;
+			}
+
+			batchedTask.batch = this;
+			pendingCount.incrementAndGet();
+			batchedTasks.add(batchedTask);
+			if (batchedTasks.size() == maxBatchSize) {
+				close();
+			}
+			return batchedTasks.size();
+		}
+
+		/**
+		 * Must be invoked holding the lock.
+		 */
+		private void close() {
+
+			closed = true;
+			if (scheduledFlush != null) {
+				scheduledFlush.cancel(false);
+			}
+		}
+
+		/**
+		 * Delay of the batch has elapsed.
+		 */
+		public void run() {
+			flush();
+		}
+
+		/**
+		 * Executes the batch, unless it's already flushed.
+		 */
+		void flush() {
+
+			synchronized (this) {
+
+				if (closed) {
+					return;
+				}
+				close();
+			}
+
+			execute();
+		}
+
+		/**
+		 * Executes the closed batch. Invoked only by the thread which closed it.
+		 */
+		void execute() {
+
+			openBatches.remove(batchKey, this);
+
+			// Callers might have timed out, while the batch was open.
+			if (pendingCount.get() == 0) {
+				return;
+			}
+
+			final BatchExecution batchExecution = new BatchExecution(batchedTasks);
+			final TimerFutureTask task = executor.dropJobToExecutor(batchExecution);
+			task.addCompletionListener(new Runnable() {
+				public void run() {
+					batchExecution.complete(task);
+				}
+			});
+
+			batchTask = task;
+			if (pendingCount.get() == 0) {
+				abandon(task);
+			}
+		}
+
+		/**
+		 * Caller of one of the tasks has got its result or has given up.
+		 */
+		void leave() {
+
+			if (pendingCount.decrementAndGet() == 0) {
+
+				TimerFutureTask task = batchTask;
+				if (task != null) {
+					abandon(task);
+				}
+			}
+		}
+
+		private void abandon(TimerFutureTask task) {
+
+			if (!task.isDone()) {
+				task.abandon(-1);
+			}
+		}
+	}
+
+	/**
+	 * Executes the jobs of a batch as one downstream call.
+	 */
+	private static final class BatchExecution extends Job {
+
+		private final List<BatchedTask> batchedTasks;
+
+		BatchExecution(List<BatchedTask> batchedTasks) {
+
+			this.batchedTasks = batchedTasks;
+
+			// Batch shares the partition & priority of its jobs.
+			BatchableJob firstJob = batchedTasks.get(0).job;
+			setPartition(firstJob.getPartition());
+			setPriority(firstJob.getPriority());
+		}
+
+		/**
+		 * @return	results aligned with the batched tasks. null for the jobs left out of the batch.
+		 */
+		@Override
+		public Object[] doWork() throws Exception {
+
+			List<BatchableJob> jobs = new ArrayList<BatchableJob>(batchedTasks.size());
+			for (BatchedTask batchedTask : batchedTasks) {
+
+				if (!batchedTask.isDone()) {
+					jobs.add(batchedTask.job);
+				}
+			}
+
+			Object[] results = new Object[batchedTasks.size()];
+			if (jobs.isEmpty()) {
+				return results;
+			}
+
+			List<?> jobResults = jobs.get(0).doBatchWork(jobs);
+			if (jobResults == null || jobResults.size() != jobs.size()) {
+				throw new IllegalStateException("Batch of " + jobs.size() + " jobs returned "
+						+ (jobResults == null ? "no" : String.valueOf(jobResults.size())) + " results");
+			}
+
+			int resultIndex = 0;
+			for (int index = 0; index < batchedTasks.size(); ++index) {
+
+				if (resultIndex < jobs.size() && batchedTasks.get(index).job == jobs.get(resultIndex)) {
+					results[index] = jobResults.get(resultIndex++);
+				}
+			}
+
+			return results;
+		}
+
+		@Override
+		public void onTimeout() {
+
+			for (BatchedTask batchedTask : batchedTasks) {
+				batchedTask.job.cancel();
+			}
+		}
+
+		@Override
+		public void onInterrupt() {
+
+			for (BatchedTask batchedTask : batchedTasks) {
+				batchedTask.job.onInterrupt();
+			}
+		}
+
+		/**
+		 * Hands the results of the batch to the callers.
+		 */
+		void complete(TimerFutureTask task) {
+
+			Object[] results = null;
+			Throwable failure = null;
+			try {
+				results = (Object[])task.getCompletedResult();
+			} catch (ExecutionException e) {
+				failure = e.getCause();
+			} catch (Exception e) {
+				failure = e;
+			}
+
+			for (int index = 0; index < batchedTasks.size(); ++index) {
+
+				if (failure != null) {
+					batchedTasks.get(index).setException(failure);
+				} else {
+					batchedTasks.get(index).complete(results[index]);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Task handed out to a caller. It isn't executed by a worker thread, but completed with the result
+	 * of the batch.
+	 */
+	private static final class BatchedTask extends TimerFutureTask {
+
+		private final BatchableJob job;
+
+		private volatile Batch batch;
+
+		BatchedTask(BatchableJob job, long timeOutPeriod) {
+
+			super(job, null, timeOutPeriod);
+			this.job = job;
+		}
+
+		void complete(Object result) {
+			set(result);
+		}
+
+		@Override
+		protected void done() {
+
+			super.done();
+
+			Batch currentBatch = batch;
+			if (currentBatch != null) {
+				currentBatch.leave();
+			}
+		}
+	}
+}
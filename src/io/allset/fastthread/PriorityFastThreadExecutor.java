@@ -0,0 +1,64 @@
+/*
+ * Copyright [2015] [Tier1app LLC]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package io.allset.fastthread;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+
+/**
+ * Executor which, instead of processing queued jobs in FIFO order, processes them in the order of
+ * their priority class (refer {@link Job#setPriority(JobPriority)}) and deadline (timeout passed to
+ * executeJobs). Thus interactive jobs don't wait behind a backlog of background jobs, while the
+ * background jobs still make progress. Refer {@link DeadlineAwareQueue} for the scheduling policy.
+ *
+ * @author Ram Lakshmanan
+ */
+public class PriorityFastThreadExecutor extends FastThreadExecutor {
+
+	public PriorityFastThreadExecutor(String poolName, int minThreads, int queueCapacity) {
+		super(poolName, minThreads, queueCapacity);
+	}
+
+	public PriorityFastThreadExecutor(String poolName, int minThreads, int maxThreads, int queueCapacity) {
+		super(poolName, minThreads, maxThreads, queueCapacity);
+	}
+
+	@Override
+	protected BlockingQueue<Runnable> createWorkQueue(int queueCapacity) {
+
+		return new DeadlineAwareQueue(queueCapacity);
+	}
+
+	public DeadlineAwareQueue getWorkQueue() {
+
+		return (DeadlineAwareQueue)((ThreadPoolExecutor)getExecutorService()).getQueue();
+	}
+
+	/**
+	 * @param priorityOffset	Period in milliseconds. Refer {@link DeadlineAwareQueue#setPriorityOffset(long)}.
+	 */
+	public void setPriorityOffset(long priorityOffset) {
+		getWorkQueue().setPriorityOffset(priorityOffset);
+	}
+
+	/**
+	 * @param defaultTimeOutPeriod	Period in milliseconds. Refer {@link DeadlineAwareQueue#setDefaultTimeOutPeriod(long)}.
+	 */
+	public void setDefaultTimeOutPeriod(long defaultTimeOutPeriod) {
+		getWorkQueue().setDefaultTimeOutPeriod(defaultTimeOutPeriod);
+	}
+}
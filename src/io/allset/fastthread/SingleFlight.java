@@ -0,0 +1,156 @@
+/*
+ * Copyright [2015] [Tier1app LLC]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package io.allset.fastthread;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * One in-flight execution of a job, shared by all the callers who submit identical jobs (i.e. jobs with
+ * the same {@link Job#getCoalescingKey()}) while it's executing. Refer {@link FastThreadExecutor}.
+ *
+ * Each caller gets its own task, which isn't executed, but is completed with the result of the shared
+ * task. Thus each caller has its own timeout: when a caller times out, only its task is abandoned. Shared
+ * task is abandoned once every caller has left.
+ *
+ * @author Ram Lakshmanan
+ */
+final class SingleFlight {
+
+	private final TimerFutureTask sharedTask;
+
+	private final long timeOutPeriod;
+
+	/**
+	 * Number of callers waiting for the shared task. '0' once every caller has left, after which
+	 * no one can join.
+	 */
+	private final AtomicInteger callerCount = new AtomicInteger(1);
+
+	/**
+	 * @param sharedTask	Task executing the job of the first caller, who has joined already.
+	 */
+	SingleFlight(TimerFutureTask sharedTask, long timeOutPeriod) {
+
+		this.sharedTask = sharedTask;
+		this.timeOutPeriod = timeOutPeriod;
+	}
+
+	/**
+	 * @return	false if every caller has left or the shared task has completed. New flight should be
+	 * 			started in such case.
+	 */
+	boolean join() {
+
+		while (true) {
+
+			int current = callerCount.get();
+			if (current == 0 || sharedTask.isDone()) {
+				return false;
+			}
+
+			if (callerCount.compareAndSet(current, current + 1)) {
+				return true;
+			}
+		}
+	}
+
+	/**
+	 * Must be invoked once per successful {@link #join()}, as well as for the first caller.
+	 *
+	 * @return	task of the caller, which completes along with the shared task.
+	 */
+	TimerFutureTask newCallerTask(long callerTimeOutPeriod) {
+
+		CallerTask callerTask = new CallerTask(callerTimeOutPeriod);
+		sharedTask.addCompletionListener(callerTask.sharedTaskListener);
+		return callerTask;
+	}
+
+	TimerFutureTask getSharedTask() {
+		return sharedTask;
+	}
+
+	/**
+	 * Caller's task has completed, either with the result of the shared task or because the
+	 * caller gave up on it.
+	 */
+	private void leave(CallerTask callerTask) {
+
+		sharedTask.removeCompletionListener(callerTask.sharedTaskListener);
+
+		if (callerCount.decrementAndGet() == 0 && !sharedTask.isDone()) {
+
+			// No one is waiting for the shared task anymore.
+			sharedTask.abandon(timeOutPeriod);
+		}
+	}
+
+	/**
+	 * Task handed out to a caller. It's never executed by a worker thread, hence it doesn't hold on to
+	 * any resource of the executor.
+	 */
+	private final class CallerTask extends TimerFutureTask {
+
+		private final Runnable sharedTaskListener = new Runnable() {
+			public void run() {
+				complete();
+			}
+		};
+
+		CallerTask(long callerTimeOutPeriod) {
+			super(new CoalescedJob(), null, callerTimeOutPeriod);
+		}
+
+		/**
+		 * Shared task has completed.
+		 */
+		private void complete() {
+
+			try {
+				set(sharedTask.getCompletedResult());
+			} catch (ExecutionException e) {
+				setException(e.getCause());
+			} catch (Exception e) {
+				setException(e);
+			}
+		}
+
+		@Override
+		protected void done() {
+
+			super.done();
+			leave(this);
+		}
+	}
+
+	/**
+	 * Stands in for the caller's job in the caller's task. Caller timing out shouldn't cancel the
+	 * shared job, which other callers are still waiting for.
+	 */
+	private static final class CoalescedJob extends Job {
+
+		@Override
+		public Object doWork() throws Exception {
+			throw new UnsupportedOperationException("Coalesced job is executed through the shared task");
+		}
+
+		@Override
+		public void onTimeout() {
+		}
+	}
+}
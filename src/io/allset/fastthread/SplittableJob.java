@@ -0,0 +1,174 @@
+/*
+ * Copyright [2015] [Tier1app LLC]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package io.allset.fastthread;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Job which can split itself in to child jobs, whose results are merged in to the result of this
+ * job. Meant for recursive fan-outs, such as crawling paginated APIs.
+ *
+ * When it's executed by an executor created through {@link FastThreadExecutor#newForkJoinExecutor(String, int)},
+ * child jobs are forked to the local queue of the worker thread and idle worker threads steal them. While
+ * the parent waits for its children, its worker thread executes pending child jobs instead of blocking. So
+ * fan-outs of any depth neither contend on a shared queue nor starve the pool. With any other executor,
+ * child jobs are executed one after the other in the parent's worker thread.
+ *
+ * Timeout & abort semantics are same as any other job: once the caller times out on this job, it's
+ * propagated to all the child jobs, and the ones which haven't started won't be executed. Child jobs
+ * inherit the {@link FastThreadContext} of the parent.
+ *
+ * @author Ram Lakshmanan
+ */
+public abstract class SplittableJob extends Job {
+
+	/**
+	 * Child jobs, which are yet to complete. Used to propagate the abort.
+	 */
+	private final List<SplittableJob> children = Collections.synchronizedList(new ArrayList<SplittableJob>());
+
+	/**
+	 * @return	true if this job should be split in to child jobs, instead of being computed directly.
+	 */
+	protected abstract boolean shouldSplit();
+
+	/**
+	 * @return	child jobs, which together cover the work of this job.
+	 */
+	protected abstract List<? extends SplittableJob> split();
+
+	/**
+	 * @param childResults	results of the child jobs, in the same order as returned by {@link #split()}.
+	 * @return	result of this job.
+	 */
+	protected abstract Object merge(List<JobResult> childResults) throws Exception;
+
+	/**
+	 * Does the work of this job, without splitting it any further.
+	 */
+	protected abstract Object computeDirectly() throws Exception;
+
+	@Override
+	public final Object doWork() throws Exception {
+
+		if (!shouldSplit()) {
+			return computeDirectly();
+		}
+
+		List<? extends SplittableJob> childJobs = split();
+		children.addAll(childJobs);
+
+		// Caller might have timed out while child jobs were being created.
+		if (isAbort()) {
+			cancelChildren();
+		}
+
+		try {
+
+			List<ChildTask> childTasks = new ArrayList<ChildTask>(childJobs.size());
+			for (SplittableJob childJob : childJobs) {
+				childTasks.add(new ChildTask(childJob));
+			}
+
+			if (ForkJoinTask.inForkJoinPool()) {
+
+				ForkJoinTask.invokeAll(childTasks);
+			} else {
+
+				for (ChildTask childTask : childTasks) {
+					childTask.invoke();
+				}
+			}
+
+			List<JobResult> childResults = new ArrayList<JobResult>(childTasks.size());
+			for (ChildTask childTask : childTasks) {
+				childResults.add(childTask.join());
+			}
+
+			return merge(childResults);
+		} finally {
+
+			children.removeAll(childJobs);
+		}
+	}
+
+	/**
+	 * Aborts this job & all its child jobs.
+	 */
+	@Override
+	public void cancel() {
+
+		super.cancel();
+		cancelChildren();
+	}
+
+	/**
+	 * Gives all the child jobs which are being executed a chance to release their resources as well.
+	 */
+	@Override
+	public void onInterrupt() {
+
+		synchronized (children) {
+			for (SplittableJob childJob : children) {
+				childJob.onInterrupt();
+			}
+		}
+	}
+
+	private void cancelChildren() {
+
+		synchronized (children) {
+			for (SplittableJob childJob : children) {
+				if (!childJob.isAbort()) {
+					childJob.cancel();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Executes a child job as part of the fork/join computation of the parent.
+	 */
+	private static class ChildTask extends RecursiveTask<JobResult> {
+
+		private static final long serialVersionUID = 1L;
+
+		private final SplittableJob job;
+
+		ChildTask(SplittableJob job) {
+			this.job = job;
+		}
+
+		@Override
+		protected JobResult compute() {
+
+			// Child job may be executed in the parent's worker thread, whose context shouldn't be cleared.
+			FastThreadContext parentContext = FastThreadContext.current();
+			try {
+				return new JobResult(job.call());
+			} catch (Exception e) {
+				return new JobResult(e);
+			} finally {
+				FastThreadContext.setMondeeContext(parentContext);
+			}
+		}
+	}
+}
@@ -16,10 +16,19 @@
  */
 package io.allset.fastthread;
 
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.FutureTask;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import io.allset.util.ExceptionUtil;
 
 /**
  *
@@ -27,10 +36,45 @@ import java.util.concurrent.TimeoutException;
  */
 public class TimerFutureTask extends FutureTask<Object> {
 
+	private static final Logger s_logger = LogManager.getLogger(TimerFutureTask.class);
+
+	private static final AtomicIntegerFieldUpdater<TimerFutureTask> STARTED =
+			AtomicIntegerFieldUpdater.newUpdater(TimerFutureTask.class, "started");
+
+	private static final AtomicReferenceFieldUpdater<TimerFutureTask, AdaptiveConcurrencyLimiter> PERMIT =
+			AtomicReferenceFieldUpdater.newUpdater(TimerFutureTask.class, AdaptiveConcurrencyLimiter.class, "permit");
+
+	private static final AtomicReferenceFieldUpdater<TimerFutureTask, Bulkhead> SLOT =
+			AtomicReferenceFieldUpdater.newUpdater(TimerFutureTask.class, Bulkhead.class, "slot");
+
+	private static final AtomicReferenceFieldUpdater<TimerFutureTask, AbandonAwareQueue> QUEUE_SLOT =
+			AtomicReferenceFieldUpdater.newUpdater(TimerFutureTask.class, AbandonAwareQueue.class, "queueSlot");
+
+	private static final AtomicReferenceFieldUpdater<TimerFutureTask, CircuitBreaker> BREAKER =
+			AtomicReferenceFieldUpdater.newUpdater(TimerFutureTask.class, CircuitBreaker.class, "breaker");
+
+	@SuppressWarnings("rawtypes")
+	private static final AtomicReferenceFieldUpdater<TimerFutureTask, Queue> LISTENERS =
+			AtomicReferenceFieldUpdater.newUpdater(TimerFutureTask.class, Queue.class, "completionListeners");
+
+	private static final AtomicIntegerFieldUpdater<TimerFutureTask> INTERRUPT_STATE =
+			AtomicIntegerFieldUpdater.newUpdater(TimerFutureTask.class, "interruptState");
+
+	private static final int NOT_INTERRUPTED = 0;
+	private static final int INTERRUPTING = 1;
+	private static final int INTERRUPTED = 2;
+
+	/**
+	 * {@link System#nanoTime()} at which TimeAwareFutureTask is created. Deadlines are measured
+	 * from it, so that they aren't affected by changes to the wall clock.
+	 */
+	private final long startNanoTime;
+
 	/**
-	 * Time at which TimeAwareFutureTask is created.
+	 * Period (in milli seconds) within which caller expects the task to complete. '-1' if
+	 * caller has no timeout.
 	 */
-	private long startTime;
+	private final long timeOutPeriod;
 
 	/**
 	 * Hold on to the reference of Callable. So that it can be cancelled
@@ -38,47 +82,368 @@ public class TimerFutureTask extends FutureTask<Object> {
 	 */
 	private Job cancellableCallable;
 
+	/**
+	 * Listeners that are notified once this task completes, either normally,
+	 * exceptionally or by cancellation. Created on the first registration, as most
+	 * of the tasks don't have any listener.
+	 */
+	private volatile Queue<Runnable> completionListeners;
+
+	/**
+	 * Executor to which this task is dropped. Metrics of the task are recorded in it & interrupt
+	 * policy is taken from it.
+	 */
+	private final FastThreadExecutor executor;
+
+	/**
+	 * '1' once a worker thread has picked up this task or once this task is
+	 * abandoned before any worker thread could pick it up. Whoever sets it
+	 * first wins.
+	 */
+	private volatile int started;
+
+	/**
+	 * True if the framework has completed the task with TimeoutException: either because it
+	 * was abandoned before any worker thread could pick it up or because its deadline expired.
+	 */
+	private volatile boolean abandoned;
+
+	/**
+	 * Registration with the timer, which expires this task on its deadline. null if the
+	 * task doesn't have a deadline.
+	 */
+	private volatile HashedWheelTimer.Timeout expiryTimeout;
+
+	/**
+	 * Limiter from which this task holds a permit. null if task doesn't hold a permit.
+	 */
+	private volatile AdaptiveConcurrencyLimiter permit;
+
+	/**
+	 * Partition in which this task holds a slot. null if task doesn't hold a slot.
+	 */
+	private volatile Bulkhead slot;
+
+	/**
+	 * Queue in which this task holds a slot, while it waits for a worker thread. null once the task
+	 * is dequeued or abandoned.
+	 */
+	private volatile AbandonAwareQueue queueSlot;
+
+	/**
+	 * Circuit breaker to which the outcome of this task is reported. null once the outcome is reported.
+	 */
+	private volatile CircuitBreaker breaker;
+
+	/**
+	 * Kind of permit ({@link CircuitBreaker#PERMITTED} or {@link CircuitBreaker#PROBE}) handed out by the breaker.
+	 */
+	private int breakerPermit;
+
+	/**
+	 * Worker thread which is executing this task. null if task isn't executing.
+	 */
+	private volatile Thread runner;
+
+	/**
+	 * Whether the worker thread has been interrupted, because the caller timed out.
+	 */
+	private volatile int interruptState = NOT_INTERRUPTED;
+
 	protected TimerFutureTask(Job pCallable)  {
+		this(pCallable, null);
+	}
+
+	protected TimerFutureTask(Job pCallable, FastThreadExecutor pExecutor)  {
+		this(pCallable, pExecutor, -1);
+	}
+
+	protected TimerFutureTask(Job pCallable, FastThreadExecutor pExecutor, long pTimeOutPeriod)  {
 		super(pCallable);
 		this.cancellableCallable = pCallable;
-		startTime = System.currentTimeMillis();
+		this.executor = pExecutor;
+		this.timeOutPeriod = pTimeOutPeriod;
+		startNanoTime = System.nanoTime();
+	}
+
+	/**
+	 * @return	{@link System#nanoTime()} at which this task was created. Only meaningful
+	 * 			when compared with other nanoTime values.
+	 */
+	public long getStartNanoTime() {
+		return startNanoTime;
+	}
+
+	/**
+	 * @return	true if caller has specified a timeout for this task.
+	 */
+	public boolean hasDeadline() {
+		return timeOutPeriod >= 0;
+	}
+
+	/**
+	 * @return	{@link System#nanoTime()} by which caller expects this task to complete.
+	 * 			Only meaningful if {@link #hasDeadline()}.
+	 */
+	public long getDeadline() {
+		return startNanoTime + TimeUnit.MILLISECONDS.toNanos(timeOutPeriod);
 	}
 
+    /**
+     * Registers a listener which is run once this task completes. If the task has
+     * already completed, then listener is run right away in the calling thread.
+     * Otherwise it's run by the thread which completes the task: worker thread, caller
+     * thread or an expiry thread of the timer. Listener shouldn't block, as it holds up
+     * that thread.
+     *
+     * @param listener
+     */
+    @SuppressWarnings("unchecked")
+    public void addCompletionListener(Runnable listener) {
+
+        Queue<Runnable> listeners = completionListeners;
+        if (listeners == null) {
+
+            LISTENERS.compareAndSet(this, null, new ConcurrentLinkedQueue<Runnable>());
+            listeners = completionListeners;
+        }
+
+        listeners.add(listener);
+
+        // Task might have completed before the listener got registered. In such case
+        // whoever removes the listener from the queue is responsible for running it.
+        if (isDone() && listeners.remove(listener)) {
+            listener.run();
+        }
+    }
+
+    public void removeCompletionListener(Runnable listener) {
+
+        Queue<Runnable> listeners = completionListeners;
+        if (listeners != null) {
+            listeners.remove(listener);
+        }
+    }
+
+    /**
+     * Expires this task once timeOutPeriod elapses, even if no caller thread is waiting for its result.
+     *
+     * @param timeOutPeriod		Period in milliseconds
+     */
+    void scheduleExpiry(long timeOutPeriod) {
+
+        expiryTimeout = HashedWheelTimer.getSharedTimer().schedule(this, timeOutPeriod);
+
+        // Task might have completed before the registration.
+        if (isDone()) {
+            expiryTimeout.cancel();
+        }
+    }
+
+    /**
+     * Deadline of the task has passed. Job is cancelled and task is completed with TimeoutException.
+     * Thus jobs whose results no one is waiting for don't pile up.
+     *
+     * @param pMillisecs Actual timeout in millis
+     */
+    void expire(long pMillisecs) {
+
+        if (isDone()) {
+            return;
+        }
+
+        // Task waiting in the queue frees its slot right away & is dropped once it reaches the
+        // head of the queue. Timer thread only flips the state, it never scans the queue.
+        if (abandon(pMillisecs)) {
+            return;
+        }
+
+        // Job is in the middle of execution. Its result, whenever it's computed, will be ignored.
+        abandoned = true;
+        super.setException(newTimeoutException(pMillisecs));
+    }
+
+    /**
+     * @return	true if caller timed out on this task or its deadline expired.
+     */
+    public boolean isTimedOut() {
+        return abandoned || cancellableCallable.isAbort();
+    }
+
+    /**
+     * Task holds the permit from the limiter, till it leaves the executor.
+     */
+    void holdPermit(AdaptiveConcurrencyLimiter limiter) {
+        permit = limiter;
+    }
+
+    /**
+     * Task holds the slot in the partition, till it leaves the executor.
+     */
+    void holdSlot(Bulkhead bulkhead) {
+        slot = bulkhead;
+    }
+
+    /**
+     * Task holds the slot in the queue, till a worker thread dequeues it or it's abandoned.
+     */
+    void holdQueueSlot(AbandonAwareQueue queue) {
+        queueSlot = queue;
+    }
+
+    AbandonAwareQueue getQueueSlot() {
+        return queueSlot;
+    }
+
+    /**
+     * @return	queue in which the slot was held. null if task wasn't holding a slot.
+     */
+    AbandonAwareQueue releaseQueueSlot() {
+        return QUEUE_SLOT.getAndSet(this, null);
+    }
+
+    /**
+     * Outcome of this task is reported to the circuit breaker, once it's known.
+     */
+    void holdBreakerPermit(CircuitBreaker circuitBreaker, int permit) {
+        breakerPermit = permit;
+        breaker = circuitBreaker;
+    }
+
+    /**
+     * Reports the outcome of this task to the circuit breaker, if it isn't reported already.
+     *
+     * @param success
+     */
+    void reportOutcome(boolean success) {
+
+        CircuitBreaker circuitBreaker = BREAKER.getAndSet(this, null);
+        if (circuitBreaker != null) {
+            circuitBreaker.release(breakerPermit, success);
+        }
+    }
+
+    /**
+     * Outcome of this task says nothing about the health of the downstream (e.g. task got rejected
+     * or caller cancelled it). It isn't reported to the circuit breaker.
+     */
+    void ignoreOutcome() {
+
+        CircuitBreaker circuitBreaker = BREAKER.getAndSet(this, null);
+        if (circuitBreaker != null) {
+            circuitBreaker.ignore(breakerPermit);
+        }
+    }
+
+    /**
+     * @return	partition in which the slot was held. null if task wasn't holding a slot.
+     */
+    Bulkhead releaseSlot() {
+        return SLOT.getAndSet(this, null);
+    }
+
+    /**
+     * Returns the permit & the slot held by this task. Invoked once the task is done with
+     * the executor: either it has finished executing or it will never be executed.
+     */
+    private void leaveExecutor(boolean dropped) {
+
+        AdaptiveConcurrencyLimiter limiter = PERMIT.getAndSet(this, null);
+        if (limiter != null) {
+            limiter.release(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanoTime), dropped);
+        }
+
+        Bulkhead bulkhead = releaseSlot();
+        if (bulkhead != null) {
+            bulkhead.release();
+        }
+    }
+
+    @Override
+    protected void done() {
+
+        HashedWheelTimer.Timeout timeout = expiryTimeout;
+        if (timeout != null) {
+            timeout.cancel();
+        }
+
+        // Task which isn't being executed by a worker thread, leaves the executor on completion:
+        // it's either rejected or abandoned. Otherwise it leaves once execution ends.
+        if (runner == null && (started == 0 || abandoned)) {
+            leaveExecutor(true);
+        }
+
+        // Task completed while waiting in the queue gives its slot back right away.
+        AbandonAwareQueue queue = releaseQueueSlot();
+        if (queue != null) {
+            queue.releaseAbandonedSlot();
+        }
+
+        // Outcome is usually reported by set/setException already. Cancellation & expiry are left.
+        if (breaker != null) {
+            reportCompletion();
+        }
+
+        // Listener registered after this point is run by the registering thread.
+        Queue<Runnable> listeners = completionListeners;
+        if (listeners == null) {
+            return;
+        }
+
+        Runnable listener;
+        while ((listener = listeners.poll()) != null) {
+            listener.run();
+        }
+    }
+
+    private void reportCompletion() {
+
+        if (isCancelled()) {
+            ignoreOutcome();
+            return;
+        }
+
+        try {
+            get();
+            reportOutcome(!isTimedOut());
+        } catch (Exception e) {
+            reportOutcome(false);
+        }
+    }
+
     /**
      * This is overridden to pass the difference in the time from when the execute was invoked
      * and the getResults was.
      *
+     * Any number of threads can wait on the same task: none of them holds a lock, and once the
+     * task has completed its result is returned right away.
+     *
      * @param pMillisecs Actual Timeout in millis
      * @return Results object.
      * @throws TimeoutException
      * @throws InterruptedException
      * @throws ExecutionException
      */
-    public synchronized Object timedGet(long pMillisecs)
+    public Object timedGet(long pMillisecs)
             throws TimeoutException, InterruptedException, ExecutionException {
 
         // If Result is already acquired then return it.
         if (isDone()) {
-            return get();
+            return getCompletedResult();
         }
 
-        long lDiffTime = 0;
-        // If the start time is not set then donot substract the time!!!
-        if( this.startTime > 0 ) {
-
-        	// Total time spend on this Job = Current Time - Start Time.
-            lDiffTime = System.currentTimeMillis() - this.startTime;
-
-            // If the diff time is greater than timeout time then throw an exception !!
-            if( lDiffTime >= pMillisecs) {
-                // If the Caller has timed out then don't execute the Job.
-                timedOut(pMillisecs);
-            }
+        // Time left till the deadline = Start Time + Timeout - Current Time.
+        long lRemainingTime = startNanoTime + TimeUnit.MILLISECONDS.toNanos(pMillisecs) - System.nanoTime();
+        if (lRemainingTime <= 0) {
+            // If the Caller has timed out then don't execute the Job.
+            timedOut(pMillisecs);
         }
 
         // Delegate the Results retrieval to the Future results!!
         try {
-            return super.get(pMillisecs-lDiffTime, TimeUnit.MILLISECONDS);
+            return super.get(lRemainingTime, TimeUnit.NANOSECONDS);
+        } catch (ExecutionException e) {
+            throw unwrapAbandonment(e);
         } catch (TimeoutException e) {
             // If the Caller has timed out then don't execute the Job.
             timedOut(pMillisecs);
@@ -97,11 +462,180 @@ public class TimerFutureTask extends FutureTask<Object> {
      */
     public void timedOut(long pMillisecs) throws TimeoutException {
 
+        abandon(pMillisecs);
+    	throw newTimeoutException(pMillisecs);
+    }
+
+    /**
+     * Caller has timed out & no one is waiting for the result of the job. Job is
+     * cancelled. If no worker thread has picked up the task yet, then it will never be
+     * executed: task is completed right away with TimeoutException.
+     *
+     * @param pMillisecs Actual timeout in millis
+     * @return	true if the task hadn't started executing. Its slot in the queue is freed right
+     * 			away, and it's never executed.
+     */
+    boolean abandon(long pMillisecs) {
+
         this.cancellableCallable.cancel();
-    	throw new TimeoutException("Time out after: "+  pMillisecs + "milli seconds");
+
+        // Timeout is counted right away, rather than when the job returns.
+        reportOutcome(false);
+
+        if (STARTED.compareAndSet(this, 0, 1)) {
+
+            ExecutorMetrics metrics = getMetrics();
+            if (metrics != null) {
+                metrics.recordAbortedBeforeRun();
+            }
+
+            abandoned = true;
+            super.setException(newTimeoutException(pMillisecs));
+            return true;
+        }
+
+        // Task is already executing.
+        if (executor != null && executor.isInterruptOnTimeout()) {
+            interruptRunner();
+        }
+
+        return false;
     }
 
+    /**
+     * Releases the worker thread executing this task: gives the job a chance to close the
+     * resource it's blocked on and interrupts the worker thread.
+     */
+    private void interruptRunner() {
+
+        if (runner == null || isDone()
+                || !INTERRUPT_STATE.compareAndSet(this, NOT_INTERRUPTED, INTERRUPTING)) {
+            return;
+        }
+
+        try {
+
+            Thread worker = runner;
+            if (worker != null) {
+
+                try {
+                    this.cancellableCallable.onInterrupt();
+                } catch (Throwable t) {
+                    s_logger.error("Failed to interrupt job " + this.cancellableCallable + ": " + ExceptionUtil.getDetails(t));
+                }
+
+                worker.interrupt();
+            }
+        } finally {
+            interruptState = INTERRUPTED;
+        }
+    }
+
+    /**
+     * @return	result of the completed task. If the task was abandoned before it could be executed,
+     * 			TimeoutException is thrown, rather than the ExecutionException wrapping it.
+     * @throws TimeoutException
+     * @throws InterruptedException
+     * @throws ExecutionException
+     */
+    Object getCompletedResult() throws TimeoutException, InterruptedException, ExecutionException {
+
+        try {
+            return get();
+        } catch (ExecutionException e) {
+            throw unwrapAbandonment(e);
+        }
+    }
+
+    private ExecutionException unwrapAbandonment(ExecutionException e) throws TimeoutException {
+
+        if (abandoned && e.getCause() instanceof TimeoutException) {
+            throw (TimeoutException)e.getCause();
+        }
+
+        return e;
+    }
+
+    @Override
+    public void run() {
+
+        // Task has been abandoned while it was waiting in the queue.
+        if (!STARTED.compareAndSet(this, 0, 1)) {
+            // Slot might have been taken after the task was abandoned.
+            leaveExecutor(true);
+            return;
+        }
+
+        ExecutorMetrics metrics = getMetrics();
+        long runStartTime = System.nanoTime();
+        if (metrics != null) {
+            metrics.recordStarted(runStartTime - startNanoTime);
+        }
+
+        runner = Thread.currentThread();
+        try {
+            super.run();
+        } finally {
+
+            runner = null;
+            boolean timedOut = isTimedOut();
+            leaveExecutor(timedOut);
+            if (metrics != null) {
+                metrics.recordFinished(System.nanoTime() - runStartTime, timedOut);
+            }
+
+            // Interrupt meant for this task shouldn't leak to the next task executed
+            // by the same worker thread.
+            while (interruptState == INTERRUPTING) {
+                Thread.yield();
+            }
+            if (interruptState == INTERRUPTED) {
+                Thread.interrupted();
+            }
+        }
+    }
+
+    /**
+     * @return	job executed by this task.
+     */
+    Job getJob() {
+        return cancellableCallable;
+    }
+
+    private ExecutorMetrics getMetrics() {
+        return executor != null ? executor.getMetrics() : null;
+    }
+
+    /**
+     * @param pMillisecs	'-1' if the caller had no timeout, i.e. caller has cancelled the task.
+     */
+    static TimeoutException newTimeoutException(long pMillisecs) {
+
+        if (pMillisecs < 0) {
+            return new TimeoutException("Abandoned by the caller, before completion");
+        }
+        return new TimeoutException("Time out after: "+  pMillisecs + "milli seconds");
+    }
+
+    /**
+     * Outcome is reported to the circuit breaker before the result is handed out. So that a caller
+     * woken up by the result sees the breaker already updated by this task.
+     */
+    @Override
+    protected void set(Object result) {
+
+        if (breaker != null) {
+            reportOutcome(!isTimedOut());
+        }
+    	super.set(result);
+    }
+
+    @Override
     public void setException(Throwable t) {
+
+        if (breaker != null) {
+            reportOutcome(false);
+        }
     	super.setException(t);
     }
 }
@@ -0,0 +1,142 @@
+/*
+ * Copyright [2015] [Tier1app LLC]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package io.allset.fastthread;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import io.allset.util.ExceptionUtil;
+
+/**
+ * Detects at run-time whether JVM supports virtual threads (JDK 21+) and builds
+ * executors backed by them. APIs are looked up reflectively, so that the framework
+ * continues to compile and run on older JVMs.
+ *
+ * @author Ram Lakshmanan
+ */
+final class VirtualThreadSupport {
+
+	private static final Logger s_logger = LogManager.getLogger(VirtualThreadSupport.class);
+
+	/**
+	 * Thread.ofVirtual()
+	 */
+	private static final Method OF_VIRTUAL;
+
+	/**
+	 * Thread.Builder.name(String prefix, long start)
+	 */
+	private static final Method BUILDER_NAME;
+
+	/**
+	 * Thread.Builder.factory()
+	 */
+	private static final Method BUILDER_FACTORY;
+
+	/**
+	 * Executors.newThreadPerTaskExecutor(ThreadFactory)
+	 */
+	private static final Method NEW_THREAD_PER_TASK_EXECUTOR;
+
+	static {
+
+		Method ofVirtual = null;
+		Method builderName = null;
+		Method builderFactory = null;
+		Method newThreadPerTaskExecutor = null;
+
+		try {
+
+			Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+			ofVirtual = Thread.class.getMethod("ofVirtual");
+			builderName = builderClass.getMethod("name", String.class, long.class);
+			builderFactory = builderClass.getMethod("factory");
+			newThreadPerTaskExecutor = Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class);
+
+			// On JDK 19 & 20 virtual threads are preview feature. API is present, however
+			// creating a virtual thread fails, unless preview is enabled.
+			builderFactory.invoke(builderName.invoke(ofVirtual.invoke(null), "probe-", 0L));
+		} catch (Throwable t) {
+
+			s_logger.debug("Virtual threads aren't supported by this JVM: " + t);
+			ofVirtual = null;
+		}
+
+		OF_VIRTUAL = ofVirtual;
+		BUILDER_NAME = builderName;
+		BUILDER_FACTORY = builderFactory;
+		NEW_THREAD_PER_TASK_EXECUTOR = newThreadPerTaskExecutor;
+	}
+
+	private VirtualThreadSupport() {
+	}
+
+	/**
+	 * @return	true if the JVM supports virtual threads.
+	 */
+	static boolean isAvailable() {
+
+		return OF_VIRTUAL != null;
+	}
+
+	/**
+	 * @param poolName
+	 * @return	factory which creates virtual threads named as 'poolName-1', 'poolName-2'...
+	 * 			null if virtual threads aren't supported.
+	 */
+	static ThreadFactory newThreadFactory(String poolName) {
+
+		if (!isAvailable()) {
+			return null;
+		}
+
+		try {
+			Object builder = BUILDER_NAME.invoke(OF_VIRTUAL.invoke(null), poolName + "-", 1L);
+			return (ThreadFactory)BUILDER_FACTORY.invoke(builder);
+		} catch (Exception e) {
+
+			s_logger.error("Failed to create virtual thread factory: " + ExceptionUtil.getDetails(e));
+			return null;
+		}
+	}
+
+	/**
+	 * @param poolName
+	 * @return	executor which runs each task in a new named virtual thread. null if virtual
+	 * 			threads aren't supported.
+	 */
+	static ExecutorService newExecutor(String poolName) {
+
+		ThreadFactory threadFactory = newThreadFactory(poolName);
+		if (threadFactory == null) {
+			return null;
+		}
+
+		try {
+			return (ExecutorService)NEW_THREAD_PER_TASK_EXECUTOR.invoke(null, threadFactory);
+		} catch (Exception e) {
+
+			s_logger.error("Failed to create virtual thread executor: " + ExceptionUtil.getDetails(e));
+			return null;
+		}
+	}
+}
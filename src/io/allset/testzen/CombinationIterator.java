@@ -0,0 +1,187 @@
+package io.allset.testzen;
+
+import io.allset.testzen.entity.RowSchema;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Enumerates the rows of a rule lazily: every field without a value takes no value and each of its
+ * possible values, in all the combinations. Combinations are enumerated like an odometer over the
+ * indices of the possible values, where the first empty field is the fastest moving digit. Thus rows
+ * are produced in the same order as a full cartesian expansion, while the memory stays O(columns),
+ * however many rows are produced.
+ *
+ * First row is the rule itself. Rest of the rows are handed out in one working row, which is updated
+ * in place: the row returned by {@link #next()} is valid only till the next call.
+ *
+ * @author Ram Lakshmanan
+ */
+public class CombinationIterator implements Iterator<int[]> {
+
+	private final int[] rule;
+
+	private final int[] row;
+
+	/**
+	 * Columns of the empty fields in the row.
+	 */
+	private final int[] columns;
+
+	/**
+	 * Last ordinal of each empty field, i.e. number of its possible values. For a slice, last
+	 * ordinal of the outermost field is the end of the slice.
+	 */
+	private final int[] lastOrdinals;
+
+	/**
+	 * First ordinal of the outermost empty field.
+	 */
+	private final int firstOuterOrdinal;
+
+	private boolean started;
+
+	/**
+	 * Slice doesn't have any rows.
+	 */
+	private final boolean empty;
+
+	public CombinationIterator(RowSchema schema, int[] rule) {
+
+		this(schema, rule, 0, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * Enumerates only a slice of the rows: the ones where the outermost (i.e. slowest moving) empty
+	 * field has an ordinal from fromOrdinal (inclusive) to toOrdinal (exclusive). Slices of a rule
+	 * together enumerate the same rows, in the same order, as the whole rule. Thus slices can be
+	 * enumerated in parallel.
+	 *
+	 * @param schema
+	 * @param rule
+	 * @param fromOrdinal	0 is no value, 'n' is the (n-1)th possible value.
+	 * @param toOrdinal		Capped to {@link #getOuterOrdinalCount()}.
+	 */
+	public CombinationIterator(RowSchema schema, int[] rule, int fromOrdinal, int toOrdinal) {
+
+		this.rule = rule;
+		this.row = schema.cloneRow(rule);
+
+		int variableCount = 0;
+		int[] variableColumns = new int[rule.length];
+		for (int column = 0; column < rule.length; ++column) {
+
+			if (schema.isEmptyColumn(column)
+					|| schema.isResultColumn(column)
+					|| rule[column] != RowSchema.NULL_ORDINAL
+					|| schema.getPossibleValueCount(column) == 0) {
+				continue;
+			}
+
+			variableColumns[variableCount++] = column;
+		}
+
+		this.columns = Arrays.copyOf(variableColumns, variableCount);
+		this.lastOrdinals = new int[variableCount];
+		for (int counter = 0; counter < variableCount; ++counter) {
+			lastOrdinals[counter] = schema.getPossibleValueCount(columns[counter]);
+		}
+
+		if (variableCount == 0) {
+
+			// Rule itself is the only row.
+			this.firstOuterOrdinal = 0;
+			this.empty = fromOrdinal > 0 || toOrdinal <= 0;
+			return;
+		}
+
+		int outer = variableCount - 1;
+		this.firstOuterOrdinal = fromOrdinal;
+		lastOrdinals[outer] = Math.min(lastOrdinals[outer], toOrdinal - 1);
+		this.empty = fromOrdinal > lastOrdinals[outer];
+		row[columns[outer]] = fromOrdinal;
+	}
+
+	/**
+	 * @return	number of ordinals (including no value) of the outermost empty field, i.e. the
+	 * 			maximum number of slices, the rule can be split in to.
+	 */
+	public int getOuterOrdinalCount() {
+
+		return columns.length == 0 ? 1 : lastOrdinals[columns.length - 1] + 1;
+	}
+
+	/**
+	 * @return	total number of rows, which will be enumerated.
+	 */
+	public long getRowCount() {
+
+		if (columns.length == 0) {
+			return empty ? 0 : 1;
+		}
+
+		long rowCount = Math.max(0, lastOrdinals[columns.length - 1] - firstOuterOrdinal + 1);
+		for (int counter = 0; counter < columns.length - 1; ++counter) {
+			rowCount *= lastOrdinals[counter] + 1;
+		}
+		return rowCount;
+	}
+
+	@Override
+	public boolean hasNext() {
+
+		if (empty) {
+			return false;
+		}
+
+		if (!started) {
+			return true;
+		}
+
+		for (int counter = 0; counter < columns.length; ++counter) {
+
+			if (row[columns[counter]] < lastOrdinals[counter]) {
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	@Override
+	public int[] next() {
+
+		if (!hasNext()) {
+			throw new NoSuchElementException("All the combinations are enumerated");
+		}
+
+		if (!started) {
+
+			started = true;
+			return firstOuterOrdinal == 0 ? rule : row;
+		}
+
+		// Advance the odometer: roll over the digits which are at their last value. Ordinal
+		// of the field itself is the digit.
+		for (int counter = 0; counter < columns.length; ++counter) {
+
+			int column = columns[counter];
+			if (row[column] < lastOrdinals[counter]) {
+
+				++row[column];
+				return row;
+			}
+
+			row[column] = RowSchema.NULL_ORDINAL;
+		}
+
+		// Unreachable, as hasNext() ensures one of the digits can advance.
+		throw new NoSuchElementException("All the combinations are enumerated");
+	}
+
+	@Override
+	public void remove() {
+		throw new UnsupportedOperationException("remove");
+	}
+}
@@ -0,0 +1,136 @@
+package io.allset.testzen;
+
+import io.allset.fastthread.Job;
+import io.allset.testzen.entity.RowSchema;
+import io.allset.testzen.util.StringPrinter;
+import io.allset.util.ContinuousFileWriter;
+
+import java.io.File;
+
+/**
+ * Enumerates a rule, or a slice of a rule, on a thread of the executor. Rows are written to
+ * temporary files of the job, which are merged into the data files in the order of the jobs.
+ * Thus the data files are same as the ones generated sequentially.
+ *
+ * Each row is preceded by {@link StringPrinter#LINE_DELIMITER}. Names of the columns aren't
+ * written, as they precede only the first row of the rule.
+ *
+ * @author Ram Lakshmanan
+ */
+class CombinationJob extends Job {
+
+	private final RowSchema schema;
+
+	private final int[] rule;
+
+	private final int fromOrdinal;
+
+	private final int toOrdinal;
+
+	/**
+	 * null if the job didn't produce any row.
+	 */
+	private File allDataFile;
+
+	/**
+	 * null if the job didn't produce any row without null values.
+	 */
+	private File cleanDataFile;
+
+	private long allDataCount;
+
+	private long cleanDataCount;
+
+	CombinationJob(RowSchema schema, int[] rule, int fromOrdinal, int toOrdinal) {
+
+		this.schema = schema;
+		this.rule = rule;
+		this.fromOrdinal = fromOrdinal;
+		this.toOrdinal = toOrdinal;
+	}
+
+	@Override
+	public Object doWork() throws Exception {
+
+		ContinuousFileWriter allDataWriter = null;
+		ContinuousFileWriter cleanDataWriter = null;
+		StringBuilder buffer = new StringBuilder();
+
+		try {
+
+			CombinationIterator rows = new CombinationIterator(schema, rule, fromOrdinal, toOrdinal);
+			while (rows.hasNext()) {
+
+				int[] row = rows.next();
+
+				buffer.setLength(0);
+				buffer.append(StringPrinter.LINE_DELIMITER);
+				StringPrinter.appendValues(buffer, schema, row);
+
+				if (allDataWriter == null) {
+
+					allDataFile = File.createTempFile("testzen-", "-allData");
+					allDataWriter = new ContinuousFileWriter(allDataFile.getPath());
+				}
+				allDataWriter.append(buffer);
+				++allDataCount;
+
+				if (!RowSchema.containsNullValue(row)) {
+
+					if (cleanDataWriter == null) {
+
+						cleanDataFile = File.createTempFile("testzen-", "-positiveData");
+						cleanDataWriter = new ContinuousFileWriter(cleanDataFile.getPath());
+					}
+					cleanDataWriter.append(buffer);
+					++cleanDataCount;
+				}
+			}
+		} finally {
+
+			if (allDataWriter != null) {
+				allDataWriter.close();
+			}
+
+			if (cleanDataWriter != null) {
+				cleanDataWriter.close();
+			}
+		}
+
+		return this;
+	}
+
+	/**
+	 * Deletes the temporary files of the job.
+	 */
+	void deleteFiles() {
+
+		if (allDataFile != null) {
+			allDataFile.delete();
+		}
+
+		if (cleanDataFile != null) {
+			cleanDataFile.delete();
+		}
+	}
+
+	int[] getRule() {
+		return rule;
+	}
+
+	File getAllDataFile() {
+		return allDataFile;
+	}
+
+	File getCleanDataFile() {
+		return cleanDataFile;
+	}
+
+	long getAllDataCount() {
+		return allDataCount;
+	}
+
+	long getCleanDataCount() {
+		return cleanDataCount;
+	}
+}
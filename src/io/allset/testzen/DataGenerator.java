@@ -1,22 +1,29 @@
 package io.allset.testzen;
 
+import io.allset.fastthread.FastThreadExecutor;
+import io.allset.fastthread.JobResult;
 import io.allset.testzen.entity.Field;
+import io.allset.testzen.entity.RowSchema;
 import io.allset.testzen.type.ResultType;
 import io.allset.testzen.util.StringPrinter;
 import io.allset.util.ContinuousFileWriter;
 import io.allset.util.StringUtil;
 
 import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.Iterator;
+import java.util.Arrays;
 import java.util.List;
-import java.util.Map;
 
 /**
  * 
  * @author Ram Lakshmanan
  */
 public class DataGenerator {
+
+	/**
+	 * In parallel mode, rules having more rows than this are split in to slices of (roughly)
+	 * these many rows.
+	 */
+	private static final long SLICE_ROW_COUNT = 64 * 1024;
 	
 	private long allDataCount;
 	private long cleanDataCount;
@@ -26,6 +33,17 @@ public class DataGenerator {
 
 	private ContinuousFileWriter allDataWriter;
 	private ContinuousFileWriter cleanDataWriter;
+
+	/**
+	 * Rules are enumerated in parallel on this executor, if it's set.
+	 */
+	private FastThreadExecutor executor;
+
+	/**
+	 * Number of row hashes kept in memory while eliminating duplicates, beyond which they are spilled
+	 * to temporary files. 0 means unbounded.
+	 */
+	private int dedupMemoryLimit;
 	
 	public DataGenerator(String filePath) throws Exception {
 	
@@ -58,8 +76,14 @@ public class DataGenerator {
 		}
 
 		System.out.print("Generating data ");
-		generateDataNoResult(businessRulesNoResult);
-		generateDataYesResult(businessRulesYesResult);
+		try {
+			
+			generateDataNoResult(businessRulesNoResult);
+			generateDataYesResult(businessRulesYesResult);
+		} finally {
+			
+			close();
+		}
 		
 		System.out.println("\nGenerated " + allDataCount + " test data in " + allDataFilePath);
 		System.out.println("Generated " + cleanDataCount + " positive test data" + cleanDataFilePath);
@@ -68,42 +92,49 @@ public class DataGenerator {
 	
 	public void generateDataYesResult(List<List<Field>> businessRules) throws Exception {
 
-		Map<String, List<Field>> masterMap = new HashMap<>();
+		RowSchema schema = new RowSchema(businessRules);
+		List<int[]> masterList = new ArrayList<>();
+		RowDeduplicator deduplicator = newDeduplicator(businessRules.size() * 2L);
 		
-		// Loop through each rule
-		for (List<Field> originalRule : businessRules) {
-		
-			List<Field> clonedRule = cloneRow(originalRule);
+		try {
+			
+			// Loop through each rule
+			for (List<Field> originalRule : businessRules) {
 			
-			for (Field field : clonedRule) {
+				int[] rule = schema.encode(originalRule);
+				int[] clonedRule = schema.cloneRow(rule);
 				
-				//Field field = originalRule.get(fieldCounter);
+				for (int column = 0; column < clonedRule.length; ++column) {
+					
+					if (schema.isEmptyColumn(column)) {
+						continue;
+					}
+	
+					if (clonedRule[column] == RowSchema.NULL_ORDINAL) {
+						clonedRule[column] = schema.ordinal(column, schema.getPositiveValue(column));
+					}				
+				}
 				
-				if (field == Field.EMPTY_FIELD) {
-					continue;
+				// Empty fields of the rule are printed same as in its clone, so the rule is deduplicated
+				// as its clone. If the rule doesn't have any null value, it's same as its clone: only
+				// the clone is retained.
+				int[] ruleKey = schema.cloneRow(rule);
+				if (!Arrays.equals(ruleKey, clonedRule) && deduplicator.add(ruleKey)) {
+					masterList.add(rule);
 				}
-
-				if (field.getValue() == null) {
-					field.setValue(field.getPositiveValue());
-				}				
-			}
-			
-			masterMap.put(StringPrinter.toStringValues(originalRule), originalRule);	
-			masterMap.put(StringPrinter.toStringValues(clonedRule), clonedRule);	
-		} // end: for (List<Field> originalRule : businessRules) {
-		
-		
-		// Transform Map to Array List
-		List<List<Field>> masterList = new ArrayList<>();		
-		Iterator<String> keysIterator =  masterMap.keySet().iterator();
-		while(keysIterator.hasNext()) {
+				
+				if (deduplicator.add(clonedRule)) {
+					masterList.add(clonedRule);
+				}
+			} // end: for (List<Field> originalRule : businessRules) {
+		} finally {
 			
-			masterList.add(masterMap.get(keysIterator.next()));
+			deduplicator.close();
 		}
 		
-		List<List<Field>> cleanData = eliminateNull(masterList);
-		allDataWriter.write(StringPrinter.toString(masterList));		
-		cleanDataWriter.write(StringPrinter.toString(cleanData));
+		List<int[]> cleanData = eliminateNull(masterList);
+		writeRows(allDataWriter, schema, masterList);
+		writeRows(cleanDataWriter, schema, cleanData);
 		
 		allDataCount += masterList.size();
 		cleanDataCount += cleanData.size();
@@ -112,64 +143,146 @@ public class DataGenerator {
 	
 	public void generateDataNoResult(List<List<Field>> businessRules) throws Exception {
 
+		RowSchema schema = new RowSchema(businessRules);
+
+		if (executor != null) {
+
+			generateDataNoResultInParallel(schema, businessRules);
+			return;
+		}
+
 		// Loop through each rule
 		for (List<Field> originalRule : businessRules) {
-					
-			List<List<Field>> newDatas = new ArrayList<>();
-			newDatas.add(originalRule);
-			
-			// Loop through every field in this Rule
-			for (int fieldCounter = 0; fieldCounter < originalRule.size(); ++fieldCounter) {
-			
-				Field field = originalRule.get(fieldCounter);
-				
-				if (field == Field.EMPTY_FIELD
-						|| field.getType().toString().equals(ResultType.NAME)) {
-					continue;
-				}
 
-				if (field.getValue() != null) {
-					continue;
+			// Rows are written as and when they are enumerated, instead of expanding the rule in memory.
+			StringBuilder rowBuffer = new StringBuilder();
+			long ruleDataCount = 0;
+			long ruleCleanDataCount = 0;
+
+			CombinationIterator rows = new CombinationIterator(schema, schema.encode(originalRule));
+			while (rows.hasNext()) {
+
+				int[] row = rows.next();
+
+				writeRow(allDataWriter, rowBuffer, schema, row, ruleDataCount == 0);
+				++ruleDataCount;
+
+				if (!RowSchema.containsNullValue(row)) {
+
+					writeRow(cleanDataWriter, rowBuffer, schema, row, ruleCleanDataCount == 0);
+					++ruleCleanDataCount;
 				}
-				
-				// If the field doesn't have any value, then for every data in the list, clone it
-				// and insert all possible values of this field.
-				List<List<Field>> interimDatas = new ArrayList<>();
-				interimDatas.addAll(newDatas);
-				//interimDatas = eliminateDuplicates(interimDatas);
-				
-				int number = field.getType().possibleValues() != null ? field.getType().possibleValues().size() : 0;
-				for(int valueCounter = 0; valueCounter < number; ++valueCounter) {
-			
-					for (List<Field> tempData : newDatas) {
-
-						List<Field> clone = cloneRow(tempData);
-						Object value = (field.getType().possibleValues().get(valueCounter));
-						try {
-							clone.get(fieldCounter).setValue(value);
-						} catch (Exception e) {
-							e.printStackTrace();
-						}
-						//System.out.println(clone);
-						interimDatas.add(clone);				
-					}
-				}	
-				
-				// Erasing old datas with new datas which has newly populated values
-				newDatas = interimDatas;
-				interimDatas = null;	// to facilitate GC.				
 			}
-			
-			List<List<Field>> cleanData = eliminateNull(newDatas);
-			allDataWriter.write(StringPrinter.toString(newDatas));
-			cleanDataWriter.write(StringPrinter.toString(cleanData));
-			
-			allDataCount += newDatas.size();
-			cleanDataCount += cleanData.size();	
+
+			allDataCount += ruleDataCount;
+			cleanDataCount += ruleCleanDataCount;
 			System.out.print("..");
-		} // end: for (List<Field> originalRule : businessRules) {		
+		} // end: for (List<Field> originalRule : businessRules) {
 	}
-	
+
+	/**
+	 * Enumerates rules on the executor. Large rules are split in to slices on the values of their
+	 * outermost empty field, so that a single large rule is also spread across the threads. Output
+	 * of the jobs is merged in the order of the rules (and slices), so the files are same as the
+	 * ones generated sequentially.
+	 */
+	private void generateDataNoResultInParallel(RowSchema schema, List<List<Field>> businessRules) throws Exception {
+
+		List<CombinationJob> jobs = new ArrayList<>();
+		for (List<Field> originalRule : businessRules) {
+
+			int[] rule = schema.encode(originalRule);
+			CombinationIterator rows = new CombinationIterator(schema, rule);
+			long outerOrdinalCount = rows.getOuterOrdinalCount();
+			long sliceCount = Math.min(outerOrdinalCount, Math.max(1, rows.getRowCount() / SLICE_ROW_COUNT));
+
+			for (long slice = 0; slice < sliceCount; ++slice) {
+
+				jobs.add(new CombinationJob(schema, rule, 
+						(int)(slice * outerOrdinalCount / sliceCount), 
+						(int)((slice + 1) * outerOrdinalCount / sliceCount)));
+			}
+		}
+
+		if (jobs.isEmpty()) {
+			return;
+		}
+
+		try {
+
+			List<JobResult> results = executor.executeJobs(jobs);
+
+			int[] currentRule = null;
+			boolean cleanDataStarted = false;
+			for (int counter = 0; counter < jobs.size(); ++counter) {
+
+				// Surfaces the failure of the job, if any.
+				results.get(counter).getResult();
+
+				CombinationJob job = jobs.get(counter);
+				if (job.getRule() != currentRule) {
+
+					if (currentRule != null) {
+						System.out.print("..");
+					}
+
+					// First slice of the rule always starts with the rule itself.
+					currentRule = job.getRule();
+					cleanDataStarted = false;
+					allDataWriter.write(StringPrinter.toStringNames(schema, currentRule));
+				}
+
+				if (job.getCleanDataFile() != null && !cleanDataStarted) {
+
+					cleanDataStarted = true;
+					cleanDataWriter.write(StringPrinter.toStringNames(schema, currentRule));
+				}
+
+				allDataWriter.append(job.getAllDataFile());
+				cleanDataWriter.append(job.getCleanDataFile());
+				allDataCount += job.getAllDataCount();
+				cleanDataCount += job.getCleanDataCount();
+			}
+
+			if (currentRule != null) {
+				System.out.print("..");
+			}
+		} finally {
+
+			for (CombinationJob job : jobs) {
+				job.deleteFiles();
+			}
+		}
+	}
+
+	/**
+	 * Writes the rows in the same format as {@link StringPrinter#toString(RowSchema, List)}, one row
+	 * at a time.
+	 */
+	private static void writeRows(ContinuousFileWriter writer, RowSchema schema, List<int[]> rows) throws Exception {
+
+		StringBuilder rowBuffer = new StringBuilder();
+		for (int counter = 0; counter < rows.size(); ++counter) {
+			writeRow(writer, rowBuffer, schema, rows.get(counter), counter == 0);
+		}
+	}
+
+	/**
+	 * Writes the row in the same format as {@link StringPrinter#toString(RowSchema, List)}: names of
+	 * the fields precede the first row.
+	 */
+	private static void writeRow(ContinuousFileWriter writer, StringBuilder rowBuffer, RowSchema schema, int[] row, boolean firstRow) throws Exception {
+
+		rowBuffer.setLength(0);
+		if (firstRow) {
+			StringPrinter.appendNames(rowBuffer, schema, row);
+		}
+
+		rowBuffer.append(StringPrinter.LINE_DELIMITER);
+		StringPrinter.appendValues(rowBuffer, schema, row);
+		writer.append(rowBuffer);
+	}
+
 	// ---------------------------------------------------------
 	//		Start: Utility APIs
 	// ---------------------------------------------------------
@@ -210,35 +323,43 @@ public class DataGenerator {
 		return builder.toString();		
 	}
 	
-	private List<List<Field>> eliminateDuplicates(List<List<Field>> datas) {
+	private List<int[]> eliminateDuplicates(List<int[]> datas) throws Exception {
 		
-		Map<String, List<Field>> map = new HashMap<>();
+		List<int[]> masterList = new ArrayList<>();
+		RowDeduplicator deduplicator = newDeduplicator(datas.size());
 		
-		// This will eliminate the duplicates
-		for (List<Field> finalData : datas) {
+		try {
 			
-			map.put(StringPrinter.toStringValues(finalData), finalData);	
-		}						
+			for (int[] finalData : datas) {
 				
-		// Transform Map to Array List
-		List<List<Field>> masterList = new ArrayList<>();		
-		Iterator<String> keysIterator =  map.keySet().iterator();
-		while(keysIterator.hasNext()) {
+				if (deduplicator.add(finalData)) {
+					masterList.add(finalData);
+				}
+			}
+		} finally {
 			
-			masterList.add(map.get(keysIterator.next()));
-		}		
-		
+			deduplicator.close();
+		}
+				
 		return masterList;
 	}
 	
-	private List<List<Field>> eliminateNull(List<List<Field>> datas) throws Exception{
+	private RowDeduplicator newDeduplicator(long expectedRows) {
+		
+		if (dedupMemoryLimit > 0) {
+			return new RowDeduplicator(dedupMemoryLimit, Math.max(1, expectedRows));
+		}
 		
-		List<List<Field>> masterList = new ArrayList<>();	
+		return new RowDeduplicator();
+	}
+	
+	private List<int[]> eliminateNull(List<int[]> datas) {
 		
-		// This will eliminate the duplicates
-		for (List<Field> finalData : datas) {
+		List<int[]> masterList = new ArrayList<>();	
+		
+		for (int[] finalData : datas) {
 			
-			if (!containsNullValue(finalData)) {
+			if (!RowSchema.containsNullValue(finalData)) {
 				masterList.add(finalData);
 			}
 		}						
@@ -276,6 +397,55 @@ public class DataGenerator {
 		return Boolean.FALSE;
 	}
 	
+	/**
+	 * Enables parallel mode: rules are enumerated on the threads of the executor. Generated files are
+	 * same as in the sequential mode. Executor isn't shut down by the generator.
+	 */
+	public void setExecutor(FastThreadExecutor executor) {
+		
+		this.executor = executor;
+	}
+	
+	public FastThreadExecutor getExecutor() {
+		
+		return executor;
+	}
+	
+	/**
+	 * Writes the buffered rows & closes the data files. Needed only if rows are generated through
+	 * {@link #generateDataNoResult(List)} or {@link #generateDataYesResult(List)} directly, as
+	 * {@link #generateData(String, List)} closes them by itself.
+	 */
+	public void close() throws Exception {
+		
+		try {
+			
+			allDataWriter.close();
+		} finally {
+			
+			cleanDataWriter.close();
+		}
+	}
+	
+	/**
+	 * Bounds the memory used for eliminating duplicate rows. See {@link RowDeduplicator}.
+	 * 
+	 * @param dedupMemoryLimit	Number of row hashes kept in memory. 0 means unbounded.
+	 */
+	public void setDedupMemoryLimit(int dedupMemoryLimit) {
+		
+		if (dedupMemoryLimit < 0) {
+			throw new IllegalArgumentException("Invalid Arguments");
+		}
+		
+		this.dedupMemoryLimit = dedupMemoryLimit;
+	}
+	
+	public int getDedupMemoryLimit() {
+		
+		return dedupMemoryLimit;
+	}
+	
 	public boolean doesRuleHasYesResult(List<Field> rule) {
 		
 		for (Field field : rule) {
@@ -296,5 +466,4 @@ public class DataGenerator {
 		
 		return Boolean.FALSE;
 	}
-	
 }
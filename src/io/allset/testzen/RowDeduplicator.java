@@ -0,0 +1,307 @@
+package io.allset.testzen;
+
+import io.allset.util.BloomFilter;
+import io.allset.util.LongHashSet;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Eliminates duplicate rows by the 64-bit hash of their value ordinals. Neither rows nor their
+ * printed form are retained: each distinct row costs 8 to 16 bytes of a primitive hash set. Two
+ * distinct rows are treated as duplicates only if their hashes collide, whose probability is about
+ * n^2 / 2^65, i.e. less than one in 300,000 for 10 million rows.
+ *
+ * In bounded mode, once the in-memory set reaches its limit, its hashes are sorted and spilled to
+ * a temporary file, and added to a Bloom filter. A row is looked up in the spilled files only if the
+ * Bloom filter says it might be there, i.e. for the duplicates and about 1% of the distinct rows.
+ * Thus memory stays about 1.2 bytes per row plus the in-memory limit.
+ *
+ * A spilled file is merged with the previous one, as long as the previous one isn't bigger, like
+ * the carry of a binary counter. Thus at most log2(rows / limit) + 1 files are open, and each hash
+ * is rewritten at most log2(rows / limit) times.
+ *
+ * @author Ram Lakshmanan
+ */
+public class RowDeduplicator implements Closeable {
+
+	public static final double DEFAULT_FALSE_POSITIVE_RATE = 0.01;
+
+	private final LongHashSet hashes;
+
+	/**
+	 * Number of hashes kept in memory before spilling. 0 means unbounded.
+	 */
+	private final int maxInMemoryRows;
+
+	/**
+	 * Hashes in the spilled files. null in unbounded mode.
+	 */
+	private final BloomFilter spilledHashes;
+
+	private final List<SpillFile> spillFiles = new ArrayList<>();
+
+	private long rowCount;
+
+	/**
+	 * Unbounded mode: all the hashes are kept in memory.
+	 */
+	public RowDeduplicator() {
+
+		this.hashes = new LongHashSet();
+		this.maxInMemoryRows = 0;
+		this.spilledHashes = null;
+	}
+
+	/**
+	 * Bounded mode.
+	 *
+	 * @param maxInMemoryRows	Number of hashes kept in memory, before spilling them to a file.
+	 * @param expectedRows		Number of distinct rows expected. Sizes the Bloom filter.
+	 */
+	public RowDeduplicator(int maxInMemoryRows, long expectedRows) {
+
+		if (maxInMemoryRows < 1 || expectedRows < 1) {
+			throw new IllegalArgumentException("Invalid Arguments");
+		}
+
+		this.hashes = new LongHashSet(maxInMemoryRows);
+		this.maxInMemoryRows = maxInMemoryRows;
+		this.spilledHashes = new BloomFilter(expectedRows, DEFAULT_FALSE_POSITIVE_RATE);
+	}
+
+	/**
+	 * @return	true if the row hasn't been added before, i.e. it's not a duplicate.
+	 */
+	public boolean add(int[] row) throws IOException {
+
+		long hash = hash(row);
+
+		if (hashes.contains(hash) || isSpilled(hash)) {
+			return false;
+		}
+
+		hashes.add(hash);
+		++rowCount;
+
+		if (maxInMemoryRows > 0 && hashes.size() >= maxInMemoryRows) {
+			spill();
+		}
+
+		return true;
+	}
+
+	/**
+	 * @return	number of distinct rows added.
+	 */
+	public long getRowCount() {
+		return rowCount;
+	}
+
+	/**
+	 * @return	number of spilled files, which are open.
+	 */
+	public int getSpillFileCount() {
+		return spillFiles.size();
+	}
+
+	/**
+	 * Deletes the spilled files.
+	 */
+	@Override
+	public void close() throws IOException {
+
+		for (SpillFile spillFile : spillFiles) {
+			spillFile.close();
+		}
+
+		spillFiles.clear();
+	}
+
+	/**
+	 * 64-bit hash of the ordinals: each ordinal is folded in with a multiply & rotate, and the result
+	 * is finalized with the MurmurHash3 mixer, so that rows differing in one ordinal differ in about
+	 * half the bits.
+	 */
+	public static long hash(int[] row) {
+
+		long hash = row.length;
+		for (int ordinal : row) {
+
+			hash = (hash ^ (ordinal & 0xFFFFFFFFL)) * 0x9E3779B97F4A7C15L;
+			hash = Long.rotateLeft(hash, 31);
+		}
+
+		hash ^= hash >>> 33;
+		hash *= 0xFF51AFD7ED558CCDL;
+		hash ^= hash >>> 33;
+		hash *= 0xC4CEB9FE1A85EC53L;
+		hash ^= hash >>> 33;
+
+		return hash;
+	}
+
+	private boolean isSpilled(long hash) throws IOException {
+
+		if (spilledHashes == null || !spilledHashes.mightContain(hash)) {
+			return false;
+		}
+
+		for (SpillFile spillFile : spillFiles) {
+
+			if (spillFile.contains(hash)) {
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	private void spill() throws IOException {
+
+		long[] sortedHashes = hashes.toSortedArray();
+
+		File file = File.createTempFile("testzen-", "-hashes");
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+		try {
+
+			for (long hash : sortedHashes) {
+
+				out.writeLong(hash);
+				spilledHashes.add(hash);
+			}
+		} finally {
+
+			out.close();
+		}
+
+		SpillFile spillFile = new SpillFile(file, sortedHashes.length);
+		hashes.clear();
+
+		while (!spillFiles.isEmpty() && spillFiles.get(spillFiles.size() - 1).length <= spillFile.length) {
+			spillFile = merge(spillFiles.remove(spillFiles.size() - 1), spillFile);
+		}
+
+		spillFiles.add(spillFile);
+	}
+
+	/**
+	 * Merges the two sorted files into a new one & deletes them. Hashes of the two files are distinct,
+	 * as a hash is spilled only if it's not found in the earlier files.
+	 */
+	private static SpillFile merge(SpillFile first, SpillFile second) throws IOException {
+
+		File file = File.createTempFile("testzen-", "-hashes");
+		DataInputStream in1 = new DataInputStream(new BufferedInputStream(new FileInputStream(first.file)));
+		DataInputStream in2 = new DataInputStream(new BufferedInputStream(new FileInputStream(second.file)));
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+		try {
+
+			long index1 = 0;
+			long index2 = 0;
+			long hash1 = first.length > 0 ? in1.readLong() : 0;
+			long hash2 = second.length > 0 ? in2.readLong() : 0;
+			while (index1 < first.length || index2 < second.length) {
+
+				if (index2 == second.length || (index1 < first.length && hash1 < hash2)) {
+
+					out.writeLong(hash1);
+					if (++index1 < first.length) {
+						hash1 = in1.readLong();
+					}
+				} else {
+
+					out.writeLong(hash2);
+					if (++index2 < second.length) {
+						hash2 = in2.readLong();
+					}
+				}
+			}
+		} finally {
+
+			out.close();
+			in1.close();
+			in2.close();
+		}
+
+		first.close();
+		second.close();
+
+		return new SpillFile(file, first.length + second.length);
+	}
+
+	/**
+	 * Sorted hashes, spilled to a file. Looked up by binary search, with one positioned read per probe.
+	 */
+	private static final class SpillFile implements Closeable {
+
+		private final File file;
+
+		private final FileChannel channel;
+
+		private final long length;
+
+		private final ByteBuffer buffer = ByteBuffer.allocate(Long.BYTES);
+
+		SpillFile(File file, long length) throws IOException {
+
+			this.file = file;
+			this.channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+			this.length = length;
+		}
+
+		boolean contains(long hash) throws IOException {
+
+			long low = 0;
+			long high = length - 1;
+			while (low <= high) {
+
+				long middle = (low + high) >>> 1;
+				long value = read(middle * Long.BYTES);
+
+				if (value < hash) {
+					low = middle + 1;
+				} else if (value > hash) {
+					high = middle - 1;
+				} else {
+					return true;
+				}
+			}
+
+			return false;
+		}
+
+		private long read(long position) throws IOException {
+
+			buffer.clear();
+			while (buffer.hasRemaining()) {
+
+				if (channel.read(buffer, position + buffer.position()) < 0) {
+					throw new EOFException(file.getPath());
+				}
+			}
+
+			return buffer.getLong(0);
+		}
+
+		@Override
+		public void close() throws IOException {
+
+			channel.close();
+			file.delete();
+		}
+	}
+}
@@ -1,5 +1,6 @@
 package io.allset.testzen;
 
+import io.allset.fastthread.FastThreadExecutor;
 import io.allset.testzen.entity.Field;
 import io.allset.testzen.reader.SimpleExcelReader;
 import io.allset.testzen.util.StringPrinter;
@@ -28,8 +29,17 @@ public class TestZen {
 		List<List<Field>> businessRules = reader.read(filePath);
 		System.out.println("Business Rules:\n " + StringPrinter.toString(businessRules));
 		
-		DataGenerator dataGenerator = new DataGenerator(filePath);
-		dataGenerator.generateData(filePath, businessRules);
+		// Rules are enumerated on all the cores.
+		FastThreadExecutor executor = FastThreadExecutor.newForkJoinExecutor("TestZen", Runtime.getRuntime().availableProcessors());
+		try {
+			
+			DataGenerator dataGenerator = new DataGenerator(filePath);
+			dataGenerator.setExecutor(executor);
+			dataGenerator.generateData(filePath, businessRules);
+		} finally {
+			
+			executor.shutdown();
+		}
 	}
 
 	private static void validateInput(String[] args) {
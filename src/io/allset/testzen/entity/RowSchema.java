@@ -0,0 +1,230 @@
+package io.allset.testzen.entity;
+
+import io.allset.testzen.type.ResultType;
+import io.allset.testzen.type.Type;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Columns of the generated test data: name, type & positive value of each column, shared by all
+ * the rows. Thus a row is stored as an int[] of value ordinals, instead of a list of {@link Field}s.
+ *
+ * Ordinal of a value is it's position in the dictionary of the column + 1, where the dictionary
+ * starts with the possible values of the column's type. Thus the ordinal 'n' of an empty field
+ * is its (n-1)th possible value. Values which aren't among the possible values (say text fields)
+ * are appended to the dictionary as they are encoded.
+ *
+ * Once the rows are encoded, schema can be read by multiple threads: decoding & cloning of rows
+ * don't modify it.
+ *
+ * @author Ram Lakshmanan
+ */
+public class RowSchema {
+
+	/**
+	 * Field without a value.
+	 */
+	public static final int NULL_ORDINAL = 0;
+
+	/**
+	 * {@link Field#EMPTY_FIELD} i.e. a column without name & type in the spread sheet.
+	 */
+	public static final int EMPTY_ORDINAL = -1;
+
+	private final String[] names;
+
+	private final Type[] types;
+
+	private final Object[] positiveValues;
+
+	private final List<List<Object>> dictionaries = new ArrayList<>();
+
+	/**
+	 * Number of possible values of each column's type, which are at the start of its dictionary.
+	 */
+	private final int[] possibleValueCounts;
+
+	private final boolean[] emptyColumns;
+
+	/**
+	 * Ordinal of {@link Field#EMPTY_VALUE} in the empty columns, which their clones carry.
+	 */
+	private final int[] clonedEmptyOrdinals;
+
+	/**
+	 * @param rows	Rows built from the same metadata. Columns are taken from the longest row.
+	 */
+	public RowSchema(List<List<Field>> rows) {
+
+		List<Field> widestRow = new ArrayList<>();
+		for (List<Field> row : rows) {
+
+			if (row.size() > widestRow.size()) {
+				widestRow = row;
+			}
+		}
+
+		int columnCount = widestRow.size();
+		names = new String[columnCount];
+		types = new Type[columnCount];
+		positiveValues = new Object[columnCount];
+		possibleValueCounts = new int[columnCount];
+		emptyColumns = new boolean[columnCount];
+		clonedEmptyOrdinals = new int[columnCount];
+
+		for (int column = 0; column < columnCount; ++column) {
+
+			Field field = widestRow.get(column);
+			names[column] = field.getName();
+			types[column] = field.getType();
+			positiveValues[column] = field.getPositiveValue();
+			emptyColumns[column] = field == Field.EMPTY_FIELD;
+
+			List<Object> dictionary = new ArrayList<>();
+			if (field.getType() != null && field.getType().possibleValues() != null) {
+				dictionary.addAll(field.getType().possibleValues());
+			}
+
+			possibleValueCounts[column] = dictionary.size();
+			dictionaries.add(dictionary);
+
+			if (emptyColumns[column]) {
+				clonedEmptyOrdinals[column] = ordinal(column, Field.EMPTY_VALUE);
+			}
+		}
+	}
+
+	public int[] encode(List<Field> row) {
+
+		int[] ordinals = new int[row.size()];
+		for (int column = 0; column < ordinals.length; ++column) {
+
+			Field field = row.get(column);
+			if (field == Field.EMPTY_FIELD) {
+
+				ordinals[column] = EMPTY_ORDINAL;
+			} else {
+
+				ordinals[column] = ordinal(column, field.getValue());
+			}
+		}
+
+		return ordinals;
+	}
+
+	public List<Field> decode(int[] row) {
+
+		List<Field> fields = new ArrayList<>();
+		for (int column = 0; column < row.length; ++column) {
+
+			if (row[column] == EMPTY_ORDINAL) {
+
+				fields.add(Field.EMPTY_FIELD);
+			} else {
+
+				fields.add(new Field(names[column], types[column], getValue(column, row[column]), positiveValues[column]));
+			}
+		}
+
+		return fields;
+	}
+
+	/**
+	 * @return	ordinal of the value in the column. Value is added to the dictionary, if it's not present.
+	 */
+	public int ordinal(int column, Object value) {
+
+		if (value == null) {
+			return NULL_ORDINAL;
+		}
+
+		List<Object> dictionary = dictionaries.get(column);
+		int index = dictionary.indexOf(value);
+		if (index < 0) {
+
+			index = dictionary.size();
+			dictionary.add(value);
+		}
+
+		return index + 1;
+	}
+
+	/**
+	 * @return	value of the ordinal. null for {@link #NULL_ORDINAL}, {@link Field#EMPTY_VALUE}
+	 * 			for {@link #EMPTY_ORDINAL}.
+	 */
+	public Object getValue(int column, int ordinal) {
+
+		if (ordinal == NULL_ORDINAL) {
+			return null;
+		}
+
+		if (ordinal == EMPTY_ORDINAL) {
+			return Field.EMPTY_VALUE;
+		}
+
+		return dictionaries.get(column).get(ordinal - 1);
+	}
+
+	/**
+	 * Same as {@link Field#clone()} of each field in the row: cloned empty fields are no longer
+	 * {@link Field#EMPTY_FIELD}, but fields having {@link Field#EMPTY_VALUE}.
+	 */
+	public int[] cloneRow(int[] row) {
+
+		int[] newRow = row.clone();
+		for (int column = 0; column < newRow.length; ++column) {
+
+			if (newRow[column] == EMPTY_ORDINAL) {
+				newRow[column] = emptyColumns[column] ? clonedEmptyOrdinals[column] : ordinal(column, Field.EMPTY_VALUE);
+			}
+		}
+
+		return newRow;
+	}
+
+	public static boolean containsNullValue(int[] row) {
+
+		for (int ordinal : row) {
+
+			if (ordinal == NULL_ORDINAL || ordinal == EMPTY_ORDINAL) {
+				return Boolean.TRUE;
+			}
+		}
+
+		return Boolean.FALSE;
+	}
+
+	public int getColumnCount() {
+		return names.length;
+	}
+
+	public String getName(int column) {
+		return names[column];
+	}
+
+	public Type getType(int column) {
+		return types[column];
+	}
+
+	public Object getPositiveValue(int column) {
+		return positiveValues[column];
+	}
+
+	/**
+	 * @return	number of possible values of the column's type. Ordinals 1 to this count are
+	 * 			the possible values.
+	 */
+	public int getPossibleValueCount(int column) {
+		return possibleValueCounts[column];
+	}
+
+	public boolean isEmptyColumn(int column) {
+		return emptyColumns[column];
+	}
+
+	public boolean isResultColumn(int column) {
+		return types[column] != null && types[column].toString().equals(ResultType.NAME);
+	}
+}
@@ -1,6 +1,7 @@
 package io.allset.testzen.util;
 
 import io.allset.testzen.entity.Field;
+import io.allset.testzen.entity.RowSchema;
 
 import java.util.List;
 
@@ -58,4 +59,61 @@ public class StringPrinter {
 		return builder.toString();
 	}
 	
-}
+	public static String toStringValues(RowSchema schema, int[] row) {
+		
+		return appendValues(new StringBuilder(), schema, row).toString();
+	}
+
+	public static StringBuilder appendValues(StringBuilder builder, RowSchema schema, int[] row) {
+		
+		for (int column = 0; column < row.length; ++column) {
+			
+			Object value = schema.getValue(column, row[column]);
+			builder.append(value != null ? value : Field.EMPTY_VALUE)
+					.append(DELIMITER);
+		}
+		
+		return builder;
+	}
+
+	/**
+	 * @return	names of the columns present in the row.
+	 */
+	public static String toStringNames(RowSchema schema, int[] row) {
+		
+		return appendNames(new StringBuilder(), schema, row).toString();
+	}
+
+	public static StringBuilder appendNames(StringBuilder builder, RowSchema schema, int[] row) {
+		
+		for (int column = 0; column < row.length; ++column) {
+			
+			builder.append(schema.getName(column))
+					.append(DELIMITER);
+		}
+		
+		return builder;
+	}
+	
+	public static String toString(RowSchema schema, List<int[]> allData) {
+		
+		if (allData == null || allData.size() ==0) {
+			
+			return null;
+		}
+		
+		StringBuilder builder = new StringBuilder();
+
+		// First Line should contain only Names.
+		appendNames(builder, schema, allData.get(0));
+		
+		for (int counter = 0; counter < allData.size(); ++counter) {
+			
+			builder.append(LINE_DELIMITER);
+			appendValues(builder, schema, allData.get(counter));
+		}
+		
+		return builder.toString();
+	}
+	
+}
\ No newline at end of file
@@ -0,0 +1,85 @@
+package io.allset.util;
+
+/**
+ * Bloom filter of 64-bit hashes. {@link #mightContain(long)} never returns false for a hash that
+ * was added, but may return true for one that wasn't, with the configured probability.
+ *
+ * Hashes are expected to be well mixed already (say hashes of rows), so bit positions are derived
+ * from them by double hashing, without hashing again.
+ *
+ * @author Ram Lakshmanan
+ */
+public class BloomFilter {
+
+	/**
+	 * Bit positions are 31-bit, so the filter is capped at 2^31 bits, i.e. 256 MB.
+	 */
+	private static final int MAX_WORD_COUNT = 1 << 25;
+
+	private final long[] bits;
+
+	private final long bitCount;
+
+	private final int hashCount;
+
+	/**
+	 * @param expectedInsertions
+	 * @param falsePositiveRate		Between 0 & 1, exclusive.
+	 */
+	public BloomFilter(long expectedInsertions, double falsePositiveRate) {
+
+		if (expectedInsertions < 1 || falsePositiveRate <= 0 || falsePositiveRate >= 1) {
+			throw new IllegalArgumentException("Invalid Arguments");
+		}
+
+		// Optimal sizing: m = -n ln(p) / (ln 2)^2 bits, k = (m / n) ln 2 hash functions.
+		long optimalBitCount = (long)Math.ceil(-expectedInsertions * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+		int wordCount = (int)Math.min(MAX_WORD_COUNT, (optimalBitCount + 63) >>> 6);
+
+		this.bits = new long[Math.max(1, wordCount)];
+		this.bitCount = (long)bits.length << 6;
+		this.hashCount = Math.max(1, (int)Math.round((double)bitCount / expectedInsertions * Math.log(2)));
+	}
+
+	public void add(long hash) {
+
+		int hash1 = (int)hash;
+		int hash2 = (int)(hash >>> 32);
+
+		for (int counter = 1; counter <= hashCount; ++counter) {
+
+			long bit = position(hash1 + counter * hash2);
+			bits[(int)(bit >>> 6)] |= 1L << bit;
+		}
+	}
+
+	public boolean mightContain(long hash) {
+
+		int hash1 = (int)hash;
+		int hash2 = (int)(hash >>> 32);
+
+		for (int counter = 1; counter <= hashCount; ++counter) {
+
+			long bit = position(hash1 + counter * hash2);
+			if ((bits[(int)(bit >>> 6)] & (1L << bit)) == 0) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	private long position(int combinedHash) {
+
+		// Flip negative hashes, so that they map to a valid position.
+		return (combinedHash < 0 ? ~combinedHash : combinedHash) % bitCount;
+	}
+
+	public int getHashCount() {
+		return hashCount;
+	}
+
+	public long getBitCount() {
+		return bitCount;
+	}
+}
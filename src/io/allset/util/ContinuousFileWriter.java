@@ -1,23 +1,76 @@
 package io.allset.util;
 
+import java.io.Closeable;
 import java.io.File;
-import java.io.FileWriter;
-import java.util.ArrayList;
+import java.io.Flushable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
 import java.util.List;
 
 /**
- * 
+ * Writes text to a file across multiple calls: first write truncates the file, subsequent writes
+ * append to it. File isn't created till some text is written.
+ *
+ * File is opened once and kept open till {@link #close()}. Text is encoded in UTF-8 straight in to
+ * a direct buffer, which is written to the file channel whenever it fills up. Thus callers can
+ * write row by row, instead of building the whole file content as a String. Writing after close
+ * re-opens the file in append mode.
+ *
  * @author Ram Lakshmanan
  */
-public class ContinuousFileWriter {
+public class ContinuousFileWriter implements Closeable, Flushable {
+
+	public static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+	/**
+	 * Buffer should hold the bytes of at least a few characters.
+	 */
+	private static final int MIN_BUFFER_SIZE = 16;
 
 	private boolean isFirstTimeWrite = Boolean.TRUE;
 	
 	private File file;
+
+	private final ByteBuffer buffer;
+
+	private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder()
+			.onMalformedInput(CodingErrorAction.REPLACE)
+			.onUnmappableCharacter(CodingErrorAction.REPLACE);
+
+	/**
+	 * null till the first write & after close.
+	 */
+	private FileChannel channel;
+
+	/**
+	 * If true, contents are forced to the storage device on close.
+	 */
+	private boolean forceOnClose;
 	
 	public ContinuousFileWriter(String filePath) throws Exception {
 		
-		this.file = new File(filePath);		
+		this(filePath, DEFAULT_BUFFER_SIZE);
+	}
+
+	/**
+	 * @param filePath
+	 * @param bufferSize	Size of the buffer in bytes. 
+	 */
+	public ContinuousFileWriter(String filePath, int bufferSize) throws Exception {
+
+		if (!StringUtil.isValid(filePath) || bufferSize < MIN_BUFFER_SIZE) {
+			throw new IllegalArgumentException("Invalid Arguments");
+		}
+
+		this.file = new File(filePath);
+		this.buffer = ByteBuffer.allocateDirect(bufferSize);
 	}
 	
 	public void write(String text) throws Exception {
@@ -26,39 +79,176 @@ public class ContinuousFileWriter {
 			return;
 		}
 		
-		List<String> textList = new ArrayList<>();
-		textList.add(text);
-		
-		write(textList);
+		append(text);
 	}
 
 	public void write(List<String> text) throws Exception {
 		
-		if (isFirstTimeWrite) {
-			
-			file.createNewFile();
-			FileWriter writer = new FileWriter(file);
-			writeToFile(writer, text);
-			isFirstTimeWrite = Boolean.FALSE;
+		if (text == null || text.size() ==0) {
 			return;
 		}
 		
-		// Opening the File Writer in such a mode that contents will be appended
-		FileWriter writer = new FileWriter(file, Boolean.TRUE);
-		writeToFile(writer, text);
+		for (String line : text) {
+			append(line);
+		}
 	}
-		
-	protected void writeToFile(FileWriter writer, List<String> text) throws Exception{
-		
-		if (text == null || text.size() ==0) {
+
+	/**
+	 * Buffers the text. It's written to the file once the buffer fills up, or on flush/close.
+	 */
+	public void append(CharSequence text) throws IOException {
+
+		if (text == null || text.length() == 0) {
 			return;
 		}
-		
-		for (String line : text) {
-			writer.write(line);
+
+		encode(text instanceof CharBuffer ? (CharBuffer)text : CharBuffer.wrap(text));
+	}
+
+	public void append(char[] text, int offset, int length) throws IOException {
+
+		if (length == 0) {
+			return;
 		}
-		
-		writer.flush();
-		writer.close();
+
+		encode(CharBuffer.wrap(text, offset, length));
+	}
+
+	/**
+	 * Appends contents of the file as they are, i.e. without decoding & encoding them again. File is
+	 * transferred channel to channel, which lets the OS copy it without bringing it in to the JVM.
+	 *
+	 * @param source	Ignored if it's null or empty.
+	 */
+	public void append(File source) throws IOException {
+
+		if (source == null || source.length() == 0) {
+			return;
+		}
+
+		open();
+		drain();
+
+		FileChannel sourceChannel = FileChannel.open(source.toPath(), StandardOpenOption.READ);
+		try {
+
+			long size = sourceChannel.size();
+			long position = 0;
+			while (position < size) {
+				position += sourceChannel.transferTo(position, size - position, channel);
+			}
+		} finally {
+
+			sourceChannel.close();
+		}
+	}
+
+	/**
+	 * Writes the buffered text to the file.
+	 */
+	@Override
+	public void flush() throws IOException {
+
+		if (channel != null) {
+			drain();
+		}
+	}
+
+	/**
+	 * Writes the buffered text to the file and forces it to the storage device, so that it
+	 * survives a crash of the system.
+	 */
+	public void force() throws IOException {
+
+		if (channel != null) {
+
+			drain();
+			channel.force(true);
+		}
+	}
+
+	/**
+	 * Writes the buffered text & closes the file.
+	 */
+	@Override
+	public void close() throws IOException {
+
+		if (channel == null) {
+			return;
+		}
+
+		try {
+
+			if (forceOnClose) {
+				force();
+			} else {
+				drain();
+			}
+		} finally {
+
+			channel.close();
+			channel = null;
+		}
+	}
+
+	private void encode(CharBuffer text) throws IOException {
+
+		open();
+
+		// Each write is encoded as a whole, same as a separate writer per write.
+		encoder.reset();
+		while (true) {
+
+			CoderResult result = encoder.encode(text, buffer, true);
+			if (result.isOverflow()) {
+
+				drain();
+				continue;
+			}
+
+			if (result.isError()) {
+				result.throwException();
+			}
+
+			break;
+		}
+
+		while (encoder.flush(buffer).isOverflow()) {
+			drain();
+		}
+	}
+
+	private void open() throws IOException {
+
+		if (channel != null) {
+			return;
+		}
+
+		if (isFirstTimeWrite) {
+
+			channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+			isFirstTimeWrite = Boolean.FALSE;
+			return;
+		}
+
+		// Opening the channel in such a mode that contents will be appended
+		channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+	}
+
+	private void drain() throws IOException {
+
+		buffer.flip();
+		while (buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+		buffer.clear();
+	}
+
+	public boolean isForceOnClose() {
+		return forceOnClose;
+	}
+
+	public void setForceOnClose(boolean forceOnClose) {
+		this.forceOnClose = forceOnClose;
 	}
 }
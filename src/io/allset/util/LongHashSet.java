@@ -0,0 +1,179 @@
+package io.allset.util;
+
+import java.util.Arrays;
+
+/**
+ * Set of primitive longs, with open addressing & linear probing. Unlike HashSet&lt;Long&gt;, it
+ * doesn't allocate an object per element: each element takes 8 to 16 bytes of a single long[].
+ *
+ * @author Ram Lakshmanan
+ */
+public class LongHashSet {
+
+	private static final int DEFAULT_CAPACITY = 16;
+
+	/**
+	 * 0 marks a free slot in the table. So presence of 0 itself is tracked separately.
+	 */
+	private static final long FREE = 0;
+
+	private long[] table;
+
+	private int mask;
+
+	private int size;
+
+	private boolean containsFree;
+
+	public LongHashSet() {
+
+		this(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * @param expectedSize	Number of elements, which can be added without resizing.
+	 */
+	public LongHashSet(int expectedSize) {
+
+		if (expectedSize < 0) {
+			throw new IllegalArgumentException("Invalid Arguments");
+		}
+
+		allocate(tableSize(expectedSize));
+	}
+
+	/**
+	 * @return	true if the value wasn't present in the set.
+	 */
+	public boolean add(long value) {
+
+		if (value == FREE) {
+
+			if (containsFree) {
+				return false;
+			}
+
+			containsFree = true;
+			++size;
+			return true;
+		}
+
+		int slot = slot(value);
+		while (table[slot] != FREE) {
+
+			if (table[slot] == value) {
+				return false;
+			}
+
+			slot = (slot + 1) & mask;
+		}
+
+		table[slot] = value;
+		++size;
+
+		// Keep the table at most half full, so that probe sequences stay short.
+		if (size * 2 > table.length) {
+			resize(table.length * 2);
+		}
+
+		return true;
+	}
+
+	public boolean contains(long value) {
+
+		if (value == FREE) {
+			return containsFree;
+		}
+
+		int slot = slot(value);
+		while (table[slot] != FREE) {
+
+			if (table[slot] == value) {
+				return true;
+			}
+
+			slot = (slot + 1) & mask;
+		}
+
+		return false;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * Removes all the elements. Table isn't shrunk, so that it can be reused.
+	 */
+	public void clear() {
+
+		Arrays.fill(table, FREE);
+		containsFree = false;
+		size = 0;
+	}
+
+	/**
+	 * @return	elements of the set in ascending order.
+	 */
+	public long[] toSortedArray() {
+
+		long[] values = new long[size];
+		int index = 0;
+		if (containsFree) {
+			values[index++] = FREE;
+		}
+
+		for (long value : table) {
+
+			if (value != FREE) {
+				values[index++] = value;
+			}
+		}
+
+		Arrays.sort(values);
+		return values;
+	}
+
+	private int slot(long value) {
+
+		// Values are typically hashes already, but spread the bits anyway so that sequential
+		// values don't cluster.
+		long mixed = value * 0x9E3779B97F4A7C15L;
+		return (int)(mixed ^ (mixed >>> 32)) & mask;
+	}
+
+	private void resize(int newLength) {
+
+		long[] oldTable = table;
+		allocate(newLength);
+
+		for (long value : oldTable) {
+
+			if (value == FREE) {
+				continue;
+			}
+
+			int slot = slot(value);
+			while (table[slot] != FREE) {
+				slot = (slot + 1) & mask;
+			}
+			table[slot] = value;
+		}
+	}
+
+	private void allocate(int length) {
+
+		table = new long[length];
+		mask = length - 1;
+	}
+
+	private static int tableSize(int expectedSize) {
+
+		int length = Integer.highestOneBit(Math.max(DEFAULT_CAPACITY, expectedSize * 2 - 1)) << 1;
+		return Math.max(DEFAULT_CAPACITY, length);
+	}
+}
@@ -0,0 +1,53 @@
+package io.allset.datazen;
+
+import io.allset.testzen.CombinationIterator;
+import io.allset.testzen.entity.Field;
+import io.allset.testzen.entity.RowSchema;
+import io.allset.testzen.type.EnumerationType;
+import io.allset.testzen.type.ResultType;
+import io.allset.testzen.util.StringPrinter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * 
+ * @author Ram Lakshmanan
+ */
+public class CombinationIteratorTest {
+
+	@Test
+	public void odometerOrder() throws Exception {
+		
+		EnumerationType incomeType = new EnumerationType();
+		EnumerationType networthType = new EnumerationType();
+		BusinessRulesBuilder builder = new BusinessRulesBuilder(new Field("income", incomeType, null, "100"), 
+																new Field("networth", networthType, null, "1000"), 
+																new Field("expectedResult", ResultType.INSTANCE));
+		builder.addRule("100", null, "NO");
+		builder.addRule("101", null, "NO");
+		builder.addRule(null, "1000", "NO");
+		
+		RowSchema schema = new RowSchema(builder.getRules());
+		int[] rule = schema.encode(builder.getRules().get(2));
+		CombinationIterator iterator = new CombinationIterator(schema, rule);
+		Assert.assertEquals(iterator.getRowCount(), 3);
+		
+		List<String> rows = new ArrayList<>();
+		while (iterator.hasNext()) {
+			rows.add(StringPrinter.toStringValues(schema, iterator.next()));
+		}
+		
+		Assert.assertEquals(rows.size(), 3);
+		Assert.assertEquals(rows.get(0), ", 1000, false, ");
+		Assert.assertEquals(rows.get(1), "100, 1000, false, ");
+		Assert.assertEquals(rows.get(2), "101, 1000, false, ");
+		
+		// Rule itself is left untouched.
+		Assert.assertEquals(rule[0], RowSchema.NULL_ORDINAL);
+		Assert.assertNull(schema.decode(rule).get(0).getValue());
+	}
+}
@@ -1,10 +1,15 @@
 package io.allset.datazen;
 
+import io.allset.fastthread.FastThreadExecutor;
+import io.allset.testzen.DataGenerator;
 import io.allset.testzen.entity.Field;
 import io.allset.testzen.type.EnumerationType;
 import io.allset.testzen.type.ResultType;
 import io.allset.testzen.util.StringPrinter;
+import io.allset.util.FileUtil;
 
+import java.io.File;
+import java.nio.file.Files;
 import java.util.List;
 
 import org.testng.Assert;
@@ -69,4 +74,87 @@ public class DataGeneratorTest {
 		//Assert.assertEquals(cleanData.size(), 4);		
 	}*/
 	
+	@Test
+	public void parallelMatchesSequential() throws Exception {
+		
+		BusinessRulesBuilder builder = new BusinessRulesBuilder(new Field("income", new EnumerationType(), null, "100"), 
+																new Field("networth", new EnumerationType(), null, "1000"),
+																new Field("occupation", new EnumerationType(), null, "Entreprenuer"),
+																new Field("expectedResult", ResultType.INSTANCE));
+		builder.addRule("100", null, null, "NO");
+		builder.addRule("101", null, null, "NO");
+		builder.addRule(null, null, "Student", "NO");
+		builder.addRule(null, "1001", null, "NO");
+		builder.addRule(null, null, null, "NO");
+		
+		assertParallelMatchesSequential(builder);
+	}
+	
+	/**
+	 * Rule without any value spans about 12^5 rows, so it's split in to more than one slice.
+	 */
+	@Test
+	public void parallelSlicesLargeRule() throws Exception {
+		
+		BusinessRulesBuilder builder = new BusinessRulesBuilder(new Field("a", new EnumerationType(), null, "a"), 
+																new Field("b", new EnumerationType(), null, "b"),
+																new Field("c", new EnumerationType(), null, "c"),
+																new Field("d", new EnumerationType(), null, "d"),
+																new Field("e", new EnumerationType(), null, "e"),
+																new Field("expectedResult", ResultType.INSTANCE));
+		for (int counter = 0; counter < 10; ++counter) {
+			builder.addRule("a" + counter, "b" + counter, "c" + counter, "d" + counter, "e" + counter, "NO");
+		}
+		builder.addRule(null, null, null, null, null, "NO");
+		
+		int allDataCount = assertParallelMatchesSequential(builder);
+		Assert.assertTrue(allDataCount > 2 * 64 * 1024, "Rows generated: " + allDataCount);
+	}
+	
+	/**
+	 * @return	number of lines in the generated allData file.
+	 */
+	private int assertParallelMatchesSequential(BusinessRulesBuilder builder) throws Exception {
+		
+		File directory = Files.createTempDirectory("testzen").toFile();
+		try {
+			
+			String sequentialPath = new File(directory, "sequential.csv").getPath();
+			String parallelPath = new File(directory, "parallel.csv").getPath();
+			
+			new DataGenerator(sequentialPath).generateData(sequentialPath, builder.getRules());
+			
+			FastThreadExecutor executor = FastThreadExecutor.newForkJoinExecutor("DataGeneratorTest", 4);
+			try {
+				
+				DataGenerator generator = new DataGenerator(parallelPath);
+				generator.setExecutor(executor);
+				generator.generateData(parallelPath, builder.getRules());
+			} finally {
+				
+				executor.shutdown();
+			}
+			
+			int allDataCount = 0;
+			for (String suffix : new String[] {"-allData.csv", "-positiveData.csv"}) {
+				
+				List<String> sequentialLines = FileUtil.readFileContents(new File(directory, "sequential" + suffix).getPath());
+				List<String> parallelLines = FileUtil.readFileContents(new File(directory, "parallel" + suffix).getPath());
+				Assert.assertFalse(sequentialLines.isEmpty());
+				Assert.assertEquals(parallelLines, sequentialLines);
+				
+				if (suffix.equals("-allData.csv")) {
+					allDataCount = sequentialLines.size();
+				}
+			}
+			
+			return allDataCount;
+		} finally {
+			
+			for (File file : directory.listFiles()) {
+				file.delete();
+			}
+			directory.delete();
+		}
+	}
 }
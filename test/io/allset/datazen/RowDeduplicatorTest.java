@@ -0,0 +1,58 @@
+package io.allset.datazen;
+
+import io.allset.testzen.RowDeduplicator;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * 
+ * @author Ram Lakshmanan
+ */
+public class RowDeduplicatorTest {
+
+	@Test
+	public void inMemory() throws Exception {
+		
+		RowDeduplicator deduplicator = new RowDeduplicator();
+		try {
+			
+			Assert.assertTrue(deduplicator.add(new int[] {1, 2, 3}));
+			Assert.assertTrue(deduplicator.add(new int[] {3, 2, 1}));
+			Assert.assertTrue(deduplicator.add(new int[] {0, 0, 0}));
+			Assert.assertTrue(deduplicator.add(new int[] {0, 0}));
+			Assert.assertFalse(deduplicator.add(new int[] {1, 2, 3}));
+			Assert.assertFalse(deduplicator.add(new int[] {0, 0, 0}));
+			Assert.assertEquals(deduplicator.getRowCount(), 4);
+		} finally {
+			
+			deduplicator.close();
+		}
+	}
+	
+	@Test
+	public void spill() throws Exception {
+		
+		// Only 100 hashes are kept in memory, rest are spilled.
+		RowDeduplicator deduplicator = new RowDeduplicator(100, 10000);
+		try {
+			
+			for (int counter = 0; counter < 10000; ++counter) {
+				Assert.assertTrue(deduplicator.add(new int[] {counter % 100, counter / 100, -1}));
+			}
+			
+			// 100 spills are merged in to one file per set bit of 100.
+			Assert.assertEquals(deduplicator.getSpillFileCount(), Integer.bitCount(100));
+			
+			for (int counter = 0; counter < 10000; counter += 7) {
+				Assert.assertFalse(deduplicator.add(new int[] {counter % 100, counter / 100, -1}));
+			}
+			
+			Assert.assertTrue(deduplicator.add(new int[] {100, 100, -1}));
+			Assert.assertEquals(deduplicator.getRowCount(), 10001);
+		} finally {
+			
+			deduplicator.close();
+		}
+	}
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright [2015] [Tier1app LLC]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package io.allset.fastthread;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.testng.annotations.Test;
+
+/**
+ *
+ * @author Ram Lakshmanan
+ */
+public class AdaptiveConcurrencyLimiterTest {
+
+	@Test
+	public void limitReached() {
+
+		AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(2, 1, 10, 100);
+
+		assertTrue(limiter.tryAcquire());
+		assertTrue(limiter.tryAcquire());
+		assertFalse(limiter.tryAcquire());
+
+		limiter.release(10, false);
+		assertTrue(limiter.tryAcquire());
+	}
+
+	@Test
+	public void additiveIncrease() {
+
+		AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(4, 1, 10, 100);
+
+		for (int counter = 0; counter < 4; ++counter) {
+			assertTrue(limiter.tryAcquire());
+		}
+
+		// Limit is fully utilized and jobs are fast, so limit should grow by one per job.
+		limiter.release(10, false);
+		limiter.release(10, false);
+		assertEquals(limiter.getLimit(), 6);
+	}
+
+	@Test
+	public void multiplicativeDecrease() {
+
+		AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(10, 2, 10, 100);
+
+		assertTrue(limiter.tryAcquire());
+		limiter.release(10, true);
+		assertEquals(limiter.getLimit(), 9);
+
+		// Slow job is treated same as a timed out job.
+		assertTrue(limiter.tryAcquire());
+		limiter.release(500, false);
+		assertEquals(limiter.getLimit(), 8);
+
+		for (int counter = 0; counter < 20; ++counter) {
+
+			assertTrue(limiter.tryAcquire());
+			limiter.release(10, true);
+		}
+
+		// Limit shouldn't go below the minimum.
+		assertEquals(limiter.getLimit(), 2);
+		assertEquals(limiter.getInFlight(), 0);
+	}
+
+	/**
+	 * Steps:
+	 * 1. Limit the executor to 2 in-flight jobs & fire 3 jobs.
+	 *
+	 * Expected Result:
+	 * 1. Third job should be rejected upfront with JobAbortedException.
+	 * 2. Permits should be returned once the jobs complete.
+	 */
+	@Test
+	public void executorRejectsBeyondLimit() throws Exception {
+
+		FastThreadExecutor executor = new FastThreadExecutor("limited");
+		AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(2, 1, 2, FastThreadExecutorTest.TIMEOUT_PERIOD);
+		executor.setConcurrencyLimiter(limiter);
+
+		List<SleepingJob> sleepingJobs = new ArrayList<SleepingJob>();
+		for (int counter = 0; counter < 3; ++counter) {
+
+			sleepingJobs.add(new SleepingJob(FastThreadExecutorTest.WORK_TIME));
+		}
+
+		List<JobResult> results = executor.executeJobs(sleepingJobs, FastThreadExecutorTest.TIMEOUT_PERIOD);
+
+		assertNotNull(results.get(0).getResult());
+		assertNotNull(results.get(1).getResult());
+		assertTrue(results.get(2).getException() instanceof java.util.concurrent.ExecutionException);
+		assertTrue(results.get(2).getException().getCause() instanceof JobAbortedException);
+
+		// Permit is returned by the worker thread, right after the result is handed out.
+		Thread.sleep(50);
+		assertEquals(limiter.getInFlight(), 0);
+
+		executor.shutdown();
+	}
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright [2015] [Tier1app LLC]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package io.allset.fastthread;
+
+import static org.testng.Assert.assertTrue;
+
+import java.lang.management.ManagementFactory;
+
+import org.testng.SkipException;
+import org.testng.annotations.Test;
+
+/**
+ *
+ * @author Ram Lakshmanan
+ */
+public class AllocationBudgetTest {
+
+	/**
+	 * Bytes allocated by the caller thread per job. Single-job path allocates about 200 bytes
+	 * with compressed oops; budget leaves headroom for JVMs without them.
+	 */
+	private static final long ALLOCATION_BUDGET = 384;
+
+	private static final int ITERATIONS = 20000;
+
+	/**
+	 * Steps:
+	 * 1. Warm up the single-job path.
+	 * 2. Execute jobs one by one through executeJob() & dropJobToExecutor() + getResult().
+	 *
+	 * Expected Result:
+	 * 1. Bytes allocated by the caller thread per job should be within the budget.
+	 */
+	@Test
+	public void singleJobPath() throws Exception {
+
+		java.lang.management.ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+		if (!(threadBean instanceof com.sun.management.ThreadMXBean)
+				|| !((com.sun.management.ThreadMXBean)threadBean).isThreadAllocatedMemorySupported()) {
+			throw new SkipException("Thread allocation accounting isn't supported by this JVM");
+		}
+
+		com.sun.management.ThreadMXBean allocationBean = (com.sun.management.ThreadMXBean)threadBean;
+		allocationBean.setThreadAllocatedMemoryEnabled(true);
+
+		FastThreadExecutor executor = new FastThreadExecutor("allocationBudget", 4, 1000);
+		long threadId = Thread.currentThread().getId();
+
+		executeJobs(executor, ITERATIONS);
+
+		long allocatedBytes = allocationBean.getThreadAllocatedBytes(threadId);
+		executeJobs(executor, ITERATIONS);
+		long bytesPerJob = (allocationBean.getThreadAllocatedBytes(threadId) - allocatedBytes) / (ITERATIONS * 2);
+
+		assertTrue(bytesPerJob <= ALLOCATION_BUDGET, "Bytes allocated per job: " + bytesPerJob);
+
+		executor.shutdown();
+	}
+
+	private void executeJobs(FastThreadExecutor executor, int iterations) throws Exception {
+
+		for (int counter = 0; counter < iterations; ++counter) {
+
+			executor.executeJob(new SleepingJob(0), FastThreadExecutorTest.LONG_WORK_TIME).getResult();
+			executor.getResult(executor.dropJobToExecutor(new SleepingJob(0)), FastThreadExecutorTest.LONG_WORK_TIME).getResult();
+		}
+	}
+}
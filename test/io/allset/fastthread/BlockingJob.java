@@ -0,0 +1,54 @@
+/*
+ * Copyright [2015] [Tier1app LLC]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package io.allset.fastthread;
+
+/**
+ * Job which blocks, as if it's waiting on a slow downstream call, and records
+ * whether it got interrupted.
+ *
+ * @author Ram Lakshmanan
+ */
+public class BlockingJob extends Job {
+
+	private int workTime;
+
+	protected volatile boolean resourceClosed;
+	protected volatile boolean interrupted;
+
+	public BlockingJob(int workTime) {
+		this.workTime = workTime;
+	}
+
+	@Override
+	public Boolean doWork() throws Exception {
+
+		try {
+			Thread.sleep(workTime);
+		} catch (InterruptedException e) {
+
+			interrupted = true;
+			throw e;
+		}
+
+		return Boolean.TRUE;
+	}
+
+	@Override
+	public void onInterrupt() {
+		resourceClosed = true;
+	}
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright [2015] [Tier1app LLC]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package io.allset.fastthread;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeoutException;
+
+import org.testng.annotations.Test;
+
+/**
+ *
+ * @author Ram Lakshmanan
+ */
+public class BulkheadTest {
+
+	/**
+	 * Steps:
+	 * 1. Cap 'slow' partition to 1 concurrent job & 1 queued job.
+	 * 2. Fire 3 jobs on 'slow' partition & a job without partition.
+	 *
+	 * Expected Result:
+	 * 1. Third job of 'slow' partition should be rejected with JobAbortedException.
+	 * 2. Job without partition should complete right away.
+	 * 3. Queued job of 'slow' partition should be executed once the running one completes.
+	 */
+	@Test
+	public void partitionCap() throws Exception {
+
+		FastThreadExecutor executor = new FastThreadExecutor("bulkhead", 4, 10);
+		Bulkhead bulkhead = executor.addPartition("slow", 1, 1);
+
+		List<SleepingJob> slowJobs = new ArrayList<SleepingJob>();
+		for (int counter = 0; counter < 3; ++counter) {
+
+			SleepingJob slowJob = new SleepingJob(FastThreadExecutorTest.LONG_WORK_TIME);
+			slowJob.setPartition("slow");
+			slowJobs.add(slowJob);
+		}
+
+		List<TimerFutureTask> futureResults = executor.dropJobsToExecutor(slowJobs);
+		assertEquals(bulkhead.getActiveCount(), 1);
+		assertEquals(bulkhead.getQueuedCount(), 1);
+
+		long startTime = System.currentTimeMillis();
+		JobResult fastResult = executor.executeJob(new SleepingJob(0), FastThreadExecutorTest.TIMEOUT_PERIOD);
+		assertNotNull(fastResult.getResult());
+		long executionTime = System.currentTimeMillis() - startTime;
+		assertTrue(executionTime < FastThreadExecutorTest.WORK_TIME, "Execution Time is: " + executionTime);
+
+		List<JobResult> results = executor.getResults(futureResults, FastThreadExecutorTest.LONG_WORK_TIME * 3);
+		assertNotNull(results.get(0).getResult());
+		assertNotNull(results.get(1).getResult());
+		assertTrue(results.get(2).getException() instanceof ExecutionException);
+		assertTrue(results.get(2).getException().getCause() instanceof JobAbortedException);
+
+		// Slot is returned by the worker thread, right after the result is handed out.
+		Thread.sleep(10);
+		assertEquals(bulkhead.getActiveCount(), 0);
+		assertEquals(bulkhead.getQueuedCount(), 0);
+
+		executor.shutdown();
+	}
+
+	/**
+	 * Jobs abandoned while waiting in the partition's queue, should free up the quota right away
+	 * and should never be executed.
+	 */
+	@Test
+	public void abandonedJobsFreeQuota() throws Exception {
+
+		FastThreadExecutor executor = new FastThreadExecutor("bulkheadQuota", 4, 10);
+		Bulkhead bulkhead = executor.addPartition("slow", 1, 1);
+
+		SleepingJob runningJob = new SleepingJob(FastThreadExecutorTest.LONG_WORK_TIME);
+		runningJob.setPartition("slow");
+		TimerFutureTask runningTask = executor.dropJobToExecutor(runningJob);
+
+		SleepingJob queuedJob = new SleepingJob(0);
+		queuedJob.setPartition("slow");
+		JobResult result = executor.executeJob(queuedJob, FastThreadExecutorTest.WORK_TIME);
+		assertTrue(result.getException() instanceof TimeoutException, "Expected TimeoutException, but received: " + result.getException());
+		assertEquals(bulkhead.getQueuedCount(), 0);
+
+		SleepingJob nextJob = new SleepingJob(0);
+		nextJob.setPartition("slow");
+		TimerFutureTask nextTask = executor.dropJobToExecutor(nextJob);
+		assertEquals(bulkhead.getQueuedCount(), 1);
+
+		assertNotNull(executor.getResult(runningTask, FastThreadExecutorTest.LONG_WORK_TIME * 2).getResult());
+		assertNotNull(executor.getResult(nextTask, FastThreadExecutorTest.LONG_WORK_TIME * 2).getResult());
+		assertTrue(queuedJob.getTotalExecutionTime() < 0, "Abandoned job shouldn't have been executed");
+
+		executor.shutdown();
+	}
+}
@@ -0,0 +1,167 @@
+/*
+ * Copyright [2015] [Tier1app LLC]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package io.allset.fastthread;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeoutException;
+
+import org.testng.annotations.Test;
+
+/**
+ *
+ * @author Ram Lakshmanan
+ */
+public class CircuitBreakerTest {
+
+	private static final long OPEN_PERIOD = 200;
+
+	/**
+	 * Steps:
+	 * 1. Guard SleepingJob with a circuit breaker, which opens when half of 4 jobs fail.
+	 * 2. Fire 4 jobs which take longer than the timeout.
+	 * 3. Fire one more job.
+	 *
+	 * Expected Result:
+	 * 1. All 4 jobs should time out & circuit should open.
+	 * 2. Job should be failed right away with CircuitBreakerOpenException, without waiting for the timeout.
+	 */
+	@Test
+	public void tripOnTimeouts() throws Exception {
+
+		FastThreadExecutor executor = new FastThreadExecutor("breakerTrip", 4, 10);
+		CircuitBreaker circuitBreaker = executor.addCircuitBreaker(SleepingJob.class.getName(), 4, 0.5, OPEN_PERIOD);
+
+		List<SleepingJob> jobs = new ArrayList<SleepingJob>();
+		for (int counter = 0; counter < 4; ++counter) {
+			jobs.add(new SleepingJob(FastThreadExecutorTest.LONG_WORK_TIME));
+		}
+
+		List<JobResult> results = executor.executeJobs(jobs, FastThreadExecutorTest.TIMEOUT_PERIOD);
+		for (JobResult result : results) {
+			assertTrue(result.getException() instanceof TimeoutException);
+		}
+		assertEquals(circuitBreaker.getState(), CircuitBreaker.State.OPEN);
+
+		long startTime = System.currentTimeMillis();
+		JobResult result = executor.executeJob(new SleepingJob(0), FastThreadExecutorTest.TIMEOUT_PERIOD);
+		long executionTime = System.currentTimeMillis() - startTime;
+
+		assertTrue(result.getException() instanceof ExecutionException);
+		assertTrue(result.getException().getCause() instanceof CircuitBreakerOpenException);
+		assertTrue(executionTime < FastThreadExecutorTest.WORK_TIME, "Execution Time is: " + executionTime);
+	}
+
+	/**
+	 * Steps:
+	 * 1. Trip the circuit breaker of a partition with failing jobs.
+	 * 2. Wait for the open period & fire a job which succeeds.
+	 *
+	 * Expected Result:
+	 * 1. Job should be let through as a probe & circuit should close.
+	 * 2. Jobs without partition shouldn't be affected by the breaker.
+	 */
+	@Test
+	public void halfOpenProbe() throws Exception {
+
+		FastThreadExecutor executor = new FastThreadExecutor("breakerProbe", 4, 10);
+		CircuitBreaker circuitBreaker = executor.addCircuitBreaker("downstream", 2, 1, OPEN_PERIOD);
+
+		List<SleepingJob> jobs = new ArrayList<SleepingJob>();
+		for (int counter = 0; counter < 2; ++counter) {
+
+			SleepingJob job = new SleepingJob(FastThreadExecutorTest.LONG_WORK_TIME);
+			job.setPartition("downstream");
+			jobs.add(job);
+		}
+		executor.executeJobs(jobs, FastThreadExecutorTest.TIMEOUT_PERIOD);
+		assertEquals(circuitBreaker.getState(), CircuitBreaker.State.OPEN);
+
+		assertNotNull(executor.executeJob(new SleepingJob(0), FastThreadExecutorTest.TIMEOUT_PERIOD).getResult());
+
+		Thread.sleep(OPEN_PERIOD);
+		SleepingJob probe = new SleepingJob(0);
+		probe.setPartition("downstream");
+		assertNotNull(executor.executeJob(probe, FastThreadExecutorTest.TIMEOUT_PERIOD).getResult());
+		assertEquals(circuitBreaker.getState(), CircuitBreaker.State.CLOSED);
+	}
+
+	/**
+	 * Expected Result:
+	 * 1. Only one probe should be let through while circuit is half open.
+	 * 2. Failed probe should open the circuit again.
+	 */
+	@Test
+	public void failedProbe() throws Exception {
+
+		CircuitBreaker circuitBreaker = new CircuitBreaker("probe", 1, 1, 0);
+		assertEquals(circuitBreaker.acquire(), CircuitBreaker.PERMITTED);
+		circuitBreaker.release(CircuitBreaker.PERMITTED, false);
+		assertEquals(circuitBreaker.getState(), CircuitBreaker.State.OPEN);
+
+		assertEquals(circuitBreaker.acquire(), CircuitBreaker.PROBE);
+		assertEquals(circuitBreaker.acquire(), CircuitBreaker.REJECTED);
+		assertEquals(circuitBreaker.getState(), CircuitBreaker.State.HALF_OPEN);
+
+		circuitBreaker.release(CircuitBreaker.PROBE, false);
+		assertEquals(circuitBreaker.getState(), CircuitBreaker.State.OPEN);
+	}
+
+	/**
+	 * Steps:
+	 * 1. Record 1000 successes from each of 8 threads at once, in windows of 10 jobs.
+	 * 2. Record 10 failures.
+	 *
+	 * Expected Result:
+	 * 1. No success should be lost while windows roll over, so the failures should fill a window of
+	 *    their own & open the circuit, which opens only when all jobs of a window fail.
+	 */
+	@Test
+	public void concurrentOutcomes() throws Exception {
+
+		final CircuitBreaker circuitBreaker = new CircuitBreaker("concurrent", 10, 1, OPEN_PERIOD);
+		List<Thread> threads = new ArrayList<Thread>();
+		for (int counter = 0; counter < 8; ++counter) {
+
+			threads.add(new Thread() {
+				public void run() {
+					for (int outcome = 0; outcome < 1000; ++outcome) {
+						circuitBreaker.release(CircuitBreaker.PERMITTED, true);
+					}
+				}
+			});
+		}
+
+		for (Thread thread : threads) {
+			thread.start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		assertEquals(circuitBreaker.getState(), CircuitBreaker.State.CLOSED);
+
+		for (int counter = 0; counter < 10; ++counter) {
+			circuitBreaker.release(CircuitBreaker.PERMITTED, false);
+		}
+		assertEquals(circuitBreaker.getState(), CircuitBreaker.State.OPEN, circuitBreaker.toString());
+	}
+}
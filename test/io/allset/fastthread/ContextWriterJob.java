@@ -0,0 +1,41 @@
+/*
+ * Copyright [2015] [Tier1app LLC]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package io.allset.fastthread;
+
+/**
+ * Reads the request id from FastThreadContext & writes a value back in to it.
+ *
+ * @author Ram Lakshmanan
+ */
+public class ContextWriterJob extends Job {
+
+	public static final String WRITTEN_KEY = "writtenByWorker";
+
+	private final String value;
+
+	public ContextWriterJob(String value) {
+		this.value = value;
+	}
+
+	@Override
+	public Object doWork() throws Exception {
+
+		FastThreadContext context = FastThreadContext.getMondeeContext();
+		context.put(WRITTEN_KEY, value);
+		return context.get("requestId");
+	}
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright [2015] [Tier1app LLC]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package io.allset.fastthread;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeoutException;
+
+import org.testng.annotations.Test;
+
+/**
+ *
+ * @author Ram Lakshmanan
+ */
+public class ExecutorMetricsTest {
+
+	@Test
+	public void histogramPrecision() {
+
+		LatencyHistogram histogram = new LatencyHistogram();
+		for (int value = 1; value <= 1000; ++value) {
+			histogram.record(value);
+		}
+
+		assertEquals(histogram.getCount(), 1000);
+		assertEquals(histogram.getMax(), 1000);
+		assertEquals(histogram.getMean(), 500.5, 0.001);
+
+		long median = histogram.getValueAtPercentile(50);
+		assertTrue(median >= 500 && median <= 500 + 500 / LatencyHistogram.SUB_BUCKET_COUNT, "Median: " + median);
+		assertEquals(histogram.getValueAtPercentile(100), 1000);
+
+		// Every value should fall in a bucket whose upper bound is with in the precision.
+		long[] values = {0, 15, 16, 17, 31, 32, 1023, 1024, 123456789, Long.MAX_VALUE};
+		for (long value : values) {
+
+			long highestValue = LatencyHistogram.getHighestValue(LatencyHistogram.getBucketIndex(value));
+			assertTrue(highestValue >= value && highestValue - value <= value / LatencyHistogram.SUB_BUCKET_COUNT,
+					"Value: " + value + ", Bucket upper bound: " + highestValue);
+		}
+	}
+
+	/**
+	 * Steps:
+	 * 1. Occupy the only worker thread of the pool with a long running job.
+	 * 2. Let the caller time out on 2 queued jobs.
+	 * 3. Fill the queue & drop one more job.
+	 *
+	 * Expected Result:
+	 * 1. Each job should have been counted under exactly one outcome.
+	 * 2. Queue wait & run time should have been recorded for the executed jobs.
+	 * 3. Metrics should be available through JMX.
+	 */
+	@Test
+	public void poolMetrics() throws Exception {
+
+		FastThreadExecutor executor = new FastThreadExecutor("metrics", 1, 2);
+		ExecutorMetrics metrics = executor.getMetrics();
+		assertSame(ExecutorMetrics.getMetrics("metrics"), metrics);
+
+		TimerFutureTask longJob = executor.dropJobToExecutor(new SleepingJob(FastThreadExecutorTest.LONG_WORK_TIME));
+
+		List<SleepingJob> queuedJobs = new ArrayList<SleepingJob>();
+		queuedJobs.add(new SleepingJob(FastThreadExecutorTest.WORK_TIME));
+		queuedJobs.add(new SleepingJob(FastThreadExecutorTest.WORK_TIME));
+		for (JobResult result : executor.executeJobs(queuedJobs, FastThreadExecutorTest.WORK_TIME)) {
+			assertTrue(result.getException() instanceof TimeoutException);
+		}
+
+		List<SleepingJob> newJobs = new ArrayList<SleepingJob>();
+		for (int counter = 0; counter < 3; ++counter) {
+			newJobs.add(new SleepingJob(FastThreadExecutorTest.WORK_TIME));
+		}
+		List<TimerFutureTask> futureResults = executor.dropJobsToExecutor(newJobs);
+		assertEquals(metrics.getQueueDepth(), 2);
+		assertEquals(metrics.getActiveCount(), 1);
+
+		futureResults.add(longJob);
+		executor.getResults(futureResults);
+
+		// Metrics are recorded by the worker thread, right after the result is handed out.
+		Thread.sleep(50);
+
+		assertEquals(metrics.getCompletedCount(), 3);
+		assertEquals(metrics.getTimedOutCount(), 0);
+		assertEquals(metrics.getAbortedBeforeRunCount(), 2);
+		assertEquals(metrics.getRejectedCount(), 1);
+		assertEquals(metrics.getQueueDepth(), 0);
+		assertEquals(metrics.getActiveCount(), 0);
+
+		assertEquals(metrics.getQueueWaitTime().getCount(), 3);
+		assertEquals(metrics.getRunTime().getCount(), 3);
+		assertTrue(metrics.getRunTimeMax() >= FastThreadExecutorTest.LONG_WORK_TIME * 1000L, metrics.toString());
+		// Queued jobs waited for the long job to complete.
+		assertTrue(metrics.getQueueWaitMax() >= FastThreadExecutorTest.WORK_TIME * 1000L, metrics.toString());
+
+		Object rejectedCount = ManagementFactory.getPlatformMBeanServer().getAttribute(metrics.getObjectName(), "RejectedCount");
+		assertEquals(rejectedCount, Long.valueOf(1));
+
+		executor.shutdown();
+	}
+
+	@Test
+	public void timedOutWhileRunning() throws Exception {
+
+		FastThreadExecutor executor = new FastThreadExecutor("metricsTimeout", 1, 1);
+		ExecutorMetrics metrics = executor.getMetrics();
+
+		JobResult result = executor.executeJob(new SleepingJob(FastThreadExecutorTest.WORK_TIME * 2), FastThreadExecutorTest.WORK_TIME);
+		assertNotNull(result.getException());
+
+		Thread.sleep(FastThreadExecutorTest.WORK_TIME * 2);
+
+		assertEquals(metrics.getTimedOutCount(), 1);
+		assertEquals(metrics.getCompletedCount(), 0);
+		assertEquals(metrics.getAbortedBeforeRunCount(), 0);
+
+		executor.shutdown();
+	}
+}
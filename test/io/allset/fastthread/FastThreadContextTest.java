@@ -0,0 +1,134 @@
+/*
+ * Copyright [2015] [Tier1app LLC]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package io.allset.fastthread;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.Test;
+
+/**
+ *
+ * @author Ram Lakshmanan
+ */
+public class FastThreadContextTest {
+
+	private static final String CONTEXT_KEY = "requestId";
+
+	@AfterMethod
+	public void tearDown() {
+
+		FastThreadContext.setCaptureMode(FastThreadContext.CaptureMode.SHARED);
+		FastThreadContext.clear();
+	}
+
+	/**
+	 * Expected Result:
+	 * 1. Value put by the worker thread should be visible to the caller thread.
+	 */
+	@Test
+	public void sharedCapture() throws Exception {
+
+		FastThreadExecutor executor = new FastThreadExecutor("contextShared", 2, 10);
+		FastThreadContext.getMondeeContext().put(CONTEXT_KEY, "request1");
+
+		JobResult result = executor.executeJob(new ContextWriterJob("written"), FastThreadExecutorTest.TIMEOUT_PERIOD);
+		assertEquals(result.getResult(), "request1");
+		assertEquals(FastThreadContext.getMondeeContext().get(ContextWriterJob.WRITTEN_KEY), "written");
+
+		executor.shutdown();
+	}
+
+	/**
+	 * Steps:
+	 * 1. Capture snapshots of the context & update the context in the caller thread after capture.
+	 *
+	 * Expected Result:
+	 * 1. Jobs should see the values as of their creation.
+	 * 2. Values put by the worker threads shouldn't leak in to the caller's context.
+	 */
+	@Test
+	public void snapshotCapture() throws Exception {
+
+		FastThreadExecutor executor = new FastThreadExecutor("contextSnapshot", 2, 10);
+		FastThreadContext.setCaptureMode(FastThreadContext.CaptureMode.SNAPSHOT);
+		FastThreadContext.getMondeeContext().put(CONTEXT_KEY, "request1");
+
+		List<Job> jobs = new ArrayList<Job>();
+		jobs.add(new ContextWriterJob("written"));
+		FastThreadContext.getMondeeContext().put(CONTEXT_KEY, "request2");
+		jobs.add(new ContextWriterJob("written"));
+
+		List<JobResult> results = executor.executeJobs(jobs, FastThreadExecutorTest.TIMEOUT_PERIOD);
+		assertEquals(results.get(0).getResult(), "request1");
+		assertEquals(results.get(1).getResult(), "request2");
+		assertNull(FastThreadContext.getMondeeContext().get(ContextWriterJob.WRITTEN_KEY));
+
+		executor.shutdown();
+	}
+
+	/**
+	 * Expected Result:
+	 * 1. Job created by a thread without context shouldn't create one for the thread.
+	 * 2. With NONE capture mode, job shouldn't see the caller's context.
+	 */
+	@Test
+	public void skipCapture() throws Exception {
+
+		new ContextWriterJob("written");
+		assertNull(FastThreadContext.current());
+
+		FastThreadContext.getMondeeContext().put(CONTEXT_KEY, "request1");
+		FastThreadContext.setCaptureMode(FastThreadContext.CaptureMode.NONE);
+		assertNull(new ContextWriterJob("written").getFastThreadContext());
+	}
+
+	/**
+	 * Expected Result:
+	 * 1. Concurrent puts of different keys shouldn't lose any update.
+	 */
+	@Test
+	public void concurrentPuts() throws Exception {
+
+		final FastThreadContext context = new FastThreadContext();
+		List<Thread> threads = new ArrayList<Thread>();
+		for (int counter = 0; counter < 4; ++counter) {
+
+			final int threadIndex = counter;
+			threads.add(new Thread() {
+				public void run() {
+					for (int key = 0; key < 100; ++key) {
+						context.put(threadIndex + "-" + key, Integer.valueOf(key));
+					}
+				}
+			});
+		}
+
+		for (Thread thread : threads) {
+			thread.start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+
+		assertEquals(context.getValues().size(), 400);
+	}
+}
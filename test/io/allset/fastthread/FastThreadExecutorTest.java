@@ -16,6 +16,8 @@
  */
 package io.allset.fastthread;
 
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
 import static org.testng.Assert.assertNotNull;
 import static org.testng.Assert.assertNull;
 import static org.testng.Assert.assertTrue;
@@ -25,7 +27,10 @@ import java.io.CharArrayWriter;
 import java.io.PrintWriter;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.testng.annotations.Test;
 
@@ -186,7 +191,7 @@ public class FastThreadExecutorTest {
 
 	/**
 	 * Steps:
-	 * 1. Set timeout period to be 100ms. Fire Transactions.
+	 * 1. Set timeout period to be 125ms, so that it falls in between the two phases. Fire Transactions.
 	 * 2. Configure transactions to run for 200ms. (In first phase of execution 100ms is spent. In second phase another 100ms is spent).
 	 *
 	 * Expected Result:
@@ -204,9 +209,10 @@ public class FastThreadExecutorTest {
 			multiRoleJobs.add(new MultiRoleJob(LONG_WORK_TIME));
 		}
 
-		// Step 2: Fire the Jobs
+		// Step 2: Fire the Jobs. Timeout (125ms) falls in between the two phases. Phase 1 ends right
+		// at TIMEOUT_PERIOD, and deadlines are measured in nano seconds, so it can't be the timeout.
 		long startTime = System.currentTimeMillis();
-		List<JobResult> results = ftExecutor.executeJobs(multiRoleJobs, TIMEOUT_PERIOD);
+		List<JobResult> results = ftExecutor.executeJobs(multiRoleJobs, TIMEOUT_PERIOD + WORK_TIME / 2);
 
 		// All jobs should be executed with in the working time
 		long totalExecutionTime = System.currentTimeMillis() - startTime;
@@ -272,6 +278,263 @@ public class FastThreadExecutorTest {
 	}
 
 
+	/**
+	 * Steps:
+	 * 1. Fire 5 jobs of 50ms each in to a pool of single thread. So jobs complete one after the other.
+	 * 2. Set timeout period to be 100ms.
+	 *
+	 * Expected Result:
+	 * 1. Caller shouldn't be blocked beyond the timeout period, irrespective of the batch size.
+	 * 2. Jobs which are still pending at the deadline should have timed out.
+	 */
+	@Test
+	public void batchDeadline() throws Exception {
+
+		FastThreadExecutor executor = new FastThreadExecutor("batchDeadline", 1, LARGE_JOB_COUNT);
+
+		List<SleepingJob> sleepingJobs = new ArrayList<SleepingJob>();
+		for (int counter = 0; counter < JOB_COUNT; ++counter) {
+
+			sleepingJobs.add(new SleepingJob(WORK_TIME));
+		}
+
+		long startTime = System.currentTimeMillis();
+		List<JobResult> results = executor.executeJobs(sleepingJobs, TIMEOUT_PERIOD);
+
+		long executionTime = System.currentTimeMillis() - startTime;
+		assertTrue(executionTime < (TIMEOUT_PERIOD + 30), "Total Execution Time is: " + executionTime + ", it should have been: " + (TIMEOUT_PERIOD + 30));
+
+		int timeoutCount = 0;
+		for (JobResult result : results) {
+
+			if (result.getException() instanceof TimeoutException) {
+				++timeoutCount;
+			}
+		}
+
+		// At most 2 jobs could have completed with in the timeout period
+		assertTrue(timeoutCount >= JOB_COUNT - 2, "Timed out jobs: " + timeoutCount);
+
+		executor.shutdown();
+	}
+
+	/**
+	 * Steps:
+	 * 1. Occupy the only worker thread of the pool with a long running job.
+	 * 2. Fill the queue with jobs and let the caller time out on them. Repeat it, so that the
+	 *    timed out jobs outnumber the capacity of the queue.
+	 *
+	 * Expected Result:
+	 * 1. Timed out jobs should have freed their slots in the queue right away.
+	 * 2. New jobs should be accepted, instead of being rejected.
+	 * 3. Timed out jobs should never be executed.
+	 */
+	@Test
+	public void timedOutJobsEvictedFromQueue() throws Exception {
+
+		FastThreadExecutor executor = new FastThreadExecutor("eviction", 1, 2);
+		ThreadPoolExecutor threadPool = (ThreadPoolExecutor)executor.getExecutorService();
+
+		TimerFutureTask longJob = executor.dropJobToExecutor(new SleepingJob(LONG_WORK_TIME));
+
+		final AtomicInteger executionCount = new AtomicInteger();
+		for (int round = 0; round < 3; ++round) {
+
+			List<SleepingJob> queuedJobs = new ArrayList<SleepingJob>();
+			for (int counter = 0; counter < 2; ++counter) {
+
+				queuedJobs.add(new SleepingJob(WORK_TIME) {
+					@Override
+					public Boolean doWork() throws Exception {
+						executionCount.incrementAndGet();
+						return super.doWork();
+					}
+				});
+			}
+
+			List<JobResult> results = executor.executeJobs(queuedJobs, WORK_TIME / 2);
+			for (JobResult result : results) {
+
+				assertTrue(result.getException() instanceof TimeoutException, "Expected TimeoutException, but received: " + result.getException());
+			}
+			assertEquals(threadPool.getQueue().size(), 0);
+		}
+
+		// Queue has capacity again, so these jobs shouldn't be rejected.
+		List<SleepingJob> newJobs = new ArrayList<SleepingJob>();
+		newJobs.add(new SleepingJob(WORK_TIME));
+		newJobs.add(new SleepingJob(WORK_TIME));
+		List<TimerFutureTask> futureResults = executor.dropJobsToExecutor(newJobs);
+		assertEquals(threadPool.getQueue().size(), 2);
+
+		for (JobResult result : executor.getResults(futureResults)) {
+
+			assertNotNull(result.getResult());
+		}
+		assertNotNull(executor.getResult(longJob, LONG_WORK_TIME).getResult());
+		assertEquals(executionCount.get(), 0);
+
+		executor.shutdown();
+	}
+
+	/**
+	 * Steps:
+	 * 1. Turn on interruption of timed out jobs.
+	 * 2. Fire jobs which block beyond the timeout period.
+	 *
+	 * Expected Result:
+	 * 1. Jobs should have been asked to close their resources and should have been interrupted.
+	 * 2. Worker threads should be released right after the timeout.
+	 */
+	@Test
+	public void interruptOnTimeout() throws Exception {
+
+		FastThreadExecutor executor = new FastThreadExecutor("interrupt", JOB_COUNT, JOB_COUNT);
+		executor.setInterruptOnTimeout(true);
+
+		List<BlockingJob> blockingJobs = new ArrayList<BlockingJob>();
+		for (int counter = 0; counter < JOB_COUNT; ++counter) {
+
+			blockingJobs.add(new BlockingJob(LONG_WORK_TIME * 10));
+		}
+
+		executor.executeJobs(blockingJobs, TIMEOUT_PERIOD);
+
+		// Give the worker threads a moment to unwind.
+		Thread.sleep(WORK_TIME);
+
+		for (BlockingJob job : blockingJobs) {
+
+			assertTrue(job.resourceClosed);
+			assertTrue(job.interrupted);
+			assertTrue(job.getTotalExecutionTime() >= 0 && job.getTotalExecutionTime() < LONG_WORK_TIME, "Job execution time: " + job.getTotalExecutionTime());
+		}
+
+		// Interruption shouldn't leak in to the jobs executed afterwards by the same threads.
+		List<SleepingJob> sleepingJobs = new ArrayList<SleepingJob>();
+		for (int counter = 0; counter < JOB_COUNT; ++counter) {
+
+			sleepingJobs.add(new SleepingJob(WORK_TIME));
+		}
+
+		for (JobResult result : executor.executeJobs(sleepingJobs, TIMEOUT_PERIOD)) {
+
+			assertNotNull(result.getResult());
+		}
+
+		executor.shutdown();
+	}
+
+	/**
+	 * Steps:
+	 * 1. Drop jobs of 400ms with a timeout of 100ms and don't wait for their results.
+	 *
+	 * Expected Result:
+	 * 1. Jobs should have been expired on the deadline, even though no one was waiting.
+	 * 2. Jobs shouldn't have executed the phase #2.
+	 */
+	@Test
+	public void dropWithTimeout_expiredWithoutCaller() throws Exception {
+
+		List<MultiRoleJob> multiRoleJobs = new ArrayList<MultiRoleJob>();
+		for (int counter = 0; counter < JOB_COUNT; ++counter) {
+
+			multiRoleJobs.add(new MultiRoleJob(LONG_WORK_TIME * 2));
+		}
+
+		List<TimerFutureTask> futureResults = ftExecutor.dropJobsToExecutor(multiRoleJobs, TIMEOUT_PERIOD);
+
+		Thread.sleep(TIMEOUT_PERIOD + WORK_TIME);
+
+		for (TimerFutureTask futureResult : futureResults) {
+
+			assertTrue(futureResult.isDone());
+			JobResult result = ftExecutor.getResult(futureResult, TIMEOUT_PERIOD);
+			assertTrue(result.getException() instanceof TimeoutException, "Expected TimeoutException, but received: " + result.getException());
+		}
+
+		Thread.sleep(LONG_WORK_TIME * 2);
+		for (MultiRoleJob job : multiRoleJobs) {
+
+			assertTrue(job.isAbort());
+			assertNull(job.getJobResponse());
+		}
+	}
+
+	/**
+	 * Steps:
+	 * 1. Drop a job whose onTimeout() blocks, with a short timeout.
+	 * 2. Right after, drop another job with the same timeout. Don't wait for either of them.
+	 *
+	 * Expected Result:
+	 * 1. Second job should be expired on its deadline, while onTimeout() of the first one is blocked.
+	 */
+	@Test
+	public void blockingOnTimeoutDoesntDelayExpiry() throws Exception {
+
+		final CountDownLatch release = new CountDownLatch(1);
+		SleepingJob blockingJob = new SleepingJob(LONG_WORK_TIME) {
+			@Override
+			public void onTimeout() {
+				try {
+					release.await();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+		};
+
+		try {
+
+			TimerFutureTask blockingTask = ftExecutor.dropJobToExecutor(blockingJob, WORK_TIME);
+			Thread.sleep(1);
+			TimerFutureTask nextTask = ftExecutor.dropJobToExecutor(new SleepingJob(LONG_WORK_TIME), WORK_TIME);
+
+			Thread.sleep(WORK_TIME * 2);
+			assertTrue(nextTask.isDone());
+			assertFalse(blockingTask.isDone());
+		} finally {
+
+			release.countDown();
+		}
+	}
+
+	/**
+	 * Steps:
+	 * 1. Fire one long running job followed by fast jobs.
+	 *
+	 * Expected Result:
+	 * 1. Results of fast jobs should be handed out first, tagged with their position.
+	 * 2. Long running job should be handed out last with TimeoutException.
+	 */
+	@Test
+	public void streamJobs() throws Exception {
+
+		List<SleepingJob> sleepingJobs = new ArrayList<SleepingJob>();
+		sleepingJobs.add(new SleepingJob(LONG_WORK_TIME));
+		for (int counter = 1; counter < JOB_COUNT; ++counter) {
+
+			sleepingJobs.add(new SleepingJob(WORK_TIME));
+		}
+
+		JobResultStream stream = ftExecutor.streamJobs(sleepingJobs, TIMEOUT_PERIOD);
+
+		for (int counter = 1; counter < JOB_COUNT; ++counter) {
+
+			JobResult result = stream.next();
+			assertTrue(result.getJobIndex() > 0, "Fast job should have completed first, but received: " + result.getJobIndex());
+			assertNotNull(result.getResult());
+		}
+
+		JobResult result = stream.next();
+		assertTrue(result.getJobIndex() == 0);
+		assertTrue(result.getException() instanceof TimeoutException, "Expected TimeoutException, but received: " + result.getException());
+		assertTrue(!stream.hasNext());
+
+		// Clean-up
+		Thread.sleep(LONG_WORK_TIME);
+	}
+
 	@Test
 	public void longRunningJobs_withoutTimeout() throws Exception {
 
@@ -299,6 +562,68 @@ public class FastThreadExecutorTest {
 		Thread.sleep(LONG_WORK_TIME);
 	}
 
+	@Test
+	public void virtualThreads_timeout() throws Exception {
+
+		FastThreadExecutor executor = FastThreadExecutor.newVirtualThreadExecutor("virtual");
+
+		List<SleepingJob> sleepingJobs = new ArrayList<SleepingJob>();
+		sleepingJobs.add(new SleepingJob(WORK_TIME));
+		sleepingJobs.add(new SleepingJob(LONG_WORK_TIME));
+
+		List<JobResult> results = executor.executeJobs(sleepingJobs, TIMEOUT_PERIOD);
+
+		assertNotNull(results.get(0).getResult());
+		assertTrue(results.get(1).getException() instanceof TimeoutException, "Expected TimeoutException, but received: " + results.get(1).getException());
+
+		executor.shutdown();
+	}
+
+	/**
+	 * Steps:
+	 * 1. One thread waits on a slow job with a long timeout.
+	 * 2. Meanwhile another thread waits on the same job with a short timeout.
+	 *
+	 * Expected Result:
+	 * 1. Second thread shouldn't be held up by the first one: it should time out after the short timeout.
+	 * 2. First thread should receive the result of the job.
+	 */
+	@Test
+	public void sharedFuture_concurrentCallers() throws Exception {
+
+		final TimerFutureTask futureTask = ftExecutor.dropJobToExecutor(new SleepingJob(LONG_WORK_TIME));
+
+		final Object[] longWaitResult = new Object[1];
+		Thread longWaiter = new Thread() {
+			public void run() {
+				try {
+					longWaitResult[0] = futureTask.timedGet(LONG_WORK_TIME * 2);
+				} catch (Exception e) {
+					longWaitResult[0] = e;
+				}
+			}
+		};
+		longWaiter.start();
+		Thread.sleep(10);
+
+		long startTime = System.currentTimeMillis();
+		try {
+			futureTask.timedGet(WORK_TIME);
+			fail("Should have timed out");
+		} catch (TimeoutException e) {
+			// Expected
+		}
+
+		long waitTime = System.currentTimeMillis() - startTime;
+		assertTrue(waitTime < WORK_TIME + 30, "Wait Time is: " + waitTime + ", it should have been: " + (WORK_TIME + 30));
+
+		longWaiter.join();
+		assertEquals(longWaitResult[0], Boolean.TRUE);
+
+		// Completed future should be returned right away.
+		assertEquals(futureTask.timedGet(WORK_TIME), Boolean.TRUE);
+	}
+
 	// -------------------------------------------------------
 	// Start: shutdown() API tests
 	// -------------------------------------------------------
@@ -0,0 +1,156 @@
+/*
+ * Copyright [2015] [Tier1app LLC]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package io.allset.fastthread;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.testng.annotations.Test;
+
+/**
+ *
+ * @author Ram Lakshmanan
+ */
+public class HedgePolicyTest {
+
+	private static final int SAMPLE_COUNT = 10;
+
+	private static final int FAST_WORK_TIME = 5;
+
+	/**
+	 * Steps:
+	 * 1. Execute fast jobs, so that the hedge delay is learnt.
+	 * 2. Execute a job which is slow, but whose duplicate is fast.
+	 *
+	 * Expected Result:
+	 * 1. Result of the duplicate should be returned, long before the original job completes.
+	 * 2. Original job should be cancelled.
+	 */
+	@Test
+	public void hedgeSlowJob() throws Exception {
+
+		FastThreadExecutor executor = new FastThreadExecutor("hedgeSlowJob", 4, 10);
+		HedgePolicy policy = new HedgePolicy(90, 1, SAMPLE_COUNT);
+		executor.setHedgePolicy(policy);
+		warmUp(executor);
+		assertTrue(policy.getHedgeDelay() > 0, policy.toString());
+
+		ReplicaReadJob slowJob = new ReplicaReadJob(FastThreadExecutorTest.LONG_WORK_TIME, 0);
+		long startTime = System.currentTimeMillis();
+		JobResult result = executor.executeJob(slowJob, FastThreadExecutorTest.LONG_WORK_TIME * 2);
+		long executionTime = System.currentTimeMillis() - startTime;
+
+		assertNotNull(result.getResult());
+		assertTrue(executionTime < FastThreadExecutorTest.WORK_TIME, "Execution Time is: " + executionTime);
+		assertTrue(slowJob.isAbort());
+		assertEquals(policy.getHedgeCount(), 1);
+	}
+
+	/**
+	 * Steps:
+	 * 1. Allow 1 hedge per 10 jobs & execute 10 fast jobs.
+	 * 2. Execute 2 slow jobs, whose duplicates are fast.
+	 *
+	 * Expected Result:
+	 * 1. Only one of the slow jobs should be hedged.
+	 */
+	@Test
+	public void hedgeBudget() throws Exception {
+
+		FastThreadExecutor executor = new FastThreadExecutor("hedgeBudget", 4, 10);
+		HedgePolicy policy = new HedgePolicy(90, 0.1, SAMPLE_COUNT);
+		executor.setHedgePolicy(policy);
+		warmUp(executor);
+
+		List<ReplicaReadJob> jobs = new ArrayList<ReplicaReadJob>();
+		jobs.add(new ReplicaReadJob(FastThreadExecutorTest.WORK_TIME, 0));
+		jobs.add(new ReplicaReadJob(FastThreadExecutorTest.WORK_TIME, 0));
+		List<JobResult> results = executor.executeJobs(jobs, FastThreadExecutorTest.LONG_WORK_TIME);
+
+		assertNotNull(results.get(0).getResult());
+		assertNotNull(results.get(1).getResult());
+		assertEquals(policy.getHedgeCount(), 1);
+	}
+
+	/**
+	 * Steps:
+	 * 1. Record fast latencies, till the hedge delay is learnt.
+	 * 2. Record slow latencies.
+	 *
+	 * Expected Result:
+	 * 1. Hedge delay should stay cached, till the refresh interval is reached.
+	 */
+	@Test
+	public void hedgeDelayRefresh() throws Exception {
+
+		HedgePolicy policy = new HedgePolicy(50, 1, SAMPLE_COUNT);
+		for (int counter = 0; counter < SAMPLE_COUNT; ++counter) {
+			assertEquals(policy.getHedgeDelay(), -1);
+			policy.recordLatency(1000);
+		}
+		assertEquals(policy.getHedgeDelay(), 1);
+
+		for (int counter = 1; counter < HedgePolicy.REFRESH_INTERVAL; ++counter) {
+			policy.recordLatency(100 * 1000);
+		}
+		assertEquals(policy.getHedgeDelay(), 1);
+
+		policy.recordLatency(100 * 1000);
+		assertTrue(policy.getHedgeDelay() >= 100, policy.toString());
+	}
+
+	/**
+	 * Steps:
+	 * 1. Record slow latencies, many times more than a window.
+	 * 2. Record fast latencies, for two windows.
+	 * 3. Record slow latencies again, for two windows.
+	 *
+	 * Expected Result:
+	 * 1. Hedge delay should follow the latencies each time, instead of staying with the old ones.
+	 */
+	@Test
+	public void hedgeDelayFollowsLatencies() throws Exception {
+
+		HedgePolicy policy = new HedgePolicy(50, 1, SAMPLE_COUNT);
+		for (int counter = 0; counter < HedgePolicy.REFRESH_INTERVAL * 10; ++counter) {
+			policy.recordLatency(100 * 1000);
+		}
+		assertTrue(policy.getHedgeDelay() >= 100, policy.toString());
+
+		for (int counter = 0; counter < HedgePolicy.REFRESH_INTERVAL * 2; ++counter) {
+			policy.recordLatency(1000);
+		}
+		assertEquals(policy.getHedgeDelay(), 1);
+		assertEquals(policy.getLatencies().getValueAtPercentile(100), 1000);
+
+		for (int counter = 0; counter < HedgePolicy.REFRESH_INTERVAL * 2; ++counter) {
+			policy.recordLatency(100 * 1000);
+		}
+		assertTrue(policy.getHedgeDelay() >= 100, policy.toString());
+	}
+
+	private void warmUp(FastThreadExecutor executor) throws Exception {
+
+		for (int counter = 0; counter < SAMPLE_COUNT; ++counter) {
+			assertNotNull(executor.executeJob(new ReplicaReadJob(FAST_WORK_TIME), FastThreadExecutorTest.TIMEOUT_PERIOD).getResult());
+		}
+	}
+}
@@ -0,0 +1,158 @@
+/*
+ * Copyright [2015] [Tier1app LLC]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package io.allset.fastthread;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+
+import org.testng.annotations.Test;
+
+/**
+ *
+ * @author Ram Lakshmanan
+ */
+public class JobFutureTest {
+
+	private static final String CONTEXT_KEY = "requestId";
+
+	private static FastThreadExecutor ftExecutor = new FastThreadExecutor("Async");
+
+	/**
+	 * Steps:
+	 * 1. Execute a job, then fan out to 3 jobs, then merge their results, without blocking.
+	 *
+	 * Expected Result:
+	 * 1. Merged result should be available.
+	 * 2. Jobs & stages of all the steps should see the FastThreadContext of the caller.
+	 */
+	@Test
+	public void pipeline() throws Exception {
+
+		FastThreadContext.init();
+		FastThreadContext.getMondeeContext().put(CONTEXT_KEY, "pipeline");
+
+		final List<Object> stageContexts = new ArrayList<Object>();
+
+		JobFuture<JobResult> profileFuture = ftExecutor.executeJobAsync(new ContextReadingJob(), FastThreadExecutorTest.TIMEOUT_PERIOD);
+
+		CompletionStage<List<JobResult>> fanOut = profileFuture.thenCompose(new Function<JobResult, CompletionStage<List<JobResult>>>() {
+			public CompletionStage<List<JobResult>> apply(JobResult profileResult) {
+
+				stageContexts.add(profileResult.getValue());
+
+				List<Job> jobs = new ArrayList<Job>();
+				for (int counter = 0; counter < 3; ++counter) {
+					jobs.add(new ContextReadingJob());
+				}
+				return ftExecutor.executeJobsAsync(jobs, FastThreadExecutorTest.TIMEOUT_PERIOD);
+			}
+		});
+
+		String merged = fanOut.thenApply(new Function<List<JobResult>, String>() {
+			public String apply(List<JobResult> results) {
+
+				stageContexts.add(FastThreadContext.getMondeeContext().get(CONTEXT_KEY));
+
+				StringBuilder builder = new StringBuilder();
+				for (JobResult result : results) {
+					builder.append(result.getValue());
+				}
+				return builder.toString();
+			}
+		}).toCompletableFuture().get(FastThreadExecutorTest.TIMEOUT_PERIOD * 2, TimeUnit.MILLISECONDS);
+
+		assertEquals(merged, "pipelinepipelinepipeline");
+		assertEquals(stageContexts.get(0), "pipeline");
+		assertEquals(stageContexts.get(1), "pipeline");
+
+		FastThreadContext.clear();
+	}
+
+	/**
+	 * Steps:
+	 * 1. Execute a job which runs longer than its timeout, without waiting for it.
+	 *
+	 * Expected Result:
+	 * 1. Future should complete with TimeoutException, once the deadline passes.
+	 * 2. Dependent stage shouldn't be run by the timer thread, which enforced the deadline.
+	 */
+	@Test
+	public void timeout() throws Exception {
+
+		SleepingJob sleepingJob = new SleepingJob(FastThreadExecutorTest.LONG_WORK_TIME);
+		JobFuture<JobResult> future = ftExecutor.executeJobAsync(sleepingJob, FastThreadExecutorTest.WORK_TIME);
+		CompletableFuture<String> stageThread = future.thenApply(new Function<JobResult, String>() {
+			public String apply(JobResult result) {
+				return Thread.currentThread().getName();
+			}
+		});
+
+		JobResult result = future.get(FastThreadExecutorTest.TIMEOUT_PERIOD, TimeUnit.MILLISECONDS);
+		assertTrue(result.getException() instanceof TimeoutException, "Expected TimeoutException, but received: " + result.getException());
+		assertTrue(sleepingJob.isAbort());
+		assertFalse(stageThread.get().startsWith("FastThread-Timer"), stageThread.get());
+	}
+
+	/**
+	 * Steps:
+	 * 1. Occupy the only worker thread of the pool & queue one more job.
+	 * 2. Cancel the future of both the jobs.
+	 *
+	 * Expected Result:
+	 * 1. Both jobs should be aborted. Queued job shouldn't have been executed.
+	 */
+	@Test
+	public void cancel() throws Exception {
+
+		FastThreadExecutor executor = new FastThreadExecutor("AsyncCancel", 1, 1);
+
+		List<SleepingJob> jobs = new ArrayList<SleepingJob>();
+		jobs.add(new SleepingJob(FastThreadExecutorTest.WORK_TIME));
+		jobs.add(new SleepingJob(FastThreadExecutorTest.WORK_TIME));
+
+		JobFuture<List<JobResult>> future = executor.executeJobsAsync(jobs);
+		assertTrue(future.cancel(true));
+
+		assertTrue(jobs.get(0).isAbort());
+		assertTrue(jobs.get(1).isAbort());
+		assertTrue(future.getFutureTasks().get(1).isDone());
+		assertFalse(((java.util.concurrent.ThreadPoolExecutor)executor.getExecutorService()).getQueue().contains(future.getFutureTasks().get(1)));
+
+		// Jobs have no timeout, so they are reported as abandoned rather than timed out after '-1'.
+		Exception exception = FastThreadExecutor.getResult(future.getFutureTasks().get(1)).getException();
+		assertFalse(exception.getMessage().contains("-1"), exception.getMessage());
+
+		executor.shutdown();
+	}
+
+	private static class ContextReadingJob extends Job {
+
+		@Override
+		public Object doWork() throws Exception {
+			return FastThreadContext.getMondeeContext().get(CONTEXT_KEY);
+		}
+	}
+}
@@ -52,4 +52,24 @@ public class Log4jJobTest {
 		assertEquals(job.mdcValue, MDC_VALUE_1);
 		assertEquals(job.ndcValue, NDC_ELEMENT);
 	}
+
+	@Test
+	public void goGood_virtualThreads() {
+
+		FastThreadExecutor executor = FastThreadExecutor.newVirtualThreadExecutor("VirtualWorker");
+
+		MDC.put(MDC_KEY_1, MDC_VALUE_1);
+		NDC.push(NDC_ELEMENT);
+
+		List<SampleLog4jJob> sleepingJobs = new ArrayList<SampleLog4jJob>();
+		SampleLog4jJob job = new SampleLog4jJob(FastThreadExecutorTest.WORK_TIME);
+		sleepingJobs.add(job);
+
+		executor.executeJobs(sleepingJobs, FastThreadExecutorTest.TIMEOUT_PERIOD);
+
+		assertEquals(job.mdcValue, MDC_VALUE_1);
+		assertEquals(job.ndcValue, NDC_ELEMENT);
+
+		executor.shutdown();
+	}
 }
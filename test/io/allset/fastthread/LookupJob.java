@@ -0,0 +1,54 @@
+/*
+ * Copyright [2015] [Tier1app LLC]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package io.allset.fastthread;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Lookup of a key, which can be coalesced with the identical lookups. Counts how many times
+ * the lookup is actually executed.
+ *
+ * @author Ram Lakshmanan
+ */
+public class LookupJob extends Job {
+
+	private final String key;
+
+	private final int workTime;
+
+	private final AtomicInteger executionCount;
+
+	public LookupJob(String key, int workTime, AtomicInteger executionCount) {
+
+		this.key = key;
+		this.workTime = workTime;
+		this.executionCount = executionCount;
+	}
+
+	@Override
+	public Object getCoalescingKey() {
+		return key;
+	}
+
+	@Override
+	public String doWork() throws Exception {
+
+		executionCount.incrementAndGet();
+		Thread.sleep(workTime);
+		return key;
+	}
+}
@@ -0,0 +1,167 @@
+/*
+ * Copyright [2015] [Tier1app LLC]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package io.allset.fastthread;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.testng.annotations.Test;
+
+/**
+ *
+ * @author Ram Lakshmanan
+ */
+public class MicroBatcherTest {
+
+	/**
+	 * Steps:
+	 * 1. Batch up to 5 jobs, for up to 10 milli seconds.
+	 * 2. Fire 12 lookups.
+	 *
+	 * Expected Result:
+	 * 1. Lookups should be served by 3 backend calls: two full batches, and one flushed on the delay.
+	 * 2. Each caller should get the value of its own key.
+	 */
+	@Test
+	public void batchBySizeAndDelay() throws Exception {
+
+		FastThreadExecutor executor = new FastThreadExecutor("batchSize", 4, 10);
+		MicroBatcher batcher = new MicroBatcher(executor, FastThreadExecutorTest.JOB_COUNT, 10000);
+		AtomicInteger backendCalls = new AtomicInteger();
+
+		List<MultiGetJob> jobs = new ArrayList<MultiGetJob>();
+		for (int counter = 0; counter < 12; ++counter) {
+			jobs.add(new MultiGetJob("key" + counter, 0, backendCalls));
+		}
+
+		List<JobResult> results = batcher.executeJobs(jobs, FastThreadExecutorTest.TIMEOUT_PERIOD);
+		for (int counter = 0; counter < 12; ++counter) {
+			assertEquals(results.get(counter).getResult(), "value-key" + counter);
+		}
+		assertEquals(backendCalls.get(), 3);
+
+		batcher.shutdown();
+		executor.shutdown();
+	}
+
+	/**
+	 * Steps:
+	 * 1. Batch up to 2 jobs, with a delay longer than the test.
+	 * 2. Submit 125 lookups from each of 8 threads at once.
+	 *
+	 * Expected Result:
+	 * 1. No backend call should get more than 2 keys, even when threads race to fill a batch.
+	 * 2. Every caller should get a value.
+	 */
+	@Test
+	public void concurrentSubmitsKeepBatchSize() throws Exception {
+
+		FastThreadExecutor executor = new FastThreadExecutor("batchRace", 10, 1000);
+		final MicroBatcher batcher = new MicroBatcher(executor, 2, FastThreadExecutorTest.LONG_WORK_TIME * 1000);
+		final AtomicInteger backendCalls = new AtomicInteger();
+		final AtomicInteger largestBatch = new AtomicInteger();
+		final List<TimerFutureTask> futureResults = Collections.synchronizedList(new ArrayList<TimerFutureTask>());
+
+		List<Thread> threads = new ArrayList<Thread>();
+		for (int counter = 0; counter < 8; ++counter) {
+
+			threads.add(new Thread() {
+				public void run() {
+					for (int key = 0; key < 125; ++key) {
+						futureResults.add(batcher.submit(new MultiGetJob("key" + key, 0, backendCalls, largestBatch),
+								FastThreadExecutorTest.LONG_WORK_TIME * 2));
+					}
+				}
+			});
+		}
+
+		for (Thread thread : threads) {
+			thread.start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+
+		List<JobResult> results = executor.getResults(futureResults, FastThreadExecutorTest.LONG_WORK_TIME * 2);
+		for (JobResult result : results) {
+			assertTrue(String.valueOf(result.getResult()).startsWith("value-key"), "Result is: " + result);
+		}
+		assertEquals(largestBatch.get(), 2);
+		assertEquals(backendCalls.get(), 500);
+
+		batcher.shutdown();
+		executor.shutdown();
+	}
+
+	/**
+	 * Steps:
+	 * 1. Fire a lookup with a short timeout & a lookup with a long timeout, in to a slow batch.
+	 *
+	 * Expected Result:
+	 * 1. First caller should time out & its job should be aborted.
+	 * 2. Second caller should get its value.
+	 */
+	@Test
+	public void perJobTimeout() throws Exception {
+
+		FastThreadExecutor executor = new FastThreadExecutor("batchTimeout", 4, 10);
+		MicroBatcher batcher = new MicroBatcher(executor, 2, 10000);
+		AtomicInteger backendCalls = new AtomicInteger();
+
+		MultiGetJob impatientJob = new MultiGetJob("key1", FastThreadExecutorTest.WORK_TIME * 2, backendCalls);
+		TimerFutureTask impatientTask = batcher.submit(impatientJob, FastThreadExecutorTest.WORK_TIME);
+		TimerFutureTask patientTask = batcher.submit(new MultiGetJob("key2", 0, backendCalls), FastThreadExecutorTest.LONG_WORK_TIME);
+
+		JobResult impatientResult = executor.getResult(impatientTask, FastThreadExecutorTest.WORK_TIME);
+		assertTrue(impatientResult.getException() instanceof TimeoutException,
+				"Expected TimeoutException, but received: " + impatientResult.getException());
+		assertTrue(impatientJob.isAbort());
+
+		assertEquals(executor.getResult(patientTask, FastThreadExecutorTest.LONG_WORK_TIME).getResult(), "value-key2");
+		assertEquals(backendCalls.get(), 1);
+
+		batcher.shutdown();
+		executor.shutdown();
+	}
+
+	/**
+	 * Expected Result:
+	 * 1. Jobs whose callers timed out while the batch was open should be left out of the batch.
+	 */
+	@Test
+	public void skipAbandonedJobs() throws Exception {
+
+		FastThreadExecutor executor = new FastThreadExecutor("batchSkip", 4, 10);
+		MicroBatcher batcher = new MicroBatcher(executor, 10, FastThreadExecutorTest.WORK_TIME * 1000);
+		AtomicInteger backendCalls = new AtomicInteger();
+
+		JobResult result = batcher.executeJob(new MultiGetJob("key1", 0, backendCalls), FastThreadExecutorTest.WORK_TIME / 2);
+		assertTrue(result.getException() instanceof TimeoutException);
+
+		Thread.sleep(FastThreadExecutorTest.WORK_TIME);
+		assertEquals(backendCalls.get(), 0);
+
+		batcher.shutdown();
+		executor.shutdown();
+	}
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright [2015] [Tier1app LLC]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package io.allset.fastthread;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Lookup of a key, against a backend which can serve many keys in one call. Counts the
+ * calls made to the backend.
+ *
+ * @author Ram Lakshmanan
+ */
+public class MultiGetJob extends BatchableJob {
+
+	private final String key;
+
+	private final int workTime;
+
+	private final AtomicInteger backendCalls;
+
+	/**
+	 * Number of keys in the largest call made to the backend.
+	 */
+	private final AtomicInteger largestBatch;
+
+	public MultiGetJob(String key, int workTime, AtomicInteger backendCalls) {
+
+		this(key, workTime, backendCalls, new AtomicInteger());
+	}
+
+	public MultiGetJob(String key, int workTime, AtomicInteger backendCalls, AtomicInteger largestBatch) {
+
+		this.key = key;
+		this.workTime = workTime;
+		this.backendCalls = backendCalls;
+		this.largestBatch = largestBatch;
+	}
+
+	@Override
+	public Object getBatchKey() {
+		return "backend";
+	}
+
+	@Override
+	public List<?> doBatchWork(List<BatchableJob> jobs) throws Exception {
+
+		backendCalls.incrementAndGet();
+		int largest = largestBatch.get();
+		while (jobs.size() > largest && !largestBatch.compareAndSet(largest, jobs.size())) {
+			largest = largestBatch.get();
+		}
+		Thread.sleep(workTime);
+
+		List<String> values = new ArrayList<String>(jobs.size());
+		for (BatchableJob job : jobs) {
+			values.add("value-" + ((MultiGetJob)job).key);
+		}
+		return values;
+	}
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright [2015] [Tier1app LLC]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package io.allset.fastthread;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Crawls a range of pages, one page at a time. Range is split in to halves till it has only one page.
+ * Returns the number of pages crawled in the context of the request.
+ *
+ * @author Ram Lakshmanan
+ */
+public class PageCrawlJob extends SplittableJob {
+
+	public static final String CONTEXT_KEY = "crawlId";
+
+	private final int fromPage;
+
+	private final int toPage;
+
+	private final int pageTime;
+
+	private final AtomicInteger crawledPages;
+
+	public PageCrawlJob(int fromPage, int toPage, int pageTime, AtomicInteger crawledPages) {
+
+		this.fromPage = fromPage;
+		this.toPage = toPage;
+		this.pageTime = pageTime;
+		this.crawledPages = crawledPages;
+	}
+
+	@Override
+	protected boolean shouldSplit() {
+		return toPage - fromPage > 1;
+	}
+
+	@Override
+	protected List<? extends SplittableJob> split() {
+
+		int middlePage = (fromPage + toPage) / 2;
+
+		List<PageCrawlJob> childJobs = new ArrayList<PageCrawlJob>();
+		childJobs.add(new PageCrawlJob(fromPage, middlePage, pageTime, crawledPages));
+		childJobs.add(new PageCrawlJob(middlePage, toPage, pageTime, crawledPages));
+		return childJobs;
+	}
+
+	@Override
+	protected Object merge(List<JobResult> childResults) throws Exception {
+
+		String crawlId = (String)FastThreadContext.getMondeeContext().get(CONTEXT_KEY);
+
+		int pageCount = 0;
+		for (JobResult childResult : childResults) {
+
+			// Child jobs should have crawled in the same context as the parent.
+			String value = (String)childResult.getResult();
+			if (!value.startsWith(crawlId + ":")) {
+				return null;
+			}
+			pageCount += Integer.parseInt(value.substring(crawlId.length() + 1));
+		}
+
+		return crawlId + ":" + pageCount;
+	}
+
+	@Override
+	protected Object computeDirectly() throws Exception {
+
+		Thread.sleep(pageTime);
+		crawledPages.incrementAndGet();
+
+		return FastThreadContext.getMondeeContext().get(CONTEXT_KEY) + ":1";
+	}
+}
@@ -0,0 +1,158 @@
+/*
+ * Copyright [2015] [Tier1app LLC]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package io.allset.fastthread;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.testng.annotations.Test;
+
+/**
+ *
+ * @author Ram Lakshmanan
+ */
+public class PriorityFastThreadExecutorTest {
+
+	private static final long LONG_TIMEOUT = 1000;
+
+	/**
+	 * Steps:
+	 * 1. Occupy the only worker thread of the pool.
+	 * 2. Queue a backlog of background jobs & then an interactive job.
+	 *
+	 * Expected Result:
+	 * 1. Interactive job should be executed ahead of the background jobs.
+	 */
+	@Test
+	public void interactiveAheadOfBackground() throws Exception {
+
+		PriorityFastThreadExecutor executor = new PriorityFastThreadExecutor("priority", 1, 10);
+		executor.dropJobToExecutor(new SleepingJob(FastThreadExecutorTest.WORK_TIME));
+
+		List<String> executionOrder = Collections.synchronizedList(new ArrayList<String>());
+
+		List<Job> jobs = new ArrayList<Job>();
+		for (int counter = 0; counter < 5; ++counter) {
+			jobs.add(new RecordingJob("background" + counter, JobPriority.BACKGROUND, executionOrder));
+		}
+		jobs.add(new RecordingJob("interactive", JobPriority.INTERACTIVE, executionOrder));
+
+		List<JobResult> results = executor.executeJobs(jobs, LONG_TIMEOUT);
+		for (JobResult result : results) {
+			assertEquals(result.getResult(), Boolean.TRUE);
+		}
+
+		assertEquals(executionOrder.get(0), "interactive");
+		// Background jobs are executed in FIFO order.
+		assertEquals(executionOrder.subList(1, 6), Arrays.asList("background0", "background1", "background2", "background3", "background4"));
+
+		executor.shutdown();
+	}
+
+	/**
+	 * Jobs of same priority are executed in the order of their deadlines.
+	 */
+	@Test
+	public void earliestDeadlineFirst() throws Exception {
+
+		PriorityFastThreadExecutor executor = new PriorityFastThreadExecutor("deadline", 1, 10);
+		executor.dropJobToExecutor(new SleepingJob(FastThreadExecutorTest.WORK_TIME));
+
+		List<String> executionOrder = Collections.synchronizedList(new ArrayList<String>());
+
+		TimerFutureTask relaxedTask = executor.dropJobToExecutor(new RecordingJob("relaxed", JobPriority.NORMAL, executionOrder), LONG_TIMEOUT);
+		TimerFutureTask urgentTask = executor.dropJobToExecutor(new RecordingJob("urgent", JobPriority.NORMAL, executionOrder), FastThreadExecutorTest.LONG_WORK_TIME);
+
+		executor.getResult(urgentTask, FastThreadExecutorTest.LONG_WORK_TIME);
+		executor.getResult(relaxedTask, LONG_TIMEOUT);
+
+		assertEquals(executionOrder, Arrays.asList("urgent", "relaxed"));
+
+		executor.shutdown();
+	}
+
+	/**
+	 * Background job which has waited long enough should be handed out ahead of a newly arrived
+	 * interactive job.
+	 */
+	@Test
+	public void noStarvation() throws Exception {
+
+		DeadlineAwareQueue queue = new DeadlineAwareQueue(10);
+		queue.setPriorityOffset(10);
+
+		Job backgroundJob = new SleepingJob(0);
+		backgroundJob.setPriority(JobPriority.BACKGROUND);
+		TimerFutureTask backgroundTask = new TimerFutureTask(backgroundJob, null, FastThreadExecutorTest.WORK_TIME);
+		assertTrue(queue.offer(backgroundTask));
+
+		Thread.sleep(FastThreadExecutorTest.WORK_TIME);
+
+		Job interactiveJob = new SleepingJob(0);
+		interactiveJob.setPriority(JobPriority.INTERACTIVE);
+		TimerFutureTask interactiveTask = new TimerFutureTask(interactiveJob, null, FastThreadExecutorTest.WORK_TIME);
+		assertTrue(queue.offer(interactiveTask));
+
+		assertSame(queue.poll(), backgroundTask);
+		assertSame(queue.poll(), interactiveTask);
+	}
+
+	@Test
+	public void boundedQueue() throws Exception {
+
+		DeadlineAwareQueue queue = new DeadlineAwareQueue(2);
+		TimerFutureTask task1 = new TimerFutureTask(new SleepingJob(0));
+		TimerFutureTask task2 = new TimerFutureTask(new SleepingJob(0));
+
+		assertTrue(queue.offer(task1));
+		assertTrue(queue.offer(task2));
+		assertFalse(queue.offer(new TimerFutureTask(new SleepingJob(0))));
+		assertEquals(queue.remainingCapacity(), 0);
+
+		assertTrue(queue.remove(task1));
+		assertEquals(queue.size(), 1);
+		assertTrue(queue.offer(new TimerFutureTask(new SleepingJob(0))));
+	}
+
+	private static class RecordingJob extends Job {
+
+		private final String name;
+
+		private final List<String> executionOrder;
+
+		RecordingJob(String name, JobPriority priority, List<String> executionOrder) {
+
+			this.name = name;
+			this.executionOrder = executionOrder;
+			setPriority(priority);
+		}
+
+		@Override
+		public Object doWork() throws Exception {
+
+			executionOrder.add(name);
+			return Boolean.TRUE;
+		}
+	}
+}
@@ -0,0 +1,53 @@
+/*
+ * Copyright [2015] [Tier1app LLC]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package io.allset.fastthread;
+
+/**
+ * Idempotent read, whose duplicates are served by a replica with a different response time.
+ *
+ * @author Ram Lakshmanan
+ */
+public class ReplicaReadJob extends SleepingJob {
+
+	private final int[] replicaWorkTimes;
+
+	private final int replica;
+
+	/**
+	 * @param replicaWorkTimes	Work time of the job, followed by the work times of its duplicates.
+	 */
+	public ReplicaReadJob(int... replicaWorkTimes) {
+		this(replicaWorkTimes, 0);
+	}
+
+	private ReplicaReadJob(int[] replicaWorkTimes, int replica) {
+
+		super(replicaWorkTimes[replica]);
+		this.replicaWorkTimes = replicaWorkTimes;
+		this.replica = replica;
+	}
+
+	@Override
+	public Job duplicate() {
+
+		if (replica + 1 >= replicaWorkTimes.length) {
+			return null;
+		}
+
+		return new ReplicaReadJob(replicaWorkTimes, replica + 1);
+	}
+}
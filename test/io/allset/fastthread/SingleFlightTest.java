@@ -0,0 +1,118 @@
+/*
+ * Copyright [2015] [Tier1app LLC]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package io.allset.fastthread;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.testng.annotations.Test;
+
+/**
+ *
+ * @author Ram Lakshmanan
+ */
+public class SingleFlightTest {
+
+	/**
+	 * Steps:
+	 * 1. Fire 5 lookups of the same key & 1 lookup of another key.
+	 * 2. Once they complete, fire a lookup of the first key again.
+	 *
+	 * Expected Result:
+	 * 1. Lookups of the same key should be executed once, with each caller getting the result.
+	 * 2. Lookup fired after the completion should be executed afresh.
+	 */
+	@Test
+	public void coalesceIdenticalJobs() throws Exception {
+
+		FastThreadExecutor executor = new FastThreadExecutor("coalesce", 4, 10);
+		AtomicInteger executionCount = new AtomicInteger();
+
+		List<LookupJob> jobs = new ArrayList<LookupJob>();
+		for (int counter = 0; counter < FastThreadExecutorTest.JOB_COUNT; ++counter) {
+			jobs.add(new LookupJob("product-1", FastThreadExecutorTest.WORK_TIME, executionCount));
+		}
+		jobs.add(new LookupJob("product-2", FastThreadExecutorTest.WORK_TIME, executionCount));
+
+		List<JobResult> results = executor.executeJobs(jobs, FastThreadExecutorTest.TIMEOUT_PERIOD);
+		for (int counter = 0; counter < FastThreadExecutorTest.JOB_COUNT; ++counter) {
+			assertEquals(results.get(counter).getResult(), "product-1");
+		}
+		assertEquals(results.get(FastThreadExecutorTest.JOB_COUNT).getResult(), "product-2");
+		assertEquals(executionCount.get(), 2);
+
+		JobResult result = executor.executeJob(new LookupJob("product-1", 0, executionCount), FastThreadExecutorTest.TIMEOUT_PERIOD);
+		assertEquals(result.getResult(), "product-1");
+		assertEquals(executionCount.get(), 3);
+	}
+
+	/**
+	 * Steps:
+	 * 1. Fire a lookup without timeout.
+	 * 2. From another thread, fire an identical lookup which times out before the lookup completes.
+	 *
+	 * Expected Result:
+	 * 1. Second caller should time out, without cancelling the shared execution.
+	 * 2. First caller should get the result.
+	 */
+	@Test
+	public void callersTimeOutOnTheirOwn() throws Exception {
+
+		FastThreadExecutor executor = new FastThreadExecutor("coalesceTimeout", 4, 10);
+		AtomicInteger executionCount = new AtomicInteger();
+
+		LookupJob firstJob = new LookupJob("product-1", FastThreadExecutorTest.LONG_WORK_TIME, executionCount);
+		TimerFutureTask firstTask = executor.dropJobToExecutor(firstJob);
+
+		LookupJob impatientJob = new LookupJob("product-1", FastThreadExecutorTest.LONG_WORK_TIME, executionCount);
+		JobResult impatientResult = executor.executeJob(impatientJob, FastThreadExecutorTest.WORK_TIME);
+		assertTrue(impatientResult.getException() instanceof TimeoutException,
+				"Expected TimeoutException, but received: " + impatientResult.getException());
+
+		assertEquals(executor.getResult(firstTask, FastThreadExecutorTest.LONG_WORK_TIME * 2).getResult(), "product-1");
+		assertTrue(!firstJob.isAbort());
+		assertEquals(executionCount.get(), 1);
+	}
+
+	/**
+	 * Expected Result:
+	 * 1. Once every caller has timed out, shared execution should be cancelled.
+	 */
+	@Test
+	public void abandonOnceEveryCallerLeaves() throws Exception {
+
+		FastThreadExecutor executor = new FastThreadExecutor("coalesceAbandon", 4, 10);
+		AtomicInteger executionCount = new AtomicInteger();
+
+		List<LookupJob> jobs = new ArrayList<LookupJob>();
+		jobs.add(new LookupJob("product-1", FastThreadExecutorTest.LONG_WORK_TIME, executionCount));
+		jobs.add(new LookupJob("product-1", FastThreadExecutorTest.LONG_WORK_TIME, executionCount));
+
+		List<JobResult> results = executor.executeJobs(jobs, FastThreadExecutorTest.WORK_TIME);
+		assertTrue(results.get(0).getException() instanceof TimeoutException);
+		assertTrue(results.get(1).getException() instanceof TimeoutException);
+
+		// Job executed on behalf of the callers is the first one.
+		assertTrue(jobs.get(0).isAbort());
+		assertTrue(!jobs.get(1).isAbort());
+	}
+}
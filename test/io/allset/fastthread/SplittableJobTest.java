@@ -0,0 +1,108 @@
+/*
+ * Copyright [2015] [Tier1app LLC]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package io.allset.fastthread;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.testng.annotations.Test;
+
+/**
+ *
+ * @author Ram Lakshmanan
+ */
+public class SplittableJobTest {
+
+	private static final int PAGE_COUNT = 64;
+
+	/**
+	 * Steps:
+	 * 1. Crawl 64 pages on a pool with 2 threads. Every page is a child job, 6 levels deep.
+	 *
+	 * Expected Result:
+	 * 1. All pages should be crawled, without pool starving for threads.
+	 * 2. All the child jobs should have inherited the FastThreadContext of the caller.
+	 */
+	@Test
+	public void recursiveFanOut() throws Exception {
+
+		FastThreadExecutor executor = FastThreadExecutor.newForkJoinExecutor("forkJoin", 2);
+
+		FastThreadContext.init();
+		FastThreadContext.getMondeeContext().put(PageCrawlJob.CONTEXT_KEY, "crawl1");
+
+		AtomicInteger crawledPages = new AtomicInteger();
+		JobResult result = executor.executeJob(new PageCrawlJob(0, PAGE_COUNT, 1, crawledPages), FastThreadExecutorTest.LONG_WORK_TIME * 5);
+
+		assertEquals(result.getResult(), "crawl1:" + PAGE_COUNT);
+		assertEquals(crawledPages.get(), PAGE_COUNT);
+
+		FastThreadContext.clear();
+		executor.shutdown();
+	}
+
+	/**
+	 * Child jobs are executed in the parent's worker thread, when executor isn't fork/join based.
+	 */
+	@Test
+	public void recursiveFanOut_threadPool() throws Exception {
+
+		FastThreadExecutor executor = new FastThreadExecutor("splitInPool", 1, 1);
+
+		FastThreadContext.init();
+		FastThreadContext.getMondeeContext().put(PageCrawlJob.CONTEXT_KEY, "crawl2");
+
+		AtomicInteger crawledPages = new AtomicInteger();
+		JobResult result = executor.executeJob(new PageCrawlJob(0, PAGE_COUNT, 0, crawledPages));
+
+		assertEquals(result.getResult(), "crawl2:" + PAGE_COUNT);
+
+		FastThreadContext.clear();
+		executor.shutdown();
+	}
+
+	/**
+	 * Steps:
+	 * 1. Crawl pages which take longer than the timeout period.
+	 *
+	 * Expected Result:
+	 * 1. Caller should time out.
+	 * 2. Abort should have propagated to child jobs: pages shouldn't be crawled after the timeout.
+	 */
+	@Test
+	public void abortPropagation() throws Exception {
+
+		FastThreadExecutor executor = FastThreadExecutor.newForkJoinExecutor("forkJoinAbort", 2);
+
+		AtomicInteger crawledPages = new AtomicInteger();
+		JobResult result = executor.executeJob(new PageCrawlJob(0, PAGE_COUNT, 20, crawledPages), FastThreadExecutorTest.TIMEOUT_PERIOD);
+		assertTrue(result.getException() instanceof TimeoutException, "Expected TimeoutException, but received: " + result.getException());
+
+		// Pages which were being crawled at the time of timeout, would complete.
+		Thread.sleep(FastThreadExecutorTest.WORK_TIME);
+		int pagesAfterTimeout = crawledPages.get();
+		Thread.sleep(FastThreadExecutorTest.TIMEOUT_PERIOD);
+
+		assertTrue(pagesAfterTimeout < PAGE_COUNT / 2, "Crawled pages: " + pagesAfterTimeout);
+		assertEquals(crawledPages.get(), pagesAfterTimeout);
+
+		executor.shutdown();
+	}
+}
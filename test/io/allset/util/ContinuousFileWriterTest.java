@@ -0,0 +1,62 @@
+package io.allset.util;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * 
+ * @author Ram Lakshmanan
+ */
+public class ContinuousFileWriterTest {
+
+	@Test
+	public void writeAcrossBuffers() throws Exception {
+		
+		File file = File.createTempFile("continuousFileWriter", ".txt");
+		file.deleteOnExit();
+		Files.write(file.toPath(), "stale contents".getBytes(StandardCharsets.UTF_8));
+		
+		// Small buffer, so that it fills up a few times.
+		ContinuousFileWriter writer = new ContinuousFileWriter(file.getPath(), 16);
+		StringBuilder expected = new StringBuilder();
+		for (int counter = 0; counter < 100; ++counter) {
+			
+			String text = "row-" + counter + ", caf\u00e9, \u20b9\n";
+			writer.write(text);
+			expected.append(text);
+		}
+		
+		// Empty writes are ignored.
+		writer.write("");
+		writer.close();
+		
+		// Writing after close appends.
+		writer.append("last");
+		writer.close();
+		expected.append("last");
+		
+		Assert.assertEquals(new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8), expected.toString());
+	}
+	
+	@Test
+	public void appendFile() throws Exception {
+		
+		File source = File.createTempFile("continuousFileWriter", ".txt");
+		File target = File.createTempFile("continuousFileWriter", ".txt");
+		source.deleteOnExit();
+		target.deleteOnExit();
+		Files.write(source.toPath(), "middle".getBytes(StandardCharsets.UTF_8));
+		
+		ContinuousFileWriter writer = new ContinuousFileWriter(target.getPath());
+		writer.write("first-");
+		writer.append(source);
+		writer.write("-last");
+		writer.close();
+		
+		Assert.assertEquals(new String(Files.readAllBytes(target.toPath()), StandardCharsets.UTF_8), "first-middle-last");
+	}
+}